@@ -0,0 +1,287 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Micro-benchmarks for the hot paths of both games, kept apart from the game sources.
+ * Each benchmark is warmed up and then run repeatedly for a fixed time, reporting the
+ * average time per operation and the bytes allocated per operation by the benchmark thread
+ * (the figure JMH's gc profiler reports as gc.alloc.rate.norm).
+ * Results can be saved as a baseline and compared against in later runs:
+ *
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java bench/*.java
+ * java -cp out BoardBenchmarks --save bench/baseline.txt
+ * java -cp out BoardBenchmarks --compare bench/baseline.txt
+ * </pre>
+ */
+public class BoardBenchmarks {
+    private static final int[] BOARD_SIZES = {2, 4, 10, 100, Board.MAX_DIMENSION};
+    private static final long WARMUP_MILLIS = 300;
+    private static final long MEASURE_MILLIS = 700;
+
+    /**
+     * One measured operation, prepared for a given board size.
+     */
+    private interface Benchmark {
+        String name();
+
+        void setUp(int size);
+
+        /**
+         * Runs the operation once.
+         * @return The number of operations performed, used to normalise the measurements.
+         */
+        int run();
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Results are accumulated here so the JIT cannot discard the measured work.
+     */
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        Path savePath = null;
+        Path comparePath = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--save")) savePath = Paths.get(args[i + 1]);
+            else if (args[i].equals("--compare")) comparePath = Paths.get(args[i + 1]);
+        }
+
+        Map<String, double[]> baseline = comparePath == null ? null : readResults(comparePath);
+        List<String> resultLines = new ArrayList<>();
+        System.out.printf("%-40s %6s %14s %14s%n", "benchmark", "size", "ns/op", "bytes/op");
+        for (Benchmark benchmark : benchmarks()) {
+            for (int size : BOARD_SIZES) {
+                double[] result = measure(benchmark, size);
+                String key = benchmark.name() + "\t" + size;
+                resultLines.add(key + "\t" + String.format("%.1f\t%.1f", result[0], result[1]));
+
+                String line = String.format("%-40s %6d %14.1f %14.1f", benchmark.name(), size, result[0], result[1]);
+                if (baseline != null && baseline.containsKey(key)) {
+                    double[] previous = baseline.get(key);
+                    line += String.format("   time %+.1f%%, alloc %+.1f%%",
+                            percentChange(previous[0], result[0]), percentChange(previous[1], result[1]));
+                }
+                System.out.println(line);
+            }
+        }
+
+        if (savePath != null) {
+            Files.write(savePath, resultLines, StandardCharsets.UTF_8);
+            System.out.println("Results saved to " + savePath);
+        }
+    }
+
+    private static double[] measure(Benchmark benchmark, int size) {
+        benchmark.setUp(size);
+        long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            benchmark.run();
+        }
+
+        long operations = 0;
+        long allocatedBefore = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long measureEnd = start + MEASURE_MILLIS * 1_000_000L;
+        do {
+            operations += benchmark.run();
+        } while (System.nanoTime() < measureEnd);
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_BEAN.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new double[]{(double) elapsed / operations, (double) allocated / operations};
+    }
+
+    private static double percentChange(double previous, double current) {
+        return previous == 0 ? 0 : (current - previous) * 100 / previous;
+    }
+
+    private static Map<String, double[]> readResults(Path path) throws IOException {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (fields.length != 4) continue;
+            results.put(fields[0] + "\t" + fields[1],
+                    new double[]{Double.parseDouble(fields[2]), Double.parseDouble(fields[3])});
+        }
+        return results;
+    }
+
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+
+        // Fills a fresh board line by line; checkForCompletedBoxes runs inside every drawLine
+        benchmarks.add(new Benchmark() {
+            private int size;
+            private int[] lineOrder;
+            private final Player playerOne = new Player("One");
+            private final Player playerTwo = new Player("Two");
+
+            public String name() {
+                return "DotsAndBoxesBoard.drawLine";
+            }
+
+            public void setUp(int size) {
+                this.size = size;
+                int lineCount = new DotsAndBoxesBoard(size, size, playerOne, playerTwo).getLineCount();
+                lineOrder = shuffledRange(lineCount, new Random(size));
+            }
+
+            public int run() {
+                DotsAndBoxesBoard board = new DotsAndBoxesBoard(size, size, playerOne, playerTwo);
+                Player currentPlayer = playerOne;
+                for (int lineIndex : lineOrder) {
+                    if (board.drawLine(lineIndex, currentPlayer) == 0) {
+                        currentPlayer = currentPlayer == playerOne ? playerTwo : playerOne;
+                    }
+                }
+                sink += board.getScore(playerOne);
+                return lineOrder.length;
+            }
+        });
+
+        // A new board keeps everything it allocates, so bytes/op is the heap footprint of an empty board
+        benchmarks.add(new Benchmark() {
+            private int size;
+            private final Player playerOne = new Player("One");
+            private final Player playerTwo = new Player("Two");
+
+            public String name() {
+                return "DotsAndBoxesBoard.new";
+            }
+
+            public void setUp(int size) {
+                this.size = size;
+            }
+
+            public int run() {
+                sink += new DotsAndBoxesBoard(size, size, playerOne, playerTwo).getLineCount();
+                return 1;
+            }
+        });
+
+        benchmarks.add(new Benchmark() {
+            private DotsAndBoxesBoard board;
+
+            public String name() {
+                return "DotsAndBoxesBoard.getBoardAsString";
+            }
+
+            public void setUp(int size) {
+                Player playerOne = new Player("One");
+                board = new DotsAndBoxesBoard(size, size, playerOne, new Player("Two"));
+                int[] lineOrder = shuffledRange(board.getLineCount(), new Random(size));
+                for (int i = 0; i < lineOrder.length / 2; i++) {
+                    board.drawLine(lineOrder[i], playerOne);
+                }
+            }
+
+            public int run() {
+                sink += board.getBoardAsString().length();
+                return 1;
+            }
+        });
+
+        // The constructor initialises and then shuffles the board
+        benchmarks.add(new Benchmark() {
+            private int size;
+
+            public String name() {
+                return "PuzzleBoard.shuffleBoard";
+            }
+
+            public void setUp(int size) {
+                this.size = size;
+            }
+
+            public int run() {
+                sink += new PuzzleBoard(size, size).getEmptySpaceRowIndex();
+                return 1;
+            }
+        });
+
+        // Sliding the same tile twice moves it back, so the board never drifts
+        benchmarks.add(new Benchmark() {
+            private PuzzleBoard board;
+            private int tileValue;
+
+            public String name() {
+                return "PuzzleBoard.slideTile";
+            }
+
+            public void setUp(int size) {
+                board = new PuzzleBoard(size, size);
+                int emptyRow = board.getEmptySpaceRowIndex();
+                int emptyColumn = board.getEmptySpaceColumnIndex();
+                int neighbourRow = emptyRow > 0 ? emptyRow - 1 : emptyRow + 1;
+                tileValue = board.getTiles()[neighbourRow * size + emptyColumn];
+            }
+
+            public int run() {
+                sink += board.slideTile(tileValue) ? 1 : 0;
+                return 1;
+            }
+        });
+
+        benchmarks.add(new Benchmark() {
+            private PuzzleBoard board;
+
+            public String name() {
+                return "PuzzleBoard.isSolved";
+            }
+
+            public void setUp(int size) {
+                board = new PuzzleBoard(size, size);
+            }
+
+            public int run() {
+                sink += board.isSolved() ? 1 : 0;
+                return 1;
+            }
+        });
+
+        benchmarks.add(new Benchmark() {
+            private PuzzleBoard board;
+
+            public String name() {
+                return "PuzzleBoard.getBoardAsString";
+            }
+
+            public void setUp(int size) {
+                board = new PuzzleBoard(size, size);
+            }
+
+            public int run() {
+                sink += board.getBoardAsString().length();
+                return 1;
+            }
+        });
+
+        return benchmarks;
+    }
+
+    private static int[] shuffledRange(int length, Random random) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = i;
+        }
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks {@link DotsAndBoxesAI} against a brute-force minimax on grids small enough to solve
+ * outright. Each position is a random number of random lines drawn on an empty grid; every
+ * move from it is scored exactly, and the move the AI chooses must be worth as much as the
+ * best of them. The positions are the same on every run, so a failure can be replayed:
+ *
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java bench/*.java
+ * java -cp out DotsAndBoxesAICheck [positions per size] [milliseconds per move]
+ * </pre>
+ */
+public class DotsAndBoxesAICheck {
+    /** Grids of dots with at most 24 lines, so every position below them can be solved and cached. */
+    private static final int[][] GRID_SIZES = {{3, 3}, {3, 4}, {4, 3}, {4, 4}};
+    /** Lines drawn before checking on each grid size, at least, so the brute force stays quick. */
+    private static final int[] MIN_DRAWN_LINES = {0, 0, 0, 6};
+
+    public static void main(String[] args) {
+        int positionCount = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        long timeBudgetMillis = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        Player[] players = {new Player("First"), new Player("Second")};
+
+        System.out.printf("%-5s %10s %10s %12s%n", "grid", "positions", "searched", "mismatches");
+        int totalMismatches = 0;
+        for (int sizeIndex = 0; sizeIndex < GRID_SIZES.length; sizeIndex++) {
+            int width = GRID_SIZES[sizeIndex][0];
+            int height = GRID_SIZES[sizeIndex][1];
+            Random random = new Random(width * 31 + height);
+            DotsAndBoxesAI ai = new DotsAndBoxesAI(timeBudgetMillis);
+            int searchedCount = 0;
+            int mismatchCount = 0;
+            for (int positionIndex = 0; positionIndex < positionCount; positionIndex++) {
+                DotsAndBoxesBoard board = new DotsAndBoxesBoard(width, height, players);
+                int lineCount = board.getLineCount();
+                int drawnCount = MIN_DRAWN_LINES[sizeIndex] + random.nextInt(lineCount - MIN_DRAWN_LINES[sizeIndex] - 1);
+                for (int drawn = 0; drawn < drawnCount; ) {
+                    int line = random.nextInt(lineCount);
+                    if (board.isLineDrawn(line)) continue;
+                    board.drawLine(line, board.getPlayerToMove());
+                    drawn++;
+                }
+
+                DotsAndBoxesBitboard bitboard = board.copyBitboard();
+                Map<Long, Integer> solved = new HashMap<>();
+                int bestValue = Integer.MIN_VALUE;
+                for (int line = 0; line < lineCount; line++) {
+                    if (!bitboard.isClaimed(line)) bestValue = Math.max(bestValue, valueOfMove(bitboard, line, solved));
+                }
+                int chosenLine = ai.chooseMove(board);
+                if (ai.getCompletedDepth() > 0) searchedCount++;
+                int chosenValue = valueOfMove(bitboard, chosenLine, solved);
+                if (chosenValue != bestValue) {
+                    mismatchCount++;
+                    System.out.printf("%dx%d position %d: chose line %d worth %d, the best is worth %d%n",
+                            width, height, positionIndex, chosenLine, chosenValue, bestValue);
+                }
+            }
+            System.out.printf("%-5s %10d %10d %12d%n", width + "x" + height, positionCount, searchedCount, mismatchCount);
+            totalMismatches += mismatchCount;
+        }
+        if (totalMismatches > 0) {
+            throw new IllegalStateException(totalMismatches + " chosen moves were worse than the best move.");
+        }
+    }
+
+    /**
+     * Returns how many more boxes than the opponent the player drawing a line ends up with from here on.
+     */
+    private static int valueOfMove(DotsAndBoxesBitboard bitboard, int line, Map<Long, Integer> solved) {
+        int boxesCompleted = Integer.bitCount(bitboard.claim(line));
+        int value = boxesCompleted > 0
+                ? boxesCompleted + bestValue(bitboard, solved)
+                : -bestValue(bitboard, solved);
+        bitboard.unclaim(line);
+        return value;
+    }
+
+    /**
+     * Solves a position by trying every line, returning the best difference in future boxes for the player to move.
+     */
+    private static int bestValue(DotsAndBoxesBitboard bitboard, Map<Long, Integer> solved) {
+        if (bitboard.isFull()) return 0;
+        long drawnLines = 0;
+        for (int line = 0; line < bitboard.getLineCount(); line++) {
+            if (bitboard.isClaimed(line)) drawnLines |= 1L << line;
+        }
+        Integer known = solved.get(drawnLines);
+        if (known != null) return known;
+        int best = Integer.MIN_VALUE;
+        for (int line = 0; line < bitboard.getLineCount(); line++) {
+            if (!bitboard.isClaimed(line)) best = Math.max(best, valueOfMove(bitboard, line, solved));
+        }
+        solved.put(drawnLines, best);
+        return best;
+    }
+}
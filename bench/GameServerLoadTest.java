@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * A loopback load generator for {@link GameServer}. It opens many connections from a single
+ * selector thread, plays two-player Dots and Boxes games on each one, and times every move
+ * from sending the line to receiving the reply's final line. Each connection mirrors its game
+ * on a local board to choose legal moves and to check the scores the server reports.
+ *
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java bench/*.java
+ * java -cp out GameServerLoadTest [connections] [moves per connection] [host port]
+ * </pre>
+ *
+ * Without a host and port, a server is started in the same process on a free port.
+ */
+public class GameServerLoadTest {
+    private static final int GRID_SIZE = 5;
+
+    /**
+     * The client side of one connection.
+     */
+    private static class Connection {
+        final SocketChannel channel;
+        final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+        final StringBuilder currentLine = new StringBuilder();
+        final Player firstPlayer = new Player("Player 1");
+        final Player secondPlayer = new Player("Player 2");
+        DotsAndBoxesBoard board;
+        Player currentPlayer;
+        int movesSent;
+        long sendNanos;
+        boolean finished;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final int connectionCount;
+    private final int movesPerConnection;
+    private final long[] latencies;
+    private int latencyCount;
+    private int scoreMismatches;
+    private int errors;
+    private final Random random = new Random(1);
+
+    private GameServerLoadTest(int connectionCount, int movesPerConnection) {
+        this.connectionCount = connectionCount;
+        this.movesPerConnection = movesPerConnection;
+        this.latencies = new long[connectionCount * movesPerConnection];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connectionCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int movesPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        GameServer embeddedServer = null;
+        InetSocketAddress address;
+        if (args.length > 3) {
+            address = new InetSocketAddress(args[2], Integer.parseInt(args[3]));
+        } else {
+            embeddedServer = new GameServer(0);
+            Thread serverThread = new Thread(embeddedServer, "game-server");
+            serverThread.setDaemon(true);
+            serverThread.start();
+            address = new InetSocketAddress("127.0.0.1", embeddedServer.getPort());
+        }
+
+        GameServerLoadTest loadTest = new GameServerLoadTest(connectionCount, movesPerConnection);
+        long startNanos = System.nanoTime();
+        loadTest.run(address);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        loadTest.report(elapsedNanos);
+        if (embeddedServer != null) embeddedServer.close();
+    }
+
+    private void run(InetSocketAddress address) throws IOException {
+        try (Selector selector = Selector.open()) {
+            for (int connectionIndex = 0; connectionIndex < connectionCount; connectionIndex++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.socket().setTcpNoDelay(true);
+                channel.configureBlocking(false);
+                Connection connection = new Connection(channel);
+                channel.register(selector, SelectionKey.OP_READ, connection);
+                startGame(connection);
+            }
+
+            int openConnections = connectionCount;
+            while (openConnections > 0) {
+                selector.select();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (readReplies(connection)) {
+                        key.cancel();
+                        connection.channel.close();
+                        openConnections--;
+                    }
+                }
+            }
+        }
+    }
+
+    private void startGame(Connection connection) throws IOException {
+        connection.board = new DotsAndBoxesBoard(GRID_SIZE, GRID_SIZE, connection.firstPlayer, connection.secondPlayer);
+        connection.currentPlayer = connection.firstPlayer;
+        send(connection, "NEW DOTS " + GRID_SIZE + " " + GRID_SIZE);
+    }
+
+    /**
+     * Reads whatever the server has sent and answers each completed reply.
+     * @return true once the connection has finished its moves and the server has said goodbye.
+     */
+    private boolean readReplies(Connection connection) throws IOException {
+        if (connection.channel.read(connection.readBuffer) < 0) return true;
+        connection.readBuffer.flip();
+        while (connection.readBuffer.hasRemaining()) {
+            char character = (char) (connection.readBuffer.get() & 0xFF);
+            if (character != '\n') {
+                connection.currentLine.append(character);
+                continue;
+            }
+            String line = connection.currentLine.toString();
+            connection.currentLine.setLength(0);
+            if (line.startsWith("OK") || line.startsWith("OVER") || line.startsWith("ERR")) {
+                if (handleReply(connection, line)) return true;
+            }
+        }
+        connection.readBuffer.clear();
+        return false;
+    }
+
+    private boolean handleReply(Connection connection, String line) throws IOException {
+        if (line.equals("OK BYE")) return true;
+        if (line.startsWith("ERR")) errors++;
+        if (connection.sendNanos != 0) {
+            latencies[latencyCount++] = System.nanoTime() - connection.sendNanos;
+            connection.sendNanos = 0;
+            if (!line.startsWith("ERR")) checkScores(connection, line);
+        }
+
+        if (connection.movesSent == movesPerConnection) {
+            if (!connection.finished) {
+                connection.finished = true;
+                send(connection, "QUIT");
+            }
+        } else if (connection.board.isGameOver()) {
+            startGame(connection);
+        } else {
+            sendMove(connection);
+        }
+        return false;
+    }
+
+    private void checkScores(Connection connection, String line) {
+        String[] parts = line.split(" ");
+        int firstScore = Integer.parseInt(parts[1]);
+        int secondScore = Integer.parseInt(parts[2]);
+        if (firstScore != connection.board.getScore(connection.firstPlayer)
+                || secondScore != connection.board.getScore(connection.secondPlayer)) {
+            scoreMismatches++;
+        }
+    }
+
+    private void sendMove(Connection connection) throws IOException {
+        int lineIndex = DotsAndBoxesPolicy.random().chooseLine(connection.board, random);
+        String move = connection.board.describeLine(lineIndex);
+        if (connection.board.drawLine(lineIndex, connection.currentPlayer) == 0) {
+            connection.currentPlayer = connection.currentPlayer == connection.firstPlayer
+                    ? connection.secondPlayer : connection.firstPlayer;
+        }
+        connection.movesSent++;
+        connection.sendNanos = System.nanoTime();
+        send(connection, move);
+    }
+
+    private static void send(Connection connection, String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            connection.channel.write(buffer);
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        System.out.printf("%d connections, %d moves in %.2f s (%.0f moves/s)%n",
+                connectionCount, latencyCount, elapsedNanos / 1e9, latencyCount * 1e9 / elapsedNanos);
+        if (latencyCount > 0) {
+            System.out.printf("move latency p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                    percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.99) / 1e3, sorted[sorted.length - 1] / 1e3);
+        }
+        System.out.println("errors " + errors + ", score mismatches " + scoreMismatches);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
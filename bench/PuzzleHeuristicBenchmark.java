@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the {@link PuzzleHeuristic}s by solving the same puzzles optimally with each of them,
+ * reporting the nodes {@link PuzzleSolver} expanded, the total search time and the time per node.
+ * Stronger estimates expand fewer nodes but may cost more per node; the table-building time of
+ * each heuristic is measured once beforehand and reported separately. Puzzles are random walks
+ * from the solved board, so every run sees the same instances:
+ *
+ * <pre>
+ * javac -encoding UTF-8 -d out src/*.java bench/*.java
+ * java -cp out PuzzleHeuristicBenchmark [puzzles per size] [seconds per puzzle]
+ * java -Dboardgames.pdb.dir=pdb -cp out PuzzleHeuristicBenchmark
+ * </pre>
+ */
+public class PuzzleHeuristicBenchmark {
+    private static final int[][] BOARD_SIZES = {{3, 3}, {4, 4}};
+    /** Random walks long enough to scramble a 3x3 board completely, and a 4x4 board into puzzles of about 30 to 45 moves. */
+    private static final int[] SCRAMBLE_MOVES = {200, 60};
+
+    public static void main(String[] args) {
+        int puzzleCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long timeBudgetMillis = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 20_000;
+
+        System.out.printf("%-5s %-17s %10s %8s %14s %12s %10s %10s%n",
+                "board", "heuristic", "setup ms", "solved", "nodes", "search ms", "ns/node", "h(start)");
+        for (int sizeIndex = 0; sizeIndex < BOARD_SIZES.length; sizeIndex++) {
+            int width = BOARD_SIZES[sizeIndex][0];
+            int height = BOARD_SIZES[sizeIndex][1];
+            List<PuzzleBoard> puzzles = scrambledPuzzles(width, height, SCRAMBLE_MOVES[sizeIndex], puzzleCount, new Random(width * 31 + height));
+            int[] solutionLengths = new int[puzzleCount];
+
+            for (PuzzleHeuristic heuristic : PuzzleHeuristic.values()) {
+                long setupNanos = System.nanoTime();
+                boolean usePatterns = heuristic == PuzzleHeuristic.PATTERN_DATABASE || heuristic == PuzzleHeuristic.COMBINED;
+                PatternDatabase[] patternDatabases = usePatterns ? PatternDatabase.forBoard(width, height) : null;
+                // Building the first search state builds or loads any walking distance tables
+                new PuzzleSearchState(puzzles.get(0).getTiles(), width, height, heuristic, patternDatabases);
+                setupNanos = System.nanoTime() - setupNanos;
+
+                PuzzleSolver solver = new PuzzleSolver(timeBudgetMillis, heuristic);
+                long nodes = 0;
+                long searchNanos = 0;
+                long startEstimates = 0;
+                int solvedCount = 0;
+                for (int puzzleIndex = 0; puzzleIndex < puzzleCount; puzzleIndex++) {
+                    PuzzleBoard puzzle = puzzles.get(puzzleIndex);
+                    startEstimates += new PuzzleSearchState(puzzle.getTiles(), width, height, heuristic, patternDatabases).heuristic();
+                    long startNanos = System.nanoTime();
+                    int[] solution = solver.solve(puzzle);
+                    searchNanos += System.nanoTime() - startNanos;
+                    nodes += solver.getNodesExpanded();
+                    if (solution == null) continue;
+                    solvedCount++;
+                    if (solutionLengths[puzzleIndex] == 0) {
+                        solutionLengths[puzzleIndex] = solution.length;
+                    } else if (solutionLengths[puzzleIndex] != solution.length) {
+                        throw new IllegalStateException(heuristic + " found a solution of " + solution.length
+                                + " moves where another heuristic found " + solutionLengths[puzzleIndex] + ".");
+                    }
+                }
+                System.out.printf("%-5s %-17s %10.1f %5d/%-2d %14d %12.1f %10.1f %10.1f%n",
+                        width + "x" + height, heuristic, setupNanos / 1e6, solvedCount, puzzleCount, nodes,
+                        searchNanos / 1e6, nodes == 0 ? 0 : (double) searchNanos / nodes,
+                        (double) startEstimates / puzzleCount);
+            }
+        }
+    }
+
+    private static List<PuzzleBoard> scrambledPuzzles(int width, int height, int moveCount, int puzzleCount, Random random) {
+        int[] solved = new int[width * height];
+        for (int cell = 0; cell < solved.length - 1; cell++) {
+            solved[cell] = cell + 1;
+        }
+        List<PuzzleBoard> puzzles = new ArrayList<>();
+        for (int puzzleIndex = 0; puzzleIndex < puzzleCount; puzzleIndex++) {
+            PuzzleBoard board = new PuzzleBoard(width, height, solved);
+            int lastTile = 0;
+            for (int move = 0; move < moveCount; ) {
+                int tile = 1 + random.nextInt(solved.length - 1);
+                if (tile != lastTile && board.trySlideTile(tile) >= 0) {
+                    lastTile = tile;
+                    move++;
+                }
+            }
+            puzzles.add(new PuzzleBoard(width, height, board.getTiles()));
+        }
+        return puzzles;
+    }
+}
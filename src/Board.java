@@ -1,3 +1,8 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -7,6 +12,26 @@ import java.util.Random;
  * for specific game board implementations like Dots and Boxes or a sliding puzzle.
  */
 public abstract class Board {
+    /**
+     * The smallest number of rows or columns a board may have.
+     */
+    public static final int MIN_DIMENSION = 2;
+
+    /**
+     * The largest number of rows or columns a board may have.
+     */
+    public static final int MAX_DIMENSION = 1000;
+
+    /**
+     * The approximate heap overhead of a single array object, used in memory estimates.
+     */
+    protected static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * The size of the buffer snapshots are written and read through, so large boards never need one big buffer.
+     */
+    protected static final int SNAPSHOT_BUFFER_BYTES = 64 * 1024;
+
     /**
      * The width of the game board (number of columns).
      */
@@ -27,7 +52,56 @@ public abstract class Board {
         this.height = height;
     }
 
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
     public abstract String getBoardAsString();
 
     public abstract boolean isGameOver();
-}
\ No newline at end of file
+
+    /**
+     * Estimates how many bytes of heap the board's game state occupies.
+     * @return The approximate size of the arrays backing this board.
+     */
+    public abstract long estimateMemoryBytes();
+
+    /**
+     * Checks that a batch of moves starting at {@code start} fits in both its move and its result array.
+     * @throws IllegalArgumentException If it does not.
+     */
+    protected static void checkBatch(int moveArrayLength, int start, int count, int resultArrayLength) {
+        if (start < 0 || count < 0 || start + count > moveArrayLength || start + count > resultArrayLength) {
+            throw new IllegalArgumentException("The batch does not fit in the move and result arrays.");
+        }
+    }
+
+    /**
+     * Writes everything left in a buffer to a channel and clears the buffer for refilling.
+     */
+    protected static void flushSnapshotBuffer(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Makes sure a buffer being read from holds at least the given number of bytes,
+     * reading more from the channel if needed.
+     * @throws EOFException If the channel ends first.
+     */
+    protected static void requireSnapshotBytes(ByteBuffer buffer, ReadableByteChannel channel, int byteCount) throws IOException {
+        if (buffer.remaining() >= byteCount) return;
+        buffer.compact();
+        while (buffer.position() < byteCount) {
+            if (channel.read(buffer) < 0) throw new EOFException("Snapshot ended unexpectedly.");
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the rendered text of a board in a pre-sized character buffer so that a move
+ * only rewrites the few characters it changes instead of rebuilding the whole frame.
+ * The changes made since the last render are also kept as a list of patches, which
+ * lets spectators receive just the cells that changed rather than the full frame.
+ */
+public class BoardRenderCache {
+    /**
+     * More changes than this between two renders are sent as a full frame instead.
+     */
+    private static final int MAX_PENDING_PATCHES = 1024;
+
+    /**
+     * A run of characters that changed, located by its offset in the rendered frame.
+     */
+    public static class Patch {
+        private final int offset;
+        private final String text;
+
+        public Patch(int offset, String text) {
+            this.offset = offset;
+            this.text = text;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Applies this patch to a client's copy of the frame.
+         */
+        public void applyTo(char[] frame) {
+            text.getChars(0, text.length(), frame, offset);
+        }
+
+        @Override
+        public String toString() {
+            return offset + ":" + text;
+        }
+    }
+
+    private final char[] frame;
+    private final List<int[]> pendingRanges = new ArrayList<>();
+    private boolean pendingOverflow;
+
+    /**
+     * @param initialFrame The fully rendered board to start from.
+     */
+    public BoardRenderCache(String initialFrame) {
+        this.frame = initialFrame.toCharArray();
+    }
+
+    public void write(int offset, char character) {
+        if (frame[offset] == character) return;
+        frame[offset] = character;
+        recordChange(offset, 1);
+    }
+
+    public void write(int offset, String text) {
+        text.getChars(0, text.length(), frame, offset);
+        recordChange(offset, text.length());
+    }
+
+    /**
+     * Writes a number right-aligned in a field, or blanks the field when the number is 0.
+     */
+    public void writeNumber(int offset, int fieldWidth, int value) {
+        int position = offset + fieldWidth - 1;
+        int remaining = value;
+        while (position >= offset) {
+            if (remaining > 0) {
+                frame[position] = (char) ('0' + remaining % 10);
+                remaining /= 10;
+            } else {
+                frame[position] = ' ';
+            }
+            position--;
+        }
+        recordChange(offset, fieldWidth);
+    }
+
+    private void recordChange(int offset, int length) {
+        if (pendingOverflow) return;
+        if (pendingRanges.size() == MAX_PENDING_PATCHES) {
+            pendingOverflow = true;
+            pendingRanges.clear();
+            return;
+        }
+        pendingRanges.add(new int[]{offset, length});
+    }
+
+    /**
+     * Returns the full frame and forgets the pending changes.
+     */
+    public String render() {
+        pendingRanges.clear();
+        pendingOverflow = false;
+        return new String(frame);
+    }
+
+    /**
+     * Returns the changes since the last call to this method or {@link #render()}.
+     * If too many changes have piled up, a single patch holding the whole frame is returned.
+     */
+    public List<Patch> drainChanges() {
+        if (pendingOverflow) {
+            return Collections.singletonList(new Patch(0, render()));
+        }
+        List<Patch> patches = new ArrayList<>(pendingRanges.size());
+        for (int[] range : pendingRanges) {
+            patches.add(new Patch(range[0], new String(frame, range[0], range[1])));
+        }
+        pendingRanges.clear();
+        return patches;
+    }
+}
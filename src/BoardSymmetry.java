@@ -0,0 +1,58 @@
+/**
+ * The rotations and reflections of a rectangular grid of points.
+ * Square grids have all eight; rectangles only have the four that keep the width and height,
+ * see {@link #of(int, int)}. Points are given as row and column indices on a grid with
+ * {@code rowCount} rows and {@code columnCount} columns.
+ */
+public enum BoardSymmetry {
+    IDENTITY,
+    ROTATE_90,
+    ROTATE_180,
+    ROTATE_270,
+    FLIP_ROWS,
+    FLIP_COLUMNS,
+    TRANSPOSE,
+    ANTI_TRANSPOSE;
+
+    private static final BoardSymmetry[] SQUARE_SYMMETRIES = values();
+    private static final BoardSymmetry[] RECTANGLE_SYMMETRIES = {IDENTITY, ROTATE_180, FLIP_ROWS, FLIP_COLUMNS};
+
+    /**
+     * Returns the symmetries of a grid: all eight for a square, four for a rectangle.
+     */
+    public static BoardSymmetry[] of(int columnCount, int rowCount) {
+        return (columnCount == rowCount ? SQUARE_SYMMETRIES : RECTANGLE_SYMMETRIES).clone();
+    }
+
+    public int mapRow(int rowIndex, int columnIndex, int rowCount, int columnCount) {
+        switch (this) {
+            case ROTATE_90:
+            case TRANSPOSE:
+                return columnIndex;
+            case ROTATE_180:
+            case FLIP_ROWS:
+                return rowCount - 1 - rowIndex;
+            case ROTATE_270:
+            case ANTI_TRANSPOSE:
+                return columnCount - 1 - columnIndex;
+            default:
+                return rowIndex;
+        }
+    }
+
+    public int mapColumn(int rowIndex, int columnIndex, int rowCount, int columnCount) {
+        switch (this) {
+            case ROTATE_90:
+            case ANTI_TRANSPOSE:
+                return rowCount - 1 - rowIndex;
+            case ROTATE_180:
+            case FLIP_COLUMNS:
+                return columnCount - 1 - columnIndex;
+            case ROTATE_270:
+            case TRANSPOSE:
+                return rowIndex;
+            default:
+                return columnIndex;
+        }
+    }
+}
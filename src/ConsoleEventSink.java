@@ -0,0 +1,53 @@
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.function.Supplier;
+
+/**
+ * Writes game output to the console through a large buffer. The buffer is only flushed when the
+ * game prompts for input or finishes, so a run of computer moves and board renders reaches the
+ * console in one write instead of one per line.
+ */
+public class ConsoleEventSink implements GameEventSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PrintWriter writer;
+
+    public ConsoleEventSink() {
+        this.writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE), false);
+    }
+
+    @Override
+    public void message(String text) {
+        writer.println(text);
+    }
+
+    @Override
+    public void prompt(String text) {
+        writer.print(text);
+        writer.flush();
+    }
+
+    /**
+     * Moves are already described by the game's messages, so they are not printed again.
+     */
+    @Override
+    public void moveMade(Player player, String move) {
+    }
+
+    @Override
+    public void boardChanged(Board board, Supplier<String> view) {
+        writer.println(view.get());
+    }
+
+    @Override
+    public void gameOver(String result) {
+        writer.println(result);
+        writer.flush();
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+}
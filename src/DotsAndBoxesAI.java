@@ -0,0 +1,312 @@
+import java.util.Arrays;
+
+/**
+ * A computer opponent for Dots and Boxes.
+ * It searches a {@link DotsAndBoxesBitboard} copy of the board with negamax and
+ * alpha-beta pruning, deepening one move at a time until its time budget runs out.
+ * Moves are tried captures first, then safe lines that give nothing away, then
+ * sacrifices ordered by how many boxes the resulting chain or loop hands over.
+ * Positions are cached in a transposition table keyed by the Zobrist hash of the drawn lines.
+ * Once a position has become a simple endgame of chains and loops, it is solved exactly by
+ * {@link DotsAndBoxesEndgame} instead of being searched.
+ */
+public class DotsAndBoxesAI {
+    private static final int TABLE_SIZE_BITS = 20;
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    /** Ordering moves checks the clock after this many lines, since one ordering scans the whole board. */
+    private static final int ORDERING_TIME_CHECK_LINES = 4096;
+    private static final byte EXACT = 0;
+    private static final byte LOWER_BOUND = 1;
+    private static final byte UPPER_BOUND = 2;
+    private static final int NO_MOVE = -1;
+
+    private final long timeBudgetMillis;
+    private final long[] tableKeys = new long[1 << TABLE_SIZE_BITS];
+    private final int[] tableValues = new int[1 << TABLE_SIZE_BITS];
+    private final int[] tableMoves = new int[1 << TABLE_SIZE_BITS];
+    private final byte[] tableDepths = new byte[1 << TABLE_SIZE_BITS];
+    private final byte[] tableFlags = new byte[1 << TABLE_SIZE_BITS];
+    private final int tableMask = (1 << TABLE_SIZE_BITS) - 1;
+    private final DotsAndBoxesEndgame endgame;
+
+    private DotsAndBoxesBitboard bitboard;
+    private int[][] moveLists;
+    private int[] captureStack;
+    /** Each sacrifice's cost in the high half and its line in the low half, so sorting orders them by cost, then line. */
+    private long[] sacrificeKeys;
+    private long deadlineNanos;
+    private boolean timedOut;
+    private long nodesSearched;
+    /** How many nodes pass between clock reads; fewer on large boards, where every node scans every line. */
+    private int timeCheckInterval;
+    /**
+     * One more than the most boxes a player can still gain, used in place of infinity for the
+     * search window, so shifting the window by a capture's boxes cannot overflow.
+     */
+    private int winBound;
+    private int completedDepth;
+
+    /**
+     * @param timeBudgetMillis How long the AI may think about each move.
+     */
+    public DotsAndBoxesAI(long timeBudgetMillis) {
+        this(timeBudgetMillis, new EndgameDatabase());
+    }
+
+    /**
+     * @param timeBudgetMillis How long the AI may think about each move.
+     * @param endgameDatabase Where solved endgames are cached, for example a file shared between runs.
+     */
+    public DotsAndBoxesAI(long timeBudgetMillis, EndgameDatabase endgameDatabase) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.endgame = new DotsAndBoxesEndgame(endgameDatabase);
+    }
+
+    /**
+     * Chooses a line to draw on the given board.
+     * @return The index of the chosen line in the board's {@link DotsAndBoxesBitboard} numbering.
+     * @throws IllegalStateException if every line has already been drawn.
+     */
+    public int chooseMove(DotsAndBoxesBoard board) {
+        bitboard = board.copyBitboard();
+        if (bitboard.isFull()) {
+            throw new IllegalStateException("There are no lines left to draw.");
+        }
+        nodesSearched = 0;
+        completedDepth = 0;
+        if (bitboard.isSimpleEndgame()) {
+            return endgame.chooseLine(bitboard);
+        }
+        int remainingLines = bitboard.getLineCount() - bitboard.getClaimedLineCount();
+        moveLists = new int[remainingLines + 1][];
+        captureStack = new int[bitboard.getBoxCount() + 2];
+        sacrificeKeys = new long[remainingLines + 1];
+        deadlineNanos = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        timedOut = false;
+        timeCheckInterval = Math.max(1, TIME_CHECK_INTERVAL * 64 / (remainingLines + 64));
+        winBound = bitboard.getBoxCount() + 1;
+
+        int[] rootMoves = orderedMoves(0, NO_MOVE);
+        // Even if the budget runs out while ordering, the first undrawn line is always listed
+        int bestMove = rootMoves[1];
+        for (int depth = 1; depth <= remainingLines; depth++) {
+            int move = searchRoot(depth);
+            if (timedOut) break;
+            bestMove = move;
+            completedDepth = depth;
+        }
+        return bestMove;
+    }
+
+    private int searchRoot(int depth) {
+        int[] moves = orderedMoves(0, probeMove(bitboard.getHash()));
+        int moveCount = moves[0];
+        int alpha = -winBound;
+        int bestMove = moves[1];
+        for (int i = 1; i <= moveCount; i++) {
+            int move = moves[i];
+            int value = valueOfMove(move, 1, depth, alpha, winBound);
+            if (timedOut) return bestMove;
+            if (value > alpha) {
+                alpha = value;
+                bestMove = move;
+            }
+        }
+        store(bitboard.getHash(), depth, alpha, EXACT, bestMove);
+        return bestMove;
+    }
+
+    /**
+     * Plays a move, scores the resulting position for the player who made it and takes the move back.
+     * Completing a box earns the box and another turn, so the score carries over without changing sides.
+     */
+    private int valueOfMove(int move, int ply, int depth, int alpha, int beta) {
+        int boxesCompleted = Integer.bitCount(bitboard.claim(move));
+        int value;
+        if (boxesCompleted > 0) {
+            value = boxesCompleted + negamax(ply, depth - 1, alpha - boxesCompleted, beta - boxesCompleted);
+        } else {
+            value = -negamax(ply, depth - 1, -beta, -alpha);
+        }
+        bitboard.unclaim(move);
+        return value;
+    }
+
+    /**
+     * Returns the best achievable difference in future boxes for the player to move.
+     */
+    private int negamax(int ply, int depth, int alpha, int beta) {
+        if (bitboard.isFull()) return 0;
+        if (bitboard.isSimpleEndgame()) return endgame.evaluate(bitboard);
+        if (++nodesSearched % timeCheckInterval == 0 && System.nanoTime() > deadlineNanos) timedOut = true;
+        if (timedOut || depth <= 0) return 0;
+
+        long hash = bitboard.getHash();
+        int tableIndex = (int) hash & tableMask;
+        int hashMove = NO_MOVE;
+        if (tableKeys[tableIndex] == hash) {
+            hashMove = tableMoves[tableIndex];
+            if (tableDepths[tableIndex] >= depth) {
+                int storedValue = tableValues[tableIndex];
+                byte flag = tableFlags[tableIndex];
+                if (flag == EXACT) return storedValue;
+                if (flag == LOWER_BOUND && storedValue >= beta) return storedValue;
+                if (flag == UPPER_BOUND && storedValue <= alpha) return storedValue;
+            }
+        }
+
+        int originalAlpha = alpha;
+        int[] moves = orderedMoves(ply, hashMove);
+        int bestValue = -winBound;
+        int bestMove = moves[1];
+        for (int i = 1; i <= moves[0]; i++) {
+            int move = moves[i];
+            int value = valueOfMove(move, ply + 1, depth, alpha, beta);
+            if (timedOut) return 0;
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = move;
+            }
+            if (value > alpha) alpha = value;
+            if (alpha >= beta) break;
+        }
+
+        byte flag = bestValue <= originalAlpha ? UPPER_BOUND : bestValue >= beta ? LOWER_BOUND : EXACT;
+        store(hash, depth, bestValue, flag, bestMove);
+        return bestValue;
+    }
+
+    private int probeMove(long hash) {
+        int tableIndex = (int) hash & tableMask;
+        return tableKeys[tableIndex] == hash ? tableMoves[tableIndex] : NO_MOVE;
+    }
+
+    private void store(long hash, int depth, int value, byte flag, int move) {
+        int tableIndex = (int) hash & tableMask;
+        if (tableKeys[tableIndex] == hash && tableDepths[tableIndex] > depth) return;
+        tableKeys[tableIndex] = hash;
+        tableValues[tableIndex] = value;
+        tableMoves[tableIndex] = move;
+        tableDepths[tableIndex] = (byte) Math.min(depth, Byte.MAX_VALUE);
+        tableFlags[tableIndex] = flag;
+    }
+
+    /**
+     * Lists the undrawn lines in search order into this ply's reusable buffer.
+     * The buffer's first element holds the number of moves that follow. If the time budget runs
+     * out part way, the list is cut short, but it always holds at least one move.
+     */
+    private int[] orderedMoves(int ply, int hashMove) {
+        int[] moves = moveLists[ply];
+        if (moves == null) {
+            moves = new int[bitboard.getLineCount() - bitboard.getClaimedLineCount() + 1];
+            moveLists[ply] = moves;
+        }
+        int lineCount = bitboard.getLineCount();
+        int moveCount = 0;
+        if (hashMove != NO_MOVE && !bitboard.isClaimed(hashMove)) {
+            moves[++moveCount] = hashMove;
+        }
+        // Captures first, then safe lines
+        for (int pass = 0; pass < 2; pass++) {
+            for (int line = 0; line < lineCount; line++) {
+                if (orderingTimedOut(line, moveCount)) break;
+                if (bitboard.isClaimed(line) || line == hashMove) continue;
+                int category = categorize(line);
+                if (category == pass) moves[++moveCount] = line;
+            }
+        }
+        // Then sacrifices, cheapest first (sorted by boxes handed over)
+        int sacrificeCount = 0;
+        for (int line = 0; line < lineCount; line++) {
+            if (orderingTimedOut(line, moveCount + sacrificeCount)) break;
+            if (bitboard.isClaimed(line) || line == hashMove || categorize(line) != 2) continue;
+            sacrificeKeys[sacrificeCount++] = (long) boxesHandedOver(line) << 32 | line;
+        }
+        Arrays.sort(sacrificeKeys, 0, sacrificeCount);
+        for (int sacrifice = 0; sacrifice < sacrificeCount; sacrifice++) {
+            moves[++moveCount] = (int) sacrificeKeys[sacrifice];
+        }
+        if (moveCount == 0) {
+            for (int line = 0; line < lineCount && moveCount == 0; line++) {
+                if (!bitboard.isClaimed(line)) moves[++moveCount] = line;
+            }
+        }
+        moves[0] = moveCount;
+        return moves;
+    }
+
+    /**
+     * Reads the clock every few thousand lines of a move ordering.
+     * @return Whether the time budget has run out and at least one move is listed already.
+     */
+    private boolean orderingTimedOut(int line, int moveCount) {
+        if (!timedOut && line % ORDERING_TIME_CHECK_LINES == ORDERING_TIME_CHECK_LINES - 1
+                && System.nanoTime() > deadlineNanos) {
+            timedOut = true;
+        }
+        return timedOut && moveCount > 0;
+    }
+
+    /**
+     * @return 0 if the line completes a box, 1 if it is safe, 2 if it gives the opponent a box.
+     */
+    private int categorize(int line) {
+        int firstBox = bitboard.firstAdjacentBox(line);
+        int secondBox = bitboard.secondAdjacentBox(line);
+        int firstEdges = firstBox >= 0 ? bitboard.getEdgeCount(firstBox) : 0;
+        int secondEdges = secondBox >= 0 ? bitboard.getEdgeCount(secondBox) : 0;
+        if (firstEdges == 3 || secondEdges == 3) return 0;
+        if (firstEdges == 2 || secondEdges == 2) return 2;
+        return 1;
+    }
+
+    /**
+     * Counts how many boxes the opponent could take in a row after this line is drawn,
+     * which is the length of the chain or loop the line opens.
+     */
+    private int boxesHandedOver(int line) {
+        int stackSize = 0;
+        captureStack[stackSize++] = line;
+        bitboard.claim(line);
+        int captured = 0;
+        int lastLine = line;
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (int side = 0; side < 2 && !progress; side++) {
+                int box = side == 0 ? bitboard.firstAdjacentBox(lastLine) : bitboard.secondAdjacentBox(lastLine);
+                if (box < 0 || bitboard.getEdgeCount(box) != 3) continue;
+                for (int edge = 0; edge < 4; edge++) {
+                    int boxLine = bitboard.boxLine(box, edge);
+                    if (!bitboard.isClaimed(boxLine)) {
+                        bitboard.claim(boxLine);
+                        captureStack[stackSize++] = boxLine;
+                        captured++;
+                        lastLine = boxLine;
+                        progress = true;
+                        break;
+                    }
+                }
+            }
+        }
+        while (stackSize > 0) {
+            bitboard.unclaim(captureStack[--stackSize]);
+        }
+        return captured;
+    }
+
+    /**
+     * Returns how many positions the last call to {@link #chooseMove(DotsAndBoxesBoard)} searched.
+     */
+    public long getNodesSearched() {
+        return nodesSearched;
+    }
+
+    /**
+     * Returns the deepest search the last move completed within its time budget.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+}
@@ -0,0 +1,288 @@
+/**
+ * A compact representation of the lines drawn on a Dots and Boxes grid.
+ * Every line is given a fixed index (horizontal lines first, then vertical lines),
+ * claimed lines are stored as bits in a long array, and each box keeps a counter
+ * of how many of its four edges are drawn. Drawing a line only has to look at the
+ * one or two boxes next to it, so a move costs constant time regardless of board size.
+ * Moves can be taken back with {@link #unclaim(int)}, and a Zobrist hash of the drawn
+ * lines is kept up to date, which lets searches make and unmake moves in place.
+ */
+public class DotsAndBoxesBitboard {
+    private final int width;
+    private final int height;
+    private final int horizontalLineCount;
+    private final int lineCount;
+    private final long[] claimedLines;
+    private final byte[] boxEdgeCounts;
+    private int claimedLineCount;
+    private long hash;
+    /** Boxes with zero, one or three sides drawn, which keep the position out of the simple endgame. */
+    private int unsettledBoxCount;
+
+    /** 1 for edge counts that leave a box unsettled, indexed by edge count. */
+    private static final int[] UNSETTLED = {1, 1, 0, 1, 0};
+
+    /**
+     * Creates an empty bitboard for a grid of dots.
+     * @param width The number of dots in each row.
+     * @param height The number of dots in each column.
+     */
+    public DotsAndBoxesBitboard(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.horizontalLineCount = height * (width - 1);
+        this.lineCount = horizontalLineCount + (height - 1) * width;
+        this.claimedLines = new long[(lineCount + 63) >>> 6];
+        this.boxEdgeCounts = new byte[(height - 1) * (width - 1)];
+        this.unsettledBoxCount = boxEdgeCounts.length;
+    }
+
+    /**
+     * Creates an independent copy of another bitboard.
+     */
+    public DotsAndBoxesBitboard(DotsAndBoxesBitboard other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.horizontalLineCount = other.horizontalLineCount;
+        this.lineCount = other.lineCount;
+        this.claimedLines = other.claimedLines.clone();
+        this.boxEdgeCounts = other.boxEdgeCounts.clone();
+        this.claimedLineCount = other.claimedLineCount;
+        this.hash = other.hash;
+        this.unsettledBoxCount = other.unsettledBoxCount;
+    }
+
+    /**
+     * Makes this bitboard a copy of another one of the same size, reusing this bitboard's arrays,
+     * so a search can restart from a position as often as it likes without allocating.
+     * @throws IllegalArgumentException If the other bitboard's grid has a different size.
+     */
+    public void copyFrom(DotsAndBoxesBitboard other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Bitboards must have the same size to be copied.");
+        }
+        System.arraycopy(other.claimedLines, 0, claimedLines, 0, claimedLines.length);
+        System.arraycopy(other.boxEdgeCounts, 0, boxEdgeCounts, 0, boxEdgeCounts.length);
+        this.claimedLineCount = other.claimedLineCount;
+        this.hash = other.hash;
+        this.unsettledBoxCount = other.unsettledBoxCount;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getBoxCount() {
+        return boxEdgeCounts.length;
+    }
+
+    public int getClaimedLineCount() {
+        return claimedLineCount;
+    }
+
+    /**
+     * Converts a line's grid coordinates into its index.
+     * @return The line index, or -1 if the line does not exist on this grid.
+     */
+    public int lineIndex(int rowIndex, int columnIndex, char direction) {
+        if (direction == 'H') {
+            if (rowIndex < 0 || rowIndex >= height || columnIndex < 0 || columnIndex >= width - 1) return -1;
+            return rowIndex * (width - 1) + columnIndex;
+        }
+        if (direction == 'V') {
+            if (rowIndex < 0 || rowIndex >= height - 1 || columnIndex < 0 || columnIndex >= width) return -1;
+            return horizontalLineCount + rowIndex * width + columnIndex;
+        }
+        return -1;
+    }
+
+    public boolean isHorizontal(int lineIndex) {
+        return lineIndex < horizontalLineCount;
+    }
+
+    public int lineRow(int lineIndex) {
+        return isHorizontal(lineIndex) ? lineIndex / (width - 1) : (lineIndex - horizontalLineCount) / width;
+    }
+
+    public int lineColumn(int lineIndex) {
+        return isHorizontal(lineIndex) ? lineIndex % (width - 1) : (lineIndex - horizontalLineCount) % width;
+    }
+
+    public char lineDirection(int lineIndex) {
+        return isHorizontal(lineIndex) ? 'H' : 'V';
+    }
+
+    /**
+     * Returns one of the four lines around a box.
+     * @param side 0 for the top, 1 for the bottom, 2 for the left and 3 for the right edge.
+     */
+    public int boxLine(int boxIndex, int side) {
+        int rowIndex = boxIndex / (width - 1);
+        int columnIndex = boxIndex % (width - 1);
+        switch (side) {
+            case 0:
+                return rowIndex * (width - 1) + columnIndex;
+            case 1:
+                return (rowIndex + 1) * (width - 1) + columnIndex;
+            case 2:
+                return horizontalLineCount + rowIndex * width + columnIndex;
+            default:
+                return horizontalLineCount + rowIndex * width + columnIndex + 1;
+        }
+    }
+
+    public boolean isClaimed(int lineIndex) {
+        return (claimedLines[lineIndex >>> 6] & (1L << lineIndex)) != 0;
+    }
+
+    public boolean isClaimed(int rowIndex, int columnIndex, char direction) {
+        int lineIndex = lineIndex(rowIndex, columnIndex, direction);
+        return lineIndex >= 0 && isClaimed(lineIndex);
+    }
+
+    /**
+     * Returns the number of drawn edges (0 to 4) around a box.
+     */
+    public int getEdgeCount(int boxRowIndex, int boxColumnIndex) {
+        return boxEdgeCounts[boxRowIndex * (width - 1) + boxColumnIndex];
+    }
+
+    public int getEdgeCount(int boxIndex) {
+        return boxEdgeCounts[boxIndex];
+    }
+
+    /**
+     * Marks a line as claimed and updates the edge counters of its neighbouring boxes.
+     * The caller must make sure the line is not already claimed.
+     * @param lineIndex The index of the line to claim.
+     * @return A bit mask of the boxes completed by this line: bit 0 for the box above
+     *         (or to the left of) the line, bit 1 for the box below (or to the right of) it.
+     */
+    public int claim(int lineIndex) {
+        claimedLines[lineIndex >>> 6] |= 1L << lineIndex;
+        claimedLineCount++;
+        hash ^= zobristKey(lineIndex);
+
+        int completedMask = 0;
+        int firstBox = firstAdjacentBox(lineIndex);
+        if (firstBox >= 0 && addEdge(firstBox) == 4) completedMask |= 1;
+        int secondBox = secondAdjacentBox(lineIndex);
+        if (secondBox >= 0 && addEdge(secondBox) == 4) completedMask |= 2;
+        return completedMask;
+    }
+
+    private int addEdge(int boxIndex) {
+        int edgeCount = ++boxEdgeCounts[boxIndex];
+        unsettledBoxCount += UNSETTLED[edgeCount] - UNSETTLED[edgeCount - 1];
+        return edgeCount;
+    }
+
+    private void removeEdge(int boxIndex) {
+        int edgeCount = --boxEdgeCounts[boxIndex];
+        unsettledBoxCount += UNSETTLED[edgeCount] - UNSETTLED[edgeCount + 1];
+    }
+
+    /**
+     * Takes back a claimed line, restoring the edge counters of its neighbouring boxes.
+     * The caller must make sure the line is currently claimed.
+     */
+    public void unclaim(int lineIndex) {
+        claimedLines[lineIndex >>> 6] &= ~(1L << lineIndex);
+        claimedLineCount--;
+        hash ^= zobristKey(lineIndex);
+
+        int firstBox = firstAdjacentBox(lineIndex);
+        if (firstBox >= 0) removeEdge(firstBox);
+        int secondBox = secondAdjacentBox(lineIndex);
+        if (secondBox >= 0) removeEdge(secondBox);
+    }
+
+    /**
+     * Returns a 64-bit Zobrist hash of the set of drawn lines.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Derives a line's Zobrist key with the SplitMix64 finalizer, so no key table is stored.
+     */
+    private static long zobristKey(int lineIndex) {
+        long key = lineIndex + 0x9E3779B97F4A7C15L;
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    /**
+     * Finds the box above a horizontal line or to the left of a vertical line.
+     * @return The flat box index, or -1 if the line lies on the top or left border.
+     */
+    public int firstAdjacentBox(int lineIndex) {
+        if (lineIndex < horizontalLineCount) {
+            int rowIndex = lineIndex / (width - 1);
+            int columnIndex = lineIndex % (width - 1);
+            return rowIndex > 0 ? (rowIndex - 1) * (width - 1) + columnIndex : -1;
+        }
+        int verticalIndex = lineIndex - horizontalLineCount;
+        int rowIndex = verticalIndex / width;
+        int columnIndex = verticalIndex % width;
+        return columnIndex > 0 ? rowIndex * (width - 1) + columnIndex - 1 : -1;
+    }
+
+    /**
+     * Finds the box below a horizontal line or to the right of a vertical line.
+     * @return The flat box index, or -1 if the line lies on the bottom or right border.
+     */
+    public int secondAdjacentBox(int lineIndex) {
+        if (lineIndex < horizontalLineCount) {
+            int rowIndex = lineIndex / (width - 1);
+            int columnIndex = lineIndex % (width - 1);
+            return rowIndex < height - 1 ? rowIndex * (width - 1) + columnIndex : -1;
+        }
+        int verticalIndex = lineIndex - horizontalLineCount;
+        int rowIndex = verticalIndex / width;
+        int columnIndex = verticalIndex % width;
+        return columnIndex < width - 1 ? rowIndex * (width - 1) + columnIndex : -1;
+    }
+
+    /**
+     * Finds the line a symmetry of the grid carries a line onto, by mapping both of its dots.
+     * Rotations by 90 degrees and transpositions are only meaningful on square grids.
+     */
+    public int mapLine(BoardSymmetry symmetry, int lineIndex) {
+        int rowIndex = lineRow(lineIndex);
+        int columnIndex = lineColumn(lineIndex);
+        int endRowIndex = isHorizontal(lineIndex) ? rowIndex : rowIndex + 1;
+        int endColumnIndex = isHorizontal(lineIndex) ? columnIndex + 1 : columnIndex;
+        int mappedRow = symmetry.mapRow(rowIndex, columnIndex, height, width);
+        int mappedColumn = symmetry.mapColumn(rowIndex, columnIndex, height, width);
+        int mappedEndRow = symmetry.mapRow(endRowIndex, endColumnIndex, height, width);
+        int mappedEndColumn = symmetry.mapColumn(endRowIndex, endColumnIndex, height, width);
+        if (mappedRow == mappedEndRow) {
+            return lineIndex(mappedRow, Math.min(mappedColumn, mappedEndColumn), 'H');
+        }
+        return lineIndex(Math.min(mappedRow, mappedEndRow), mappedColumn, 'V');
+    }
+
+    public boolean isFull() {
+        return claimedLineCount == lineCount;
+    }
+
+    /**
+     * Checks whether every unfinished box has exactly two sides drawn. Nothing can then be
+     * captured and every move hands over boxes, and the undrawn lines split the remaining
+     * boxes into independent chains and loops, see {@link DotsAndBoxesEndgame}.
+     */
+    public boolean isSimpleEndgame() {
+        return unsettledBoxCount == 0 && !isFull();
+    }
+}
@@ -1,125 +1,659 @@
-import java.util.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Manages the state and logic of the Dots and Boxes game board.
  * This class tracks all drawn lines, box ownership, and player scores,
  * and provides the functionality to play the game and render the board.
+ * Line lookups and box completion checks are delegated to a {@link DotsAndBoxesBitboard},
+ * box ownership is kept in a flat byte array and line ownership only in the move log, so
+ * grids up to {@link Board#MAX_DIMENSION} dots wide stay within a few bytes per box and no
+ * {@link Piece} exists until {@link #getPiece} is asked for one.
+ * Every move is recorded in a compact log of one int per move, which supports undo and redo
+ * and is also what a binary snapshot stores. Moves can also be checked without exceptions and
+ * submitted in batches, see {@link #applyMoves}.
+ * Any number of players from two to {@link #MAX_PLAYERS} can share a board; each is known by its
+ * owner index, one more than its position in the turn order, and scores are kept in an array by owner index.
  */
 public class DotsAndBoxesBoard extends Board {
 
-    private final List<Piece> lines;
-    private final Player[][] boxOwners;
-    private final Player playerOne;
-    private final Player playerTwo;
-    private int playerOneScore;
-    private int playerTwoScore;
+    /** Owner index stored for a line or box nobody has claimed yet. */
+    public static final byte NO_OWNER = 0;
+    public static final byte PLAYER_ONE = 1;
+    public static final byte PLAYER_TWO = 2;
 
-    public DotsAndBoxesBoard(int width, int height, Player player1, Player player2) {
+    /** Owner indices are stored in bytes and in the low bits of each move log entry. */
+    public static final int MAX_PLAYERS = Byte.MAX_VALUE;
+
+    /** Identifies a Dots and Boxes snapshot ("DBOX"). */
+    private static final int SNAPSHOT_MAGIC = 0x44424F58;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /** A move log entry holds the line index above these bits and the owner index in them. */
+    private static final int MOVE_OWNER_BITS = 8;
+    private static final int MOVE_OWNER_MASK = (1 << MOVE_OWNER_BITS) - 1;
+
+    private final DotsAndBoxesBitboard bitboard;
+    /** Created when a canonical hash is first asked for, and kept up to date from then on. */
+    private SymmetryHash symmetryHash;
+    private final byte[] boxOwners;
+    /** The players in turn order; the player at position i owns lines and boxes as owner index i + 1. */
+    private final Player[] players;
+    private final char[] ownerInitials;
+    /** Each player's score by owner index. */
+    private final int[] scores;
+    /** The full rendered board, built on the first full render and patched by every move after that. */
+    private BoardRenderCache renderCache;
+    /** Moves played, followed by moves that were undone and can still be redone. */
+    private int[] moveLog = new int[16];
+    private int moveCount;
+    private int redoableMoveCount;
+
+    /**
+     * @param players The players in turn order; the first player moves first.
+     */
+    public DotsAndBoxesBoard(int width, int height, Player... players) {
         super(width, height);
-        if (width < 2 || height < 2 || width > 10 || height > 10) {
-            throw new IllegalArgumentException("Grid dimensions must be between 2 and 10.");
+        if (width < MIN_DIMENSION || height < MIN_DIMENSION || width > MAX_DIMENSION || height > MAX_DIMENSION) {
+            throw new IllegalArgumentException("Grid dimensions must be between " + MIN_DIMENSION + " and " + MAX_DIMENSION + ".");
+        }
+        if (players.length < 2 || players.length > MAX_PLAYERS) {
+            throw new IllegalArgumentException("A game needs between 2 and " + MAX_PLAYERS + " players.");
+        }
+        for (int playerIndex = 0; playerIndex < players.length; playerIndex++) {
+            if (players[playerIndex] == null) throw new IllegalArgumentException("Players cannot be null.");
+            for (int otherIndex = 0; otherIndex < playerIndex; otherIndex++) {
+                if (players[otherIndex].getId() == players[playerIndex].getId()) {
+                    throw new IllegalArgumentException("Each player can only take one seat.");
+                }
+            }
+        }
+
+        this.bitboard = new DotsAndBoxesBitboard(width, height);
+        this.boxOwners = new byte[bitboard.getBoxCount()];
+        this.players = players.clone();
+        this.ownerInitials = new char[players.length + 1];
+        this.ownerInitials[NO_OWNER] = ' ';
+        for (int playerIndex = 0; playerIndex < players.length; playerIndex++) {
+            ownerInitials[playerIndex + 1] = initialOf(players[playerIndex]);
+        }
+        this.scores = new int[players.length + 1];
+    }
+
+    private static char initialOf(Player player) {
+        return Character.toUpperCase(player.getName().charAt(0));
+    }
+
+    /**
+     * @throws IllegalArgumentException If the player is not playing on this board.
+     */
+    public int getScore(Player player) {
+        return scores[ownerIndexOf(player)];
+    }
+
+    /**
+     * Returns the score of the player at a position in the turn order.
+     */
+    public int getScore(int playerIndex) {
+        return scores[playerIndex + 1];
+    }
+
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    /**
+     * Returns the player at a position in the turn order.
+     */
+    public Player getPlayer(int playerIndex) {
+        return players[playerIndex];
+    }
+
+    /**
+     * Converts a line's grid coordinates into its {@link DotsAndBoxesBitboard} index.
+     * @return The line index, or -1 if the line does not exist on this grid.
+     */
+    public int lineIndex(int rowIndex, int columnIndex, char direction) {
+        return bitboard.lineIndex(rowIndex, columnIndex, direction);
+    }
+
+    /**
+     * Returns a player's position in the turn order, or -1 if the player is not playing on this board.
+     */
+    public int getPlayerIndex(Player player) {
+        int playerId = player.getId();
+        for (int playerIndex = 0; playerIndex < players.length; playerIndex++) {
+            if (players[playerIndex].getId() == playerId) return playerIndex;
         }
+        return -1;
+    }
+
+    public int drawLine(int rowIndex, int columnIndex, char direction, Player currentPlayer) {
+        return drawLine(bitboard.lineIndex(rowIndex, columnIndex, direction), currentPlayer);
+    }
 
-        this.lines = new ArrayList<>();
-        this.boxOwners = new Player[height - 1][width - 1];
-        this.playerOne = player1;
-        this.playerTwo = player2;
-        this.playerOneScore = 0;
-        this.playerTwoScore = 0;
+    /**
+     * Draws a line identified by its {@link DotsAndBoxesBitboard} index.
+     * @return The number of boxes the line completed.
+     * @throws IllegalArgumentException If the line does not exist or has already been drawn.
+     */
+    public int drawLine(int lineIndex, Player currentPlayer) {
+        int result = tryDrawLine(lineIndex, currentPlayer);
+        if (result < 0) throw new IllegalArgumentException(describeResult(result));
+        return result;
+    }
+
+    /**
+     * Draws a line if it can be drawn, reporting a line that cannot with a result code instead of an exception.
+     * @return The number of boxes the line completed, or {@link MoveResult#OUT_OF_BOUNDS} or {@link MoveResult#TAKEN}.
+     */
+    public int tryDrawLine(int lineIndex, Player currentPlayer) {
+        return tryDrawLine(lineIndex, ownerIndexOf(currentPlayer));
+    }
 
-        // Create all horizontal pieces
-        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
-            for (int columnIndex = 0; columnIndex < width - 1; columnIndex++) {
-                lines.add(new Piece(rowIndex, columnIndex, 'H'));
+    private int tryDrawLine(int lineIndex, byte ownerIndex) {
+        if (lineIndex < 0 || lineIndex >= bitboard.getLineCount()) return MoveResult.OUT_OF_BOUNDS;
+        if (bitboard.isClaimed(lineIndex)) return MoveResult.TAKEN;
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (moveCount == moveLog.length) moveLog = Arrays.copyOf(moveLog, moveLog.length * 2);
+        moveLog[moveCount++] = lineIndex << MOVE_OWNER_BITS | ownerIndex;
+        redoableMoveCount = 0;
+        int boxesCompleted = applyLine(lineIndex, ownerIndex);
+        if (Metrics.ENABLED) Metrics.DOTS_DRAW_LINE.recordSince(startNanos);
+        return boxesCompleted;
+    }
+
+    /**
+     * Returns the message a player is shown for a line that cannot be drawn.
+     */
+    public static String describeResult(int result) {
+        switch (result) {
+            case MoveResult.OUT_OF_BOUNDS:
+                return "Line out of bounds.";
+            case MoveResult.TAKEN:
+                return "Line already taken.";
+            default:
+                return MoveResult.describe(result);
+        }
+    }
+
+    /**
+     * Draws a batch of lines, each for whichever player's turn it is when the line is drawn, as
+     * replaying a recorded game would. Lines that cannot be drawn are reported in the results
+     * rather than by exceptions.
+     * @param lineIndices The lines to draw, as {@link DotsAndBoxesBitboard} indices.
+     * @param start The position of the first line of the batch in {@code lineIndices}.
+     * @param count How many lines the batch holds.
+     * @param results Receives each line's result code at the line's position, see {@link MoveResult}.
+     * @param allOrNothing If true, the first line that cannot be drawn takes back every line of the batch drawn
+     *                     before it and leaves the board, including the moves it could redo, as it was.
+     *                     Otherwise such lines are skipped and the rest are still drawn.
+     * @return How many lines were drawn.
+     */
+    public int applyMoves(int[] lineIndices, int start, int count, int[] results, boolean allOrNothing) {
+        checkBatch(lineIndices.length, start, count, results.length);
+        int[] redoableMoves = allOrNothing && redoableMoveCount > 0
+                ? Arrays.copyOfRange(moveLog, moveCount, moveCount + redoableMoveCount) : null;
+        byte ownerIndex = ownerIndexToMove();
+        int appliedCount = 0;
+        for (int position = start; position < start + count; position++) {
+            int result = tryDrawLine(lineIndices[position], ownerIndex);
+            results[position] = result;
+            if (result < 0) {
+                if (!allOrNothing) continue;
+                rollBack(appliedCount, redoableMoves);
+                Arrays.fill(results, start, start + count, MoveResult.NOT_APPLIED);
+                results[position] = result;
+                return 0;
             }
+            appliedCount++;
+            // A player who completes a box moves again
+            if (result == 0) ownerIndex = (byte) (ownerIndex % players.length + 1);
         }
+        return appliedCount;
+    }
+
+    public int applyMoves(int[] lineIndices, int[] results, boolean allOrNothing) {
+        return applyMoves(lineIndices, 0, lineIndices.length, results, allOrNothing);
+    }
 
-        // Create all vertical pieces
-        for (int rowIndex = 0; rowIndex < height - 1; rowIndex++) {
-            for (int columnIndex = 0; columnIndex < width; columnIndex++) {
-                lines.add(new Piece(rowIndex, columnIndex, 'V'));
+    /**
+     * Takes back the moves of a failed batch and restores the moves that could be redone before it.
+     */
+    private void rollBack(int appliedCount, int[] redoableMoves) {
+        for (int move = 0; move < appliedCount; move++) undoMove();
+        if (appliedCount == 0) return;
+        redoableMoveCount = redoableMoves == null ? 0 : redoableMoves.length;
+        if (redoableMoves != null) System.arraycopy(redoableMoves, 0, moveLog, moveCount, redoableMoves.length);
+    }
+
+    private int applyLine(int lineIndex, byte ownerIndex) {
+        int completedMask = bitboard.claim(lineIndex);
+        if (symmetryHash != null) symmetryHash.toggle(lineIndex);
+        if (renderCache != null) {
+            int rowIndex = bitboard.lineRow(lineIndex);
+            int columnIndex = bitboard.lineColumn(lineIndex);
+            if (bitboard.isHorizontal(lineIndex)) {
+                renderCache.write(dotRowOffset(rowIndex) + columnIndex * 4 + 1, "---");
+            } else {
+                renderCache.write(boxRowOffset(rowIndex) + columnIndex * 4, '|');
             }
         }
+        return checkForCompletedBoxes(lineIndex, completedMask, ownerIndex);
     }
 
-    public int getScore(Player player) {
-        return player.equals(playerOne) ? playerOneScore : playerTwoScore;
+    private byte ownerIndexOf(Player player) {
+        int playerIndex = getPlayerIndex(player);
+        if (playerIndex < 0) throw new IllegalArgumentException(player.getName() + " is not playing on this board.");
+        return (byte) (playerIndex + 1);
     }
 
-    public int drawLine(int rowIndex, int columnIndex, char direction, Player currentPlayer) {
-        Piece piece = findPiece(rowIndex, columnIndex, direction);
-        if (piece == null) throw new IllegalArgumentException("Line out of bounds.");
-        if (!piece.claim(currentPlayer)) throw new IllegalArgumentException("Line already taken.");
-        return checkForCompletedBoxes(currentPlayer);
+    /**
+     * Awards the boxes closed by the line that was just drawn.
+     * Only the one or two boxes adjacent to that line can have been completed.
+     */
+    private int checkForCompletedBoxes(int lineIndex, int completedMask, byte ownerIndex) {
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        int boxesCompleted = 0;
+        if ((completedMask & 1) != 0) {
+            claimBox(bitboard.firstAdjacentBox(lineIndex), ownerIndex);
+            boxesCompleted++;
+        }
+        if ((completedMask & 2) != 0) {
+            claimBox(bitboard.secondAdjacentBox(lineIndex), ownerIndex);
+            boxesCompleted++;
+        }
+        if (Metrics.ENABLED) Metrics.DOTS_CHECK_COMPLETED_BOXES.recordSince(startNanos);
+        return boxesCompleted;
     }
 
-    private Piece findPiece(int rowIndex, int columnIndex, char direction) {
-        for (Piece piece : lines) {
-            if (piece.getRow() == rowIndex && piece.getCol() == columnIndex && piece.getDirection() == direction) {
-                return piece;
+    private void claimBox(int boxIndex, byte ownerIndex) {
+        boxOwners[boxIndex] = ownerIndex;
+        scores[ownerIndex]++;
+        if (renderCache != null) {
+            int rowIndex = boxIndex / (width - 1);
+            int columnIndex = boxIndex % (width - 1);
+            renderCache.write(boxRowOffset(rowIndex) + columnIndex * 4 + 2, ownerInitials[ownerIndex]);
+        }
+    }
+
+    /**
+     * Takes back the most recent move, including any boxes it completed.
+     * @return The player who made the move, or null if there is nothing to undo.
+     */
+    public Player undoMove() {
+        if (moveCount == 0) return null;
+        int move = moveLog[--moveCount];
+        redoableMoveCount++;
+        int lineIndex = move >>> MOVE_OWNER_BITS;
+        byte ownerIndex = (byte) (move & MOVE_OWNER_MASK);
+
+        // Any adjacent box that is full now was completed by this line
+        unclaimBoxIfFull(bitboard.firstAdjacentBox(lineIndex), ownerIndex);
+        unclaimBoxIfFull(bitboard.secondAdjacentBox(lineIndex), ownerIndex);
+        bitboard.unclaim(lineIndex);
+        if (symmetryHash != null) symmetryHash.toggle(lineIndex);
+        if (renderCache != null) {
+            int rowIndex = bitboard.lineRow(lineIndex);
+            int columnIndex = bitboard.lineColumn(lineIndex);
+            if (bitboard.isHorizontal(lineIndex)) {
+                renderCache.write(dotRowOffset(rowIndex) + columnIndex * 4 + 1, "   ");
+            } else {
+                renderCache.write(boxRowOffset(rowIndex) + columnIndex * 4, ' ');
             }
         }
+        return playerOf(ownerIndex);
+    }
+
+    private void unclaimBoxIfFull(int boxIndex, byte ownerIndex) {
+        if (boxIndex < 0 || bitboard.getEdgeCount(boxIndex) != 4) return;
+        boxOwners[boxIndex] = NO_OWNER;
+        scores[ownerIndex]--;
+        if (renderCache != null) {
+            int rowIndex = boxIndex / (width - 1);
+            int columnIndex = boxIndex % (width - 1);
+            renderCache.write(boxRowOffset(rowIndex) + columnIndex * 4 + 2, ' ');
+        }
+    }
+
+    /**
+     * Plays the most recently undone move again. Drawing a new line discards the moves that could be redone.
+     * @return The player who made the move, or null if there is nothing to redo.
+     */
+    public Player redoMove() {
+        if (redoableMoveCount == 0) return null;
+        int move = moveLog[moveCount++];
+        redoableMoveCount--;
+        byte ownerIndex = (byte) (move & MOVE_OWNER_MASK);
+        applyLine(move >>> MOVE_OWNER_BITS, ownerIndex);
+        return playerOf(ownerIndex);
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getRedoableMoveCount() {
+        return redoableMoveCount;
+    }
+
+    /**
+     * Returns the index of the line drawn by the most recent move, or -1 if no line has been drawn.
+     */
+    public int getLastLineIndex() {
+        return moveCount == 0 ? -1 : moveLog[moveCount - 1] >>> MOVE_OWNER_BITS;
+    }
+
+    /**
+     * Works out whose turn it is from the move log: a player who completes a box moves again,
+     * otherwise the turn passes to the next player in turn order.
+     */
+    public Player getPlayerToMove() {
+        return playerOf(ownerIndexToMove());
+    }
+
+    private byte ownerIndexToMove() {
+        if (moveCount == 0) return PLAYER_ONE;
+        int move = moveLog[moveCount - 1];
+        int lineIndex = move >>> MOVE_OWNER_BITS;
+        byte ownerIndex = (byte) (move & MOVE_OWNER_MASK);
+        boolean completedBox = isFullBox(bitboard.firstAdjacentBox(lineIndex)) || isFullBox(bitboard.secondAdjacentBox(lineIndex));
+        if (completedBox) return ownerIndex;
+        return (byte) (ownerIndex % players.length + 1);
+    }
+
+    private boolean isFullBox(int boxIndex) {
+        return boxIndex >= 0 && bitboard.getEdgeCount(boxIndex) == 4;
+    }
+
+    private Player playerOf(byte ownerIndex) {
+        return players[ownerIndex - 1];
+    }
+
+    /**
+     * Writes the board to a channel as a binary snapshot: a small header followed by the move log,
+     * including moves that can still be redone. The players are not stored; they are supplied again, in the
+     * same turn order, on reading.
+     */
+    public void writeSnapshot(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_BYTES);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION)
+                .putInt(width).putInt(height).putInt(moveCount).putInt(redoableMoveCount);
+        for (int moveIndex = 0; moveIndex < moveCount + redoableMoveCount; moveIndex++) {
+            if (buffer.remaining() < Integer.BYTES) flushSnapshotBuffer(buffer, channel);
+            buffer.putInt(moveLog[moveIndex]);
+        }
+        flushSnapshotBuffer(buffer, channel);
+    }
+
+    /**
+     * Reads a board written by {@link #writeSnapshot}, replaying its moves.
+     * @throws IOException If the channel fails or does not hold a valid snapshot.
+     */
+    public static DotsAndBoxesBoard readSnapshot(ReadableByteChannel channel, Player... players) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_BYTES);
+        buffer.flip();
+        requireSnapshotBytes(buffer, channel, 6 * Integer.BYTES);
+        if (buffer.getInt() != SNAPSHOT_MAGIC) throw new IOException("Not a Dots and Boxes snapshot.");
+        if (buffer.getInt() != SNAPSHOT_VERSION) throw new IOException("Unsupported Dots and Boxes snapshot version.");
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int moveCount = buffer.getInt();
+        int redoableMoveCount = buffer.getInt();
+
+        DotsAndBoxesBoard board;
+        try {
+            board = new DotsAndBoxesBoard(width, height, players);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt snapshot: " + exception.getMessage(), exception);
+        }
+        int totalMoves = moveCount + redoableMoveCount;
+        if (moveCount < 0 || redoableMoveCount < 0 || totalMoves > board.getLineCount() || totalMoves < 0) {
+            throw new IOException("Corrupt snapshot: bad move count.");
+        }
+        for (int moveIndex = 0; moveIndex < totalMoves; moveIndex++) {
+            requireSnapshotBytes(buffer, channel, Integer.BYTES);
+            int move = buffer.getInt();
+            int lineIndex = move >>> MOVE_OWNER_BITS;
+            int ownerIndex = move & MOVE_OWNER_MASK;
+            if (ownerIndex < 1 || ownerIndex > players.length) throw new IOException("Corrupt snapshot: bad owner.");
+            try {
+                board.drawLine(lineIndex, board.playerOf((byte) ownerIndex));
+            } catch (IllegalArgumentException exception) {
+                throw new IOException("Corrupt snapshot: " + exception.getMessage(), exception);
+            }
+        }
+        for (int undo = 0; undo < redoableMoveCount; undo++) {
+            board.undoMove();
+        }
+        return board;
+    }
+
+    /**
+     * Finds where a row of dots starts in the full rendering. A row of dots takes
+     * 4 * width - 2 characters and a row of boxes 4 * width - 1, counting the newlines.
+     */
+    private int dotRowOffset(int rowIndex) {
+        return rowIndex * (8 * width - 3);
+    }
+
+    private int boxRowOffset(int rowIndex) {
+        return dotRowOffset(rowIndex) + 4 * width - 2;
+    }
+
+    public int getLineCount() {
+        return bitboard.getLineCount();
+    }
+
+    public boolean isLineDrawn(int lineIndex) {
+        return bitboard.isClaimed(lineIndex);
+    }
+
+    /**
+     * Checks whether drawing a line would complete at least one box.
+     */
+    public boolean completesBox(int lineIndex) {
+        return adjacentEdgeCountIs(lineIndex, 3);
+    }
+
+    /**
+     * Checks whether drawing a line would leave a box with three sides for the next player to take.
+     */
+    public boolean givesAwayBox(int lineIndex) {
+        return adjacentEdgeCountIs(lineIndex, 2);
+    }
+
+    private boolean adjacentEdgeCountIs(int lineIndex, int edgeCount) {
+        int firstBox = bitboard.firstAdjacentBox(lineIndex);
+        int secondBox = bitboard.secondAdjacentBox(lineIndex);
+        return (firstBox >= 0 && bitboard.getEdgeCount(firstBox) == edgeCount)
+                || (secondBox >= 0 && bitboard.getEdgeCount(secondBox) == edgeCount);
+    }
+
+    /**
+     * Returns the player who drew a line, found in the move log. The board stores no owner per line,
+     * trading memory for time: each call scans the log back from the latest move and costs O(moves),
+     * so reading every line's owner this way costs O(lines &times; moves).
+     * @return The owner, or null if the line has not been drawn.
+     */
+    public Player getLineOwner(int lineIndex) {
+        if (!bitboard.isClaimed(lineIndex)) return null;
+        for (int moveIndex = moveCount - 1; moveIndex >= 0; moveIndex--) {
+            int move = moveLog[moveIndex];
+            if (move >>> MOVE_OWNER_BITS == lineIndex) return playerOf((byte) (move & MOVE_OWNER_MASK));
+        }
         return null;
     }
 
-    private int checkForCompletedBoxes(Player currentPlayer) {
-        int boxesCompleted = 0;
-        // Here, we iterate over the grid of potential boxes
-        for (int boxRowIndex = 0; boxRowIndex < height - 1; boxRowIndex++) {
-            for (int boxColumnIndex = 0; boxColumnIndex < width - 1; boxColumnIndex++) {
-                if (boxOwners[boxRowIndex][boxColumnIndex] == null &&
-                        isClaimed(boxRowIndex, boxColumnIndex, 'H') &&        // Top line
-                        isClaimed(boxRowIndex + 1, boxColumnIndex, 'H') &&  // Bottom line
-                        isClaimed(boxRowIndex, boxColumnIndex, 'V') &&        // Left line
-                        isClaimed(boxRowIndex, boxColumnIndex + 1, 'V')) {  // Right line
-                    boxOwners[boxRowIndex][boxColumnIndex] = currentPlayer;
-                    if (currentPlayer.equals(playerOne)) playerOneScore++;
-                    else playerTwoScore++;
-                    boxesCompleted++;
-                }
+    /**
+     * Describes a line as a {@link Piece}. The board keeps no pieces; each call makes a new one
+     * from the line bits and the move log, and it does not follow later moves. Finding the owner
+     * scans the move log as {@link #getLineOwner} does, so a piece costs O(moves) and a piece for
+     * every line O(lines &times; moves).
+     * @throws IllegalArgumentException If the line does not exist on this grid.
+     */
+    public Piece getPiece(int lineIndex) {
+        if (lineIndex < 0 || lineIndex >= bitboard.getLineCount()) {
+            throw new IllegalArgumentException(describeResult(MoveResult.OUT_OF_BOUNDS));
+        }
+        return new Piece(bitboard.lineRow(lineIndex), bitboard.lineColumn(lineIndex), bitboard.lineDirection(lineIndex),
+                getLineOwner(lineIndex));
+    }
+
+    public Piece getPiece(int rowIndex, int columnIndex, char direction) {
+        return getPiece(bitboard.lineIndex(rowIndex, columnIndex, direction));
+    }
+
+    public int getLineRow(int lineIndex) {
+        return bitboard.lineRow(lineIndex);
+    }
+
+    public int getLineColumn(int lineIndex) {
+        return bitboard.lineColumn(lineIndex);
+    }
+
+    /**
+     * Formats a line the way players type it, for example "0 0 H".
+     */
+    public String describeLine(int lineIndex) {
+        return bitboard.lineRow(lineIndex) + " " + bitboard.lineColumn(lineIndex) + " " + bitboard.lineDirection(lineIndex);
+    }
+
+    /**
+     * Returns a hash of the drawn lines that is the same for every rotation and reflection
+     * of the grid: eight of them on a square grid, four on a rectangle.
+     */
+    public long getCanonicalHash() {
+        return symmetryHash().canonicalHash();
+    }
+
+    /**
+     * Returns a symmetry that carries this position onto the one {@link #getCanonicalHash()} describes.
+     */
+    public BoardSymmetry getCanonicalSymmetry() {
+        return symmetryHash().canonicalSymmetry();
+    }
+
+    /**
+     * Returns the symmetry hash, building it from the drawn lines the first time. Boards that are
+     * never asked for a canonical hash, such as those of games being played or replayed, skip the
+     * upkeep of a hash per symmetry on every move.
+     */
+    private SymmetryHash symmetryHash() {
+        if (symmetryHash == null) {
+            symmetryHash = new SymmetryHash(BoardSymmetry.of(width, height),
+                    (symmetry, lineIndex) -> bitboard.mapLine(symmetry, (int) lineIndex));
+            for (int moveIndex = 0; moveIndex < moveCount; moveIndex++) {
+                symmetryHash.toggle(moveLog[moveIndex] >>> MOVE_OWNER_BITS);
             }
         }
-        return boxesCompleted;
+        return symmetryHash;
+    }
+
+    /**
+     * Returns a copy of the drawn lines, for search code that needs to make and unmake moves.
+     */
+    public DotsAndBoxesBitboard copyBitboard() {
+        return new DotsAndBoxesBitboard(bitboard);
     }
 
     private boolean isClaimed(int rowIndex, int columnIndex, char direction) {
-        Piece piece = findPiece(rowIndex, columnIndex, direction);
-        return piece != null && piece.isClaimed();
+        return bitboard.isClaimed(rowIndex, columnIndex, direction);
     }
 
     @Override
     public boolean isGameOver() {
-        return lines.stream().allMatch(Piece::isClaimed);
+        return bitboard.isFull();
     }
 
+    /**
+     * Estimates the heap used by this board's state: the line bits, the per-box
+     * edge counters, the box owner bytes and the move log. Apart from the move log,
+     * which grows by four bytes per move, this works out to roughly 2.3 bytes per
+     * box on large grids; a new 10x10 board measures 552 bytes in all.
+     */
+    @Override
+    public long estimateMemoryBytes() {
+        long lineBitBytes = ((bitboard.getLineCount() + 63L) >>> 6) * 8;
+        return ARRAY_HEADER_BYTES * 6 + lineBitBytes + bitboard.getBoxCount() * 2L
+                + moveLog.length * 4L + scores.length * 4L + ownerInitials.length * 2L;
+    }
+
+    /**
+     * Renders the whole board. The first call builds the text once; later moves patch
+     * only the characters they change, so repeated renders cost a single copy.
+     */
     @Override
     public String getBoardAsString() {
-        StringBuilder boardString = new StringBuilder();
-        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
-            for (int columnIndex = 0; columnIndex < width; columnIndex++) {
-                boardString.append("●");
-                if (columnIndex < width - 1) {
+        if (!Metrics.ENABLED) return getRenderCache().render();
+        long startNanos = System.nanoTime();
+        String frame = getRenderCache().render();
+        Metrics.DOTS_RENDER.recordSince(startNanos);
+        return frame;
+    }
+
+    /**
+     * Returns the characters of the full rendering that changed since the last call to this
+     * method or {@link #getBoardAsString()}, for clients that keep their own copy of the frame.
+     * The first call returns the full frame as a single patch.
+     */
+    public List<BoardRenderCache.Patch> getBoardChanges() {
+        if (renderCache == null) {
+            return Collections.singletonList(new BoardRenderCache.Patch(0, getBoardAsString()));
+        }
+        return renderCache.drainChanges();
+    }
+
+    private BoardRenderCache getRenderCache() {
+        if (renderCache == null) {
+            renderCache = new BoardRenderCache(getBoardAsString(0, 0, height, width));
+        }
+        return renderCache;
+    }
+
+    /**
+     * Renders a rectangular window of the board, which keeps output readable on large grids.
+     * The window is clipped to the board's edges.
+     * @param firstRowIndex The first row of dots to show.
+     * @param firstColumnIndex The first column of dots to show.
+     * @param rowCount How many rows of dots to show.
+     * @param columnCount How many columns of dots to show.
+     */
+    public String getBoardAsString(int firstRowIndex, int firstColumnIndex, int rowCount, int columnCount) {
+        int startRow = Math.max(0, firstRowIndex);
+        int startColumn = Math.max(0, firstColumnIndex);
+        int endRow = Math.min(height, startRow + rowCount);
+        int endColumn = Math.min(width, startColumn + columnCount);
+        int visibleColumns = Math.max(0, endColumn - startColumn);
+        int visibleRows = Math.max(0, endRow - startRow);
+
+        StringBuilder boardString = new StringBuilder(visibleRows * (visibleColumns * 8));
+        for (int rowIndex = startRow; rowIndex < endRow; rowIndex++) {
+            for (int columnIndex = startColumn; columnIndex < endColumn; columnIndex++) {
+                boardString.append('●');
+                if (columnIndex < endColumn - 1) {
                     boardString.append(isClaimed(rowIndex, columnIndex, 'H') ? "---" : "   ");
                 }
             }
-            boardString.append("\n");
+            boardString.append('\n');
 
-            if (rowIndex < height - 1) {
-                for (int columnIndex = 0; columnIndex < width; columnIndex++) {
+            if (rowIndex < height - 1 && rowIndex < endRow - 1) {
+                for (int columnIndex = startColumn; columnIndex < endColumn; columnIndex++) {
                     boardString.append(isClaimed(rowIndex, columnIndex, 'V') ? "| " : "  ");
 
-                    if (columnIndex < width - 1) {
-                        Player owner = boxOwners[rowIndex][columnIndex];
-                        if (owner != null) {
-                            boardString.append(owner.getName().substring(0, 1).toUpperCase()).append(" ");
-                        } else {
-                            boardString.append("  ");
-                        }
+                    if (columnIndex < endColumn - 1) {
+                        byte owner = boxOwners[rowIndex * (width - 1) + columnIndex];
+                        boardString.append(ownerInitials[owner]).append(' ');
                     }
                 }
-                boardString.append("\n");
+                boardString.append('\n');
             }
         }
         return boardString.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+/**
+ * Solves Dots and Boxes endgames exactly once the board has reached a simple endgame, where every
+ * unfinished box has exactly two sides drawn (see {@link DotsAndBoxesBitboard#isSimpleEndgame()}).
+ * The undrawn lines then split the boxes into independent chains, which end at the border, and
+ * loops. The player to move must open one of them; the opponent either takes every box, or takes all
+ * but the last two of a chain (four of a loop) and hands those back to keep control. The value of a
+ * position only depends on the multiset of chain and loop lengths, so values are cached in an
+ * {@link EndgameDatabase} under a hash of the sorted component list, which is the same for every
+ * board that decomposes the same way, whatever its size, orientation or layout.
+ */
+public class DotsAndBoxesEndgame {
+    private final EndgameDatabase database;
+
+    private boolean[] visited = new boolean[0];
+    private int[] componentCodes = new int[0];
+    private int[] componentOpeningLines = new int[0];
+    private int componentCount;
+
+    /**
+     * @param database Where solved values are cached; it may be shared between analyzers.
+     */
+    public DotsAndBoxesEndgame(EndgameDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Returns the best difference in future boxes the player to move can force.
+     * @throws IllegalArgumentException If the position is not a simple endgame.
+     */
+    public int evaluate(DotsAndBoxesBitboard bitboard) {
+        decompose(bitboard);
+        int[] sortedCodes = Arrays.copyOf(componentCodes, componentCount);
+        Arrays.sort(sortedCodes);
+        return solve(sortedCodes);
+    }
+
+    /**
+     * Chooses the line that opens the component with the best outcome for the player to move.
+     * Long chains are opened at an end, two-box chains in the middle so that the opponent cannot
+     * hand them back, and loops anywhere.
+     * @throws IllegalArgumentException If the position is not a simple endgame.
+     */
+    public int chooseLine(DotsAndBoxesBitboard bitboard) {
+        decompose(bitboard);
+        int count = componentCount;
+        int[] codes = Arrays.copyOf(componentCodes, count);
+        int[] openingLines = Arrays.copyOf(componentOpeningLines, count);
+        int bestValue = Integer.MIN_VALUE;
+        int bestLine = openingLines[0];
+        int[] remaining = new int[count - 1];
+        for (int chosen = 0; chosen < count; chosen++) {
+            int remainingCount = 0;
+            for (int other = 0; other < count; other++) {
+                if (other != chosen) remaining[remainingCount++] = codes[other];
+            }
+            int[] sortedRemaining = remaining.clone();
+            Arrays.sort(sortedRemaining);
+            int value = valueOfOpening(codes[chosen], solve(sortedRemaining));
+            if (value > bestValue) {
+                bestValue = value;
+                bestLine = openingLines[chosen];
+            }
+        }
+        return bestLine;
+    }
+
+    /**
+     * Describes a component as an int: twice its length for a chain, plus one for a loop.
+     */
+    private static int chainCode(int length) {
+        return length * 2;
+    }
+
+    private static int loopCode(int length) {
+        return length * 2 + 1;
+    }
+
+    /**
+     * Scores opening one component for the player who opens it.
+     * @param restValue The value of the remaining components for whoever has to move in them.
+     */
+    private static int valueOfOpening(int code, int restValue) {
+        int length = code >>> 1;
+        int takeAll = -(length + restValue);
+        if ((code & 1) == 0) {
+            // Chains of one or two boxes can be opened so that they cannot be handed back
+            if (length <= 2) return takeAll;
+            return Math.min(takeAll, restValue + 4 - length);
+        }
+        return Math.min(takeAll, restValue + 8 - length);
+    }
+
+    /**
+     * Finds the value of a sorted multiset of components for the player who must open one of them.
+     */
+    private int solve(int[] sortedCodes) {
+        if (sortedCodes.length == 0) return 0;
+        long key = keyOf(sortedCodes);
+        int cached = database.get(key);
+        if (cached != EndgameDatabase.MISSING) return cached;
+
+        int bestValue = Integer.MIN_VALUE;
+        int[] remaining = new int[sortedCodes.length - 1];
+        for (int chosen = 0; chosen < sortedCodes.length; chosen++) {
+            // Opening either of two equal components leads to the same position
+            if (chosen > 0 && sortedCodes[chosen] == sortedCodes[chosen - 1]) continue;
+            System.arraycopy(sortedCodes, 0, remaining, 0, chosen);
+            System.arraycopy(sortedCodes, chosen + 1, remaining, chosen, sortedCodes.length - chosen - 1);
+            int value = valueOfOpening(sortedCodes[chosen], solve(remaining.clone()));
+            bestValue = Math.max(bestValue, value);
+        }
+        database.put(key, bestValue);
+        return bestValue;
+    }
+
+    private static long keyOf(int[] sortedCodes) {
+        long key = sortedCodes.length;
+        for (int code : sortedCodes) {
+            key = key * 0x9E3779B97F4A7C15L + code;
+            key ^= key >>> 29;
+        }
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    /**
+     * Splits the unfinished boxes into chains and loops by following undrawn lines from box to box.
+     */
+    private void decompose(DotsAndBoxesBitboard bitboard) {
+        if (!bitboard.isSimpleEndgame()) throw new IllegalArgumentException("The position is not a simple endgame.");
+        int boxCount = bitboard.getBoxCount();
+        if (visited.length != boxCount) {
+            visited = new boolean[boxCount];
+            componentCodes = new int[boxCount];
+            componentOpeningLines = new int[boxCount];
+        } else {
+            Arrays.fill(visited, false);
+        }
+        componentCount = 0;
+        for (int box = 0; box < boxCount; box++) {
+            if (visited[box] || bitboard.getEdgeCount(box) == 4) continue;
+            followComponent(bitboard, box);
+        }
+    }
+
+    private void followComponent(DotsAndBoxesBitboard bitboard, int startBox) {
+        visited[startBox] = true;
+        int firstLine = undrawnLine(bitboard, startBox, -1);
+        int secondLine = undrawnLine(bitboard, startBox, firstLine);
+        int length = 1;
+        int borderLine = -1;
+        int innerLine = -1;
+
+        for (int direction = 0; direction < 2; direction++) {
+            int box = startBox;
+            int line = direction == 0 ? firstLine : secondLine;
+            while (true) {
+                int nextBox = otherBox(bitboard, line, box);
+                if (nextBox < 0) {
+                    borderLine = line;
+                    break;
+                }
+                if (nextBox == startBox) {
+                    componentCodes[componentCount] = loopCode(length);
+                    componentOpeningLines[componentCount++] = firstLine;
+                    return;
+                }
+                visited[nextBox] = true;
+                length++;
+                innerLine = line;
+                line = undrawnLine(bitboard, nextBox, line);
+                box = nextBox;
+            }
+        }
+        componentCodes[componentCount] = chainCode(length);
+        componentOpeningLines[componentCount++] = length == 2 ? innerLine : length == 1 ? firstLine : borderLine;
+    }
+
+    private static int undrawnLine(DotsAndBoxesBitboard bitboard, int box, int excludedLine) {
+        for (int side = 0; side < 4; side++) {
+            int line = bitboard.boxLine(box, side);
+            if (line != excludedLine && !bitboard.isClaimed(line)) return line;
+        }
+        throw new IllegalStateException("Box " + box + " has no undrawn side.");
+    }
+
+    private static int otherBox(DotsAndBoxesBitboard bitboard, int line, int box) {
+        int firstBox = bitboard.firstAdjacentBox(line);
+        return firstBox == box ? bitboard.secondAdjacentBox(line) : firstBox;
+    }
+}
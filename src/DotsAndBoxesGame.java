@@ -1,117 +1,237 @@
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 /**
  * Orchestrates the gameplay for the Dots and Boxes game.
  * This class handles player setup, board initialization, the main game loop,
  * processing user input, and determining the winner.
+ * Any number of players from two up can take part; they move in turn order around a ring,
+ * and the computer, if asked for, takes the last seat.
  */
 public class DotsAndBoxesGame extends Game {
 
+    /**
+     * Grids larger than this many dots in either direction are shown as a window around the last move.
+     */
+    private static final int VIEWPORT_SIZE = 20;
+
+    /**
+     * How long the computer opponent may think about each move.
+     */
+    private static final long COMPUTER_TIME_BUDGET_MILLIS = 900;
+
+    /**
+     * On grids with more dots than this the computer plays greedily instead of searching,
+     * since a search that scans every line per node would not get past its first ply.
+     */
+    private static final int COMPUTER_SEARCH_MAX_DOTS = VIEWPORT_SIZE * VIEWPORT_SIZE;
+
+    private final int playerCount;
     private DotsAndBoxesBoard board;
-    private Player playerOne;
-    private Player playerTwo;
-    private Player currentPlayer;
+    /** The players in turn order. */
+    private Player[] players;
+    private int currentPlayerIndex;
+    private DotsAndBoxesPolicy computerOpponent;
+    private final Random computerRandom = new Random();
+    /** The seat the computer plays in, or -1 if every player is human. */
+    private int computerPlayerIndex = -1;
     private int gridWidth;
     private int gridHeight;
+    private int lastMoveRowIndex;
+    private int lastMoveColumnIndex;
+    private long historyGameId;
 
     public DotsAndBoxesGame() {
+        this(2);
+    }
+
+    /**
+     * @param playerCount How many players take part, at least 2.
+     */
+    public DotsAndBoxesGame(int playerCount) {
+        if (playerCount < 2 || playerCount > DotsAndBoxesBoard.MAX_PLAYERS) {
+            throw new IllegalArgumentException("A game needs between 2 and " + DotsAndBoxesBoard.MAX_PLAYERS + " players.");
+        }
+        this.playerCount = playerCount;
     }
 
     @Override
-    protected String getGameInfo(Scanner scanner) {
-        System.out.println("\n--- Setting up Dots and Boxes ---");
-        System.out.print("Enter name for Player 1: ");
-        this.playerOne = new Player(scanner.nextLine());
+    protected String getGameInfo(GameInput input) {
+        events.message("\n--- Setting up Dots and Boxes ---");
+        this.players = new Player[playerCount];
+        events.prompt("Enter name for Player 1: ");
+        String name = input.nextLine();
+        if (name == null) return null;
+        this.players[0] = playerNamed(name, 0);
 
-        System.out.print("Enter name for Player 2: ");
-        this.playerTwo = new Player(scanner.nextLine());
+        events.prompt("Play against the computer? (y/n): ");
+        String answer = input.nextLine();
+        if (answer == null) return null;
+        if (answer.trim().equalsIgnoreCase("y")) {
+            this.computerPlayerIndex = playerCount - 1;
+            this.players[computerPlayerIndex] = playerNamed("Computer", computerPlayerIndex);
+        }
+        for (int playerIndex = 1; playerIndex < playerCount; playerIndex++) {
+            if (playerIndex == computerPlayerIndex) continue;
+            events.prompt("Enter name for Player " + (playerIndex + 1) + ": ");
+            name = input.nextLine();
+            if (name == null) return null;
+            this.players[playerIndex] = playerNamed(name, playerIndex);
+        }
 
-        System.out.println("Enter the dimensions of the dot grid.");
+        events.message("Enter the dimensions of the dot grid.");
         while (true) {
-            System.out.print("Enter grid width and height (e.g., '4 3'): ");
+            events.prompt("Enter grid width and height (e.g., '4 3'): ");
+            String dimensions = input.nextLine();
+            if (dimensions == null) return null;
             try {
-                String[] dimensionParts = scanner.nextLine().split(" ");
+                String[] dimensionParts = dimensions.split(" ");
                 if (dimensionParts.length != 2) {
-                    System.out.println("Invalid format. Please enter two numbers separated by a space.");
+                    events.message("Invalid format. Please enter two numbers separated by a space.");
                     continue;
                 }
 
                 int desiredWidth = Integer.parseInt(dimensionParts[0]);
                 int desiredHeight = Integer.parseInt(dimensionParts[1]);
 
-                if (desiredWidth >= 1 && desiredWidth <= 10 && desiredHeight >= 1 && desiredHeight <= 10) {
+                if (desiredWidth >= Board.MIN_DIMENSION && desiredWidth <= Board.MAX_DIMENSION
+                        && desiredHeight >= Board.MIN_DIMENSION && desiredHeight <= Board.MAX_DIMENSION) {
                     this.gridWidth = desiredWidth;
                     this.gridHeight = desiredHeight;
                     break; // Exit the loop if input is valid
                 } else {
-                    System.out.println("Invalid dimensions. Both width and height must be between 1 and 10.");
+                    events.message("Invalid dimensions. Both width and height must be between "
+                            + Board.MIN_DIMENSION + " and " + Board.MAX_DIMENSION + ".");
                 }
             } catch (NumberFormatException exception) {
-                System.out.println("Invalid input. Please enter numbers only.");
+                events.message("Invalid input. Please enter numbers only.");
             }
         }
 
         return "Players and board dimensions are set.";
     }
 
+    /**
+     * Players may share a name, but each needs a seat of their own on the board.
+     */
+    private Player playerNamed(String name, int seatedCount) {
+        Player player = PlayerRegistry.getDefault().intern(name);
+        for (int playerIndex = 0; playerIndex < seatedCount; playerIndex++) {
+            if (players[playerIndex] == player) return new Player(name);
+        }
+        return player;
+    }
+
     @Override
     protected void initializeBoard() {
-        this.board = new DotsAndBoxesBoard(this.gridWidth, this.gridHeight, playerOne, playerTwo);
-        this.currentPlayer = playerOne;
-        System.out.println("A " + (gridWidth) + "x" + (gridHeight) + " dot grid has been created. Let's play!");
+        this.board = new DotsAndBoxesBoard(this.gridWidth, this.gridHeight, players);
+        this.currentPlayerIndex = 0;
+        if (computerPlayerIndex >= 0) {
+            // The alpha-beta search assumes two players; tree search handles any number
+            if (gridWidth * gridHeight > COMPUTER_SEARCH_MAX_DOTS) {
+                this.computerOpponent = DotsAndBoxesPolicy.greedy();
+            } else if (playerCount > 2) {
+                this.computerOpponent = DotsAndBoxesPolicy.mcts(COMPUTER_TIME_BUDGET_MILLIS);
+            } else {
+                this.computerOpponent = DotsAndBoxesPolicy.computer(COMPUTER_TIME_BUDGET_MILLIS);
+            }
+        }
+        events.message("A " + (gridWidth) + "x" + (gridHeight) + " dot grid has been created. Let's play!");
     }
 
     @Override
-    protected void runGame(Scanner scanner) {
+    protected void runGame(GameInput input) {
+        String[] playerNames = new String[playerCount];
+        for (int playerIndex = 0; playerIndex < playerCount; playerIndex++) {
+            playerNames[playerIndex] = players[playerIndex].getName();
+        }
+        recordHistory(() -> historyGameId = history.startGame(GameHistoryLog.DOTS_AND_BOXES, gridWidth, gridHeight, playerNames));
         while (!isGameOver()) {
             printBoard();
-            System.out.println("\nIt's " + currentPlayer.getName() + "'s turn.");
-            System.out.print("Enter move (e.g., '0 0 H' or 'quit'): ");
-            String userInput = scanner.nextLine();
+            Player currentPlayer = players[currentPlayerIndex];
+            events.message("\nIt's " + currentPlayer.getName() + "'s turn.");
+            if (currentPlayerIndex == computerPlayerIndex) {
+                playComputerMove();
+                continue;
+            }
+            events.prompt("Enter move (e.g., '0 0 H', 'undo', 'redo' or 'quit'): ");
+            String userInput = input.nextLine();
 
-            if (userInput.equalsIgnoreCase("quit")) {
+            if (userInput == null || userInput.equalsIgnoreCase("quit")) {
+                recordResult(GameHistoryLog.ABANDONED);
                 quitToMainMenu();
                 return;
             }
 
+            if (userInput.equalsIgnoreCase("undo")) {
+                undoMove();
+                continue;
+            }
+
+            if (userInput.equalsIgnoreCase("redo")) {
+                redoMove();
+                continue;
+            }
+
+            int rowIndex;
+            int columnIndex;
+            char direction;
             try {
                 String[] moveParts = userInput.split(" ");
                 if (moveParts.length != 3) throw new IllegalArgumentException("Input must have 3 parts.");
 
-                int rowIndex = Integer.parseInt(moveParts[0]);
-                int columnIndex = Integer.parseInt(moveParts[1]);
-                char direction = moveParts[2].toUpperCase().charAt(0);
+                rowIndex = Integer.parseInt(moveParts[0]);
+                columnIndex = Integer.parseInt(moveParts[1]);
+                direction = moveParts[2].toUpperCase().charAt(0);
 
                 if (direction != 'H' && direction != 'V') {
                     throw new IllegalArgumentException("Direction must be 'H' or 'V'.");
                 }
-
-                int boxesCompleted = board.drawLine(rowIndex, columnIndex, direction, currentPlayer);
-                if (boxesCompleted == 0) {
-                    switchPlayer();
-                } else {
-                    System.out.println("You completed " + boxesCompleted + " box(es)! Go again.");
-                }
             } catch (Exception exception) {
-                System.out.println("Invalid move! " + exception.getMessage() + " Please try again.");
+                events.message("Invalid move! " + exception.getMessage() + " Please try again.");
+                continue;
+            }
+
+            // Lines that are off the grid or already drawn are common, so they are reported without an exception
+            int boxesCompleted = board.tryDrawLine(board.lineIndex(rowIndex, columnIndex, direction), currentPlayer);
+            if (boxesCompleted < 0) {
+                events.message("Invalid move! " + DotsAndBoxesBoard.describeResult(boxesCompleted) + " Please try again.");
+                continue;
+            }
+            recordMove(board.getLastLineIndex(), boxesCompleted);
+            events.moveMade(currentPlayer, rowIndex + " " + columnIndex + " " + direction);
+            lastMoveRowIndex = rowIndex;
+            lastMoveColumnIndex = columnIndex;
+            if (boxesCompleted == 0) {
+                switchPlayer();
+            } else {
+                events.message("You completed " + boxesCompleted + " box(es)! Go again.");
             }
         }
 
-        System.out.println("\n--- Game Over! ---");
+        events.message("\n--- Game Over! ---");
         printBoard();
-        int playerOneScore = board.getScore(playerOne);
-        int playerTwoScore = board.getScore(playerTwo);
+        recordResult(GameHistoryLog.FINISHED);
 
-        System.out.println("\n--- Final Score ---");
-        System.out.println(playerOne.getName() + ": " + playerOneScore);
-        System.out.println(playerTwo.getName() + ": " + playerTwoScore);
+        events.message("\n--- Final Score ---");
+        int bestScore = 0;
+        for (int playerIndex = 0; playerIndex < playerCount; playerIndex++) {
+            events.message(players[playerIndex].getName() + ": " + board.getScore(playerIndex));
+            bestScore = Math.max(bestScore, board.getScore(playerIndex));
+        }
 
-        if (playerOneScore > playerTwoScore) {
-            System.out.println("\nCongratulations " + playerOne.getName() + ", you win!");
-        } else if (playerTwoScore > playerOneScore) {
-            System.out.println("\nCongratulations " + playerTwo.getName() + ", you win!");
+        List<String> winnerNames = new ArrayList<>();
+        for (int playerIndex = 0; playerIndex < playerCount; playerIndex++) {
+            if (board.getScore(playerIndex) == bestScore) winnerNames.add(players[playerIndex].getName());
+        }
+        if (winnerNames.size() == 1) {
+            events.gameOver("\nCongratulations " + winnerNames.get(0) + ", you win!");
+        } else if (winnerNames.size() == playerCount) {
+            events.gameOver("\nIt's a tie!");
         } else {
-            System.out.println("\nIt's a tie!");
+            String lastWinner = winnerNames.remove(winnerNames.size() - 1);
+            events.gameOver("\nIt's a tie between " + String.join(", ", winnerNames) + " and " + lastWinner + "!");
         }
     }
 
@@ -122,15 +242,100 @@ public class DotsAndBoxesGame extends Game {
 
     @Override
     protected void printBoard() {
-        System.out.println(board.getBoardAsString());
+        events.boardChanged(board, this::renderView);
+    }
+
+    private String renderView() {
+        if (gridWidth <= VIEWPORT_SIZE && gridHeight <= VIEWPORT_SIZE) {
+            return board.getBoardAsString();
+        }
+        int firstRowIndex = Math.max(0, Math.min(lastMoveRowIndex - VIEWPORT_SIZE / 2, gridHeight - VIEWPORT_SIZE));
+        int firstColumnIndex = Math.max(0, Math.min(lastMoveColumnIndex - VIEWPORT_SIZE / 2, gridWidth - VIEWPORT_SIZE));
+        return "Showing dots from row " + firstRowIndex + ", column " + firstColumnIndex + ":\n"
+                + board.getBoardAsString(firstRowIndex, firstColumnIndex, VIEWPORT_SIZE, VIEWPORT_SIZE);
     }
 
     @Override
     protected void quitToMainMenu() {
-        System.out.println("\nReturning to the main menu...");
+        events.message("\nReturning to the main menu...");
+    }
+
+    private void playComputerMove() {
+        Player currentPlayer = players[currentPlayerIndex];
+        int lineIndex = computerOpponent.chooseLine(board, computerRandom);
+        events.message(currentPlayer.getName() + " draws " + board.describeLine(lineIndex) + ".");
+        int boxesCompleted = board.drawLine(lineIndex, currentPlayer);
+        recordMove(lineIndex, boxesCompleted);
+        events.moveMade(currentPlayer, board.describeLine(lineIndex));
+        lastMoveRowIndex = board.getLineRow(lineIndex);
+        lastMoveColumnIndex = board.getLineColumn(lineIndex);
+        if (boxesCompleted == 0) {
+            switchPlayer();
+        } else {
+            events.message(currentPlayer.getName() + " completed " + boxesCompleted + " box(es) and goes again.");
+        }
+    }
+
+    /**
+     * Takes back the last move. Against the computer, moves are taken back until it is a human player's turn again.
+     */
+    private void undoMove() {
+        Player undonePlayer = board.undoMove();
+        if (undonePlayer == null) {
+            events.message("There is no move to undo.");
+            return;
+        }
+        recordUndo(undonePlayer);
+        if (computerPlayerIndex >= 0) {
+            while (board.getPlayerToMove() == players[computerPlayerIndex] && (undonePlayer = board.undoMove()) != null) {
+                // Keep undoing the computer's moves
+                recordUndo(undonePlayer);
+            }
+        }
+        currentPlayerIndex = board.getPlayerIndex(board.getPlayerToMove());
+        rememberLastMove();
+        events.message("Move undone.");
+    }
+
+    private void redoMove() {
+        Player redonePlayer = board.redoMove();
+        if (redonePlayer == null) {
+            events.message("There is no move to redo.");
+            return;
+        }
+        recordHistory(() -> history.recordRedo(historyGameId, board.getPlayerIndex(redonePlayer)));
+        currentPlayerIndex = board.getPlayerIndex(board.getPlayerToMove());
+        rememberLastMove();
+        events.message("Move redone.");
+    }
+
+    private void rememberLastMove() {
+        int lineIndex = board.getLastLineIndex();
+        lastMoveRowIndex = lineIndex < 0 ? 0 : board.getLineRow(lineIndex);
+        lastMoveColumnIndex = lineIndex < 0 ? 0 : board.getLineColumn(lineIndex);
+    }
+
+    private void recordMove(int lineIndex, int boxesCompleted) {
+        int playerIndex = currentPlayerIndex;
+        recordHistory(() -> history.recordMove(historyGameId, playerIndex, lineIndex, boxesCompleted));
+    }
+
+    private void recordUndo(Player undonePlayer) {
+        recordHistory(() -> history.recordUndo(historyGameId, board.getPlayerIndex(undonePlayer)));
+    }
+
+    private void recordResult(byte outcome) {
+        int[] scores = new int[playerCount];
+        for (int playerIndex = 0; playerIndex < playerCount; playerIndex++) {
+            scores[playerIndex] = board.getScore(playerIndex);
+        }
+        recordHistory(() -> history.endGame(historyGameId, outcome, board.getMoveCount(), scores));
     }
 
+    /**
+     * Passes the turn to the next player in turn order.
+     */
     private void switchPlayer() {
-        currentPlayer = (currentPlayer.equals(playerOne)) ? playerTwo : playerOne;
+        currentPlayerIndex = (currentPlayerIndex + 1) % playerCount;
     }
 }
\ No newline at end of file
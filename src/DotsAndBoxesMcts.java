@@ -0,0 +1,456 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A computer player for Dots and Boxes that uses Monte Carlo tree search with the UCT selection
+ * rule. Every playout walks down the tree from the current position, adds the children of the leaf
+ * it reaches, and finishes the game with quick rollouts that take every box offered and otherwise
+ * avoid handing boxes over, then credits each move on the path with the share of the win it led to.
+ * Unlike {@link DotsAndBoxesAI} it needs no evaluation function, so its strength depends on time
+ * rather than on the grid size, and it handles any number of players. Two-player positions that
+ * have become a simple endgame of chains and loops are solved exactly by {@link DotsAndBoxesEndgame}.
+ * <p>
+ * Playouts run on several threads, either on one shared tree, where each visit counts as a loss
+ * until its result arrives so that threads spread out over different moves (virtual loss), or on
+ * a tree per thread whose root visit counts are added up at the end. Nodes live in preallocated
+ * arrays that are reused for every move, so a playout allocates nothing.
+ */
+public class DotsAndBoxesMcts implements AutoCloseable {
+
+    /**
+     * How the playouts of one move are shared between threads.
+     */
+    public enum Parallelism {
+        /** Every thread builds its own tree; the trees' root visit counts are added up to choose the move. */
+        ROOT,
+        /** All threads grow one tree, using virtual loss to keep them on different paths. */
+        TREE
+    }
+
+    public static final int DEFAULT_NODE_CAPACITY = 1 << 19;
+
+    /** The UCT exploration constant, the usual square root of two. */
+    private static final double EXPLORATION = Math.sqrt(2);
+    /** A whole win in the fixed-point reward sums; shared wins are split between the winners. */
+    private static final int REWARD_SCALE = 1 << 16;
+    private static final int TIME_CHECK_INTERVAL = 16;
+    /** How many random lines a rollout looks at before settling for one that gives boxes away. */
+    private static final int ROLLOUT_SAMPLES = 4;
+
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+    /** Marks a leaf that could not be expanded because its pool was full. */
+    private static final int NOT_EXPANDABLE = -3;
+
+    /**
+     * A tree of nodes kept in parallel arrays, with the root at index 0. The children of a node sit
+     * next to each other, so a node only needs the index of its first child and how many it has.
+     */
+    private static final class NodePool {
+        final int capacity;
+        final int[] lines;
+        final int[] childCounts;
+        final AtomicIntegerArray firstChildren;
+        final AtomicIntegerArray visits;
+        final AtomicLongArray rewards;
+        final AtomicInteger nextFree = new AtomicInteger();
+
+        NodePool(int capacity) {
+            this.capacity = capacity;
+            this.lines = new int[capacity];
+            this.childCounts = new int[capacity];
+            this.firstChildren = new AtomicIntegerArray(capacity);
+            this.visits = new AtomicIntegerArray(capacity);
+            this.rewards = new AtomicLongArray(capacity);
+        }
+
+        /**
+         * Empties the pool, leaving only an unexpanded root.
+         */
+        void reset() {
+            nextFree.set(1);
+            initialize(0, -1);
+        }
+
+        void initialize(int node, int lineIndex) {
+            lines[node] = lineIndex;
+            childCounts[node] = 0;
+            visits.set(node, 0);
+            rewards.set(node, 0);
+            firstChildren.set(node, UNEXPANDED);
+        }
+
+        /**
+         * Takes a block of nodes.
+         * @return The first node of the block, or -1 if the pool has run out.
+         */
+        int allocate(int count) {
+            int first = nextFree.getAndAdd(count);
+            return first + count <= capacity ? first : -1;
+        }
+    }
+
+    /**
+     * The scratch state of one thread's playouts, reused from move to move.
+     */
+    private static final class Worker {
+        final Random random;
+        DotsAndBoxesBitboard bitboard;
+        int[] remainingLines;
+        /** Where each line is in remainingLines, so a drawn line can be taken out in constant time. */
+        int[] remainingSlots;
+        /** Boxes that had their third side drawn during a rollout and may be ready to take. */
+        int[] capturableBoxes;
+        int[] pathNodes;
+        int[] pathMovers;
+        int[] scores;
+        long[] playerRewards;
+
+        Worker(long seed) {
+            this.random = new Random(seed);
+        }
+
+        void prepare(DotsAndBoxesBitboard root, int playerCount) {
+            if (bitboard == null || bitboard.getWidth() != root.getWidth() || bitboard.getHeight() != root.getHeight()) {
+                bitboard = new DotsAndBoxesBitboard(root);
+                remainingLines = new int[root.getLineCount()];
+                remainingSlots = new int[root.getLineCount()];
+                capturableBoxes = new int[root.getBoxCount() + 2];
+                pathNodes = new int[root.getLineCount() + 1];
+                pathMovers = new int[root.getLineCount() + 1];
+            }
+            if (scores == null || scores.length != playerCount) {
+                scores = new int[playerCount];
+                playerRewards = new long[playerCount];
+            }
+        }
+    }
+
+    private final long timeBudgetMillis;
+    private final Parallelism parallelism;
+    private final NodePool[] pools;
+    private final Worker[] workers;
+    private final ExecutorService executor;
+    private final DotsAndBoxesEndgame endgame = new DotsAndBoxesEndgame(new EndgameDatabase());
+
+    private DotsAndBoxesBitboard rootBitboard;
+    private int rootMover;
+    private int[] rootScores;
+    private long deadlineNanos;
+    private long lastPlayoutCount;
+    private long lastElapsedNanos;
+
+    /**
+     * Creates a single-threaded player.
+     * @param timeBudgetMillis How long the search may think about each move.
+     */
+    public DotsAndBoxesMcts(long timeBudgetMillis) {
+        this(timeBudgetMillis, 1, Parallelism.TREE, DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * @param timeBudgetMillis How long the search may think about each move.
+     * @param threadCount How many threads run playouts.
+     * @param nodeCapacity How many tree nodes are kept in all; once they are used up the tree stops
+     *                     growing and playouts start from its leaves.
+     */
+    public DotsAndBoxesMcts(long timeBudgetMillis, int threadCount, Parallelism parallelism, int nodeCapacity) {
+        if (timeBudgetMillis < 1) {
+            throw new IllegalArgumentException("Time budget must be at least 1 millisecond.");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        int poolCount = parallelism == Parallelism.ROOT ? threadCount : 1;
+        if (nodeCapacity / poolCount < 2) {
+            throw new IllegalArgumentException("Each tree needs room for at least 2 nodes.");
+        }
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.parallelism = parallelism;
+        this.pools = new NodePool[poolCount];
+        for (int poolIndex = 0; poolIndex < poolCount; poolIndex++) {
+            pools[poolIndex] = new NodePool(nodeCapacity / poolCount);
+        }
+        this.workers = new Worker[threadCount];
+        long seed = System.nanoTime();
+        for (int workerIndex = 0; workerIndex < threadCount; workerIndex++) {
+            workers[workerIndex] = new Worker(seed + workerIndex * 0x9E3779B97F4A7C15L);
+        }
+        this.executor = threadCount == 1 ? null : Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "mcts-playouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Chooses a line to draw for the player whose turn it is.
+     * @return The index of the chosen line in the board's {@link DotsAndBoxesBitboard} numbering.
+     * @throws IllegalStateException if every line has already been drawn.
+     */
+    public int chooseMove(DotsAndBoxesBoard board) {
+        rootBitboard = board.copyBitboard();
+        if (rootBitboard.isFull()) {
+            throw new IllegalStateException("There are no lines left to draw.");
+        }
+        int playerCount = board.getPlayerCount();
+        if (playerCount == 2 && rootBitboard.isSimpleEndgame()) {
+            lastPlayoutCount = 0;
+            lastElapsedNanos = 0;
+            return endgame.chooseLine(rootBitboard);
+        }
+        rootMover = board.getPlayerIndex(board.getPlayerToMove());
+        rootScores = new int[playerCount];
+        for (int playerIndex = 0; playerIndex < playerCount; playerIndex++) {
+            rootScores[playerIndex] = board.getScore(playerIndex);
+        }
+        for (NodePool pool : pools) pool.reset();
+        for (Worker worker : workers) worker.prepare(rootBitboard, playerCount);
+
+        long startNanos = System.nanoTime();
+        deadlineNanos = startNanos + timeBudgetMillis * 1_000_000L;
+        lastPlayoutCount = executor == null ? runPlayouts(workers[0], pools[0]) : runPlayoutsInParallel();
+        lastElapsedNanos = System.nanoTime() - startNanos;
+        if (Metrics.ENABLED) Metrics.MCTS_PLAYOUTS.add(lastPlayoutCount);
+        return mostVisitedLine();
+    }
+
+    private long runPlayoutsInParallel() {
+        List<Callable<Long>> tasks = new ArrayList<>(workers.length);
+        for (int workerIndex = 0; workerIndex < workers.length; workerIndex++) {
+            Worker worker = workers[workerIndex];
+            NodePool pool = pools[parallelism == Parallelism.ROOT ? workerIndex : 0];
+            tasks.add(() -> runPlayouts(worker, pool));
+        }
+        try {
+            long playouts = 0;
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                playouts += result.get();
+            }
+            return playouts;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search was interrupted.", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Search failed: " + exception.getCause().getMessage(), exception.getCause());
+        }
+    }
+
+    /**
+     * Picks the root move with the most visits, over every tree. Visits are a steadier guide than
+     * average rewards, which can be high for a move that was only tried a few times.
+     */
+    private int mostVisitedLine() {
+        long[] lineVisits = new long[rootBitboard.getLineCount()];
+        for (NodePool pool : pools) {
+            int firstChild = pool.firstChildren.get(0);
+            if (firstChild < 0) continue;
+            for (int child = firstChild; child < firstChild + pool.childCounts[0]; child++) {
+                lineVisits[pool.lines[child]] += pool.visits.get(child);
+            }
+        }
+        int bestLine = -1;
+        for (int lineIndex = 0; lineIndex < lineVisits.length; lineIndex++) {
+            if (rootBitboard.isClaimed(lineIndex)) continue;
+            if (bestLine < 0 || lineVisits[lineIndex] > lineVisits[bestLine]) bestLine = lineIndex;
+        }
+        return bestLine;
+    }
+
+    private long runPlayouts(Worker worker, NodePool pool) {
+        long playouts = 0;
+        do {
+            playout(worker, pool);
+            playouts++;
+        } while (playouts % TIME_CHECK_INTERVAL != 0 || System.nanoTime() < deadlineNanos);
+        return playouts;
+    }
+
+    /**
+     * Runs one playout: selection and expansion down the tree, a rollout to the end of the game, and
+     * backing the result up the path.
+     */
+    private void playout(Worker worker, NodePool pool) {
+        DotsAndBoxesBitboard bitboard = worker.bitboard;
+        bitboard.copyFrom(rootBitboard);
+        int[] scores = worker.scores;
+        System.arraycopy(rootScores, 0, scores, 0, scores.length);
+        int mover = rootMover;
+        int node = 0;
+        int depth = 0;
+        pool.visits.incrementAndGet(0);
+
+        while (true) {
+            int firstChild = pool.firstChildren.get(node);
+            if (firstChild == UNEXPANDED && !bitboard.isFull()
+                    && pool.firstChildren.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+                firstChild = expand(pool, node, bitboard);
+            }
+            if (firstChild < 0) break;
+
+            node = selectChild(pool, node, firstChild);
+            // Counting the visit now makes the move look worse to other threads until its result is in
+            pool.visits.incrementAndGet(node);
+            depth++;
+            worker.pathNodes[depth] = node;
+            worker.pathMovers[depth] = mover;
+            int completedBoxes = Integer.bitCount(bitboard.claim(pool.lines[node]));
+            if (completedBoxes == 0) mover = (mover + 1) % scores.length;
+            else scores[mover] += completedBoxes;
+        }
+
+        rollout(worker, bitboard, mover);
+
+        long[] playerRewards = worker.playerRewards;
+        int bestScore = Integer.MIN_VALUE;
+        int winnerCount = 0;
+        for (int score : scores) {
+            if (score > bestScore) {
+                bestScore = score;
+                winnerCount = 1;
+            } else if (score == bestScore) {
+                winnerCount++;
+            }
+        }
+        for (int playerIndex = 0; playerIndex < scores.length; playerIndex++) {
+            playerRewards[playerIndex] = scores[playerIndex] == bestScore ? REWARD_SCALE / winnerCount : 0;
+        }
+        for (int step = 1; step <= depth; step++) {
+            pool.rewards.addAndGet(worker.pathNodes[step], playerRewards[worker.pathMovers[step]]);
+        }
+    }
+
+    /**
+     * Adds a child for every undrawn line. Only the thread that won the right to expand the node gets here.
+     * @return The first child, or {@link #NOT_EXPANDABLE} if the pool is full.
+     */
+    private static int expand(NodePool pool, int node, DotsAndBoxesBitboard bitboard) {
+        int childCount = bitboard.getLineCount() - bitboard.getClaimedLineCount();
+        int firstChild = pool.allocate(childCount);
+        if (firstChild < 0) {
+            pool.firstChildren.set(node, NOT_EXPANDABLE);
+            return NOT_EXPANDABLE;
+        }
+        int child = firstChild;
+        for (int lineIndex = 0; lineIndex < bitboard.getLineCount(); lineIndex++) {
+            if (!bitboard.isClaimed(lineIndex)) pool.initialize(child++, lineIndex);
+        }
+        pool.childCounts[node] = childCount;
+        // Publishes the children to the other threads
+        pool.firstChildren.set(node, firstChild);
+        return firstChild;
+    }
+
+    /**
+     * Picks the child with the highest upper confidence bound for the player choosing at this node,
+     * trying every child once first.
+     */
+    private static int selectChild(NodePool pool, int node, int firstChild) {
+        double logParentVisits = Math.log(Math.max(1, pool.visits.get(node)));
+        int bestChild = firstChild;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild; child < firstChild + pool.childCounts[node]; child++) {
+            int childVisits = pool.visits.get(child);
+            if (childVisits == 0) return child;
+            double value = (double) pool.rewards.get(child) / ((long) childVisits * REWARD_SCALE)
+                    + EXPLORATION * Math.sqrt(logParentVisits / childVisits);
+            if (value > bestValue) {
+                bestValue = value;
+                bestChild = child;
+            }
+        }
+        return bestChild;
+    }
+
+    /**
+     * Plays the game out quickly: every box with three sides is taken as soon as it appears, and
+     * otherwise the first of a few randomly sampled lines that leaves no box for the next player is
+     * drawn, or the last sample if every one of them gives a box away.
+     */
+    private static void rollout(Worker worker, DotsAndBoxesBitboard bitboard, int mover) {
+        int[] remainingLines = worker.remainingLines;
+        int[] remainingSlots = worker.remainingSlots;
+        int[] capturableBoxes = worker.capturableBoxes;
+        int[] scores = worker.scores;
+        int remainingCount = 0;
+        for (int lineIndex = 0; lineIndex < bitboard.getLineCount(); lineIndex++) {
+            if (bitboard.isClaimed(lineIndex)) continue;
+            remainingSlots[lineIndex] = remainingCount;
+            remainingLines[remainingCount++] = lineIndex;
+        }
+        int capturableCount = 0;
+        for (int boxIndex = 0; boxIndex < bitboard.getBoxCount(); boxIndex++) {
+            if (bitboard.getEdgeCount(boxIndex) == 3) capturableBoxes[capturableCount++] = boxIndex;
+        }
+        Random random = worker.random;
+        while (remainingCount > 0) {
+            int lineIndex = -1;
+            while (lineIndex < 0 && capturableCount > 0) {
+                int boxIndex = capturableBoxes[--capturableCount];
+                if (bitboard.getEdgeCount(boxIndex) == 3) lineIndex = missingLine(bitboard, boxIndex);
+            }
+            for (int sample = 0; lineIndex < 0 && sample < ROLLOUT_SAMPLES; sample++) {
+                int candidate = remainingLines[random.nextInt(remainingCount)];
+                if (sample == ROLLOUT_SAMPLES - 1 || !givesAwayBox(bitboard, candidate)) lineIndex = candidate;
+            }
+            int slot = remainingSlots[lineIndex];
+            int lastLine = remainingLines[--remainingCount];
+            remainingLines[slot] = lastLine;
+            remainingSlots[lastLine] = slot;
+
+            int completedBoxes = Integer.bitCount(bitboard.claim(lineIndex));
+            if (completedBoxes == 0) mover = (mover + 1) % scores.length;
+            else scores[mover] += completedBoxes;
+            int firstBox = bitboard.firstAdjacentBox(lineIndex);
+            if (firstBox >= 0 && bitboard.getEdgeCount(firstBox) == 3) capturableBoxes[capturableCount++] = firstBox;
+            int secondBox = bitboard.secondAdjacentBox(lineIndex);
+            if (secondBox >= 0 && bitboard.getEdgeCount(secondBox) == 3) capturableBoxes[capturableCount++] = secondBox;
+        }
+    }
+
+    private static boolean givesAwayBox(DotsAndBoxesBitboard bitboard, int lineIndex) {
+        int firstBox = bitboard.firstAdjacentBox(lineIndex);
+        int secondBox = bitboard.secondAdjacentBox(lineIndex);
+        return firstBox >= 0 && bitboard.getEdgeCount(firstBox) == 2
+                || secondBox >= 0 && bitboard.getEdgeCount(secondBox) == 2;
+    }
+
+    private static int missingLine(DotsAndBoxesBitboard bitboard, int boxIndex) {
+        for (int side = 0; side < 3; side++) {
+            int lineIndex = bitboard.boxLine(boxIndex, side);
+            if (!bitboard.isClaimed(lineIndex)) return lineIndex;
+        }
+        return bitboard.boxLine(boxIndex, 3);
+    }
+
+    /**
+     * Returns how many playouts the last move was chosen from.
+     */
+    public long getLastPlayoutCount() {
+        return lastPlayoutCount;
+    }
+
+    /**
+     * Returns the playouts per second of the last move, over all threads.
+     */
+    public double getLastPlayoutsPerSecond() {
+        return lastElapsedNanos == 0 ? 0 : lastPlayoutCount * 1e9 / lastElapsedNanos;
+    }
+
+    /**
+     * Stops the playout threads.
+     */
+    @Override
+    public void close() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Random;
+
+/**
+ * Decides which line a player draws in Dots and Boxes, for games played without a console.
+ * A policy may keep state between moves, so each game should use its own instance.
+ */
+public interface DotsAndBoxesPolicy {
+
+    /**
+     * Chooses an undrawn line on the board.
+     * @return The index of the line to draw.
+     */
+    int chooseLine(DotsAndBoxesBoard board, Random random);
+
+    /**
+     * A policy that draws any undrawn line at random.
+     */
+    static DotsAndBoxesPolicy random() {
+        return (board, random) -> {
+            int lineCount = board.getLineCount();
+            // Sampling is cheap while the board is mostly empty; fall back to a scan when it fills up
+            for (int attempt = 0; attempt < 8; attempt++) {
+                int lineIndex = random.nextInt(lineCount);
+                if (!board.isLineDrawn(lineIndex)) return lineIndex;
+            }
+            int start = random.nextInt(lineCount);
+            for (int offset = 0; offset < lineCount; offset++) {
+                int lineIndex = (start + offset) % lineCount;
+                if (!board.isLineDrawn(lineIndex)) return lineIndex;
+            }
+            throw new IllegalStateException("There are no lines left to draw.");
+        };
+    }
+
+    /**
+     * A policy that completes a box whenever it can, otherwise draws a random line
+     * that gives nothing away, and only gives away a box when it has no choice.
+     */
+    static DotsAndBoxesPolicy greedy() {
+        return (board, random) -> {
+            int lineCount = board.getLineCount();
+            int start = random.nextInt(lineCount);
+            int safeLine = -1;
+            int safeLinesSeen = 0;
+            int fallbackLine = -1;
+            for (int offset = 0; offset < lineCount; offset++) {
+                int lineIndex = (start + offset) % lineCount;
+                if (board.isLineDrawn(lineIndex)) continue;
+                if (board.completesBox(lineIndex)) return lineIndex;
+                if (board.givesAwayBox(lineIndex)) {
+                    if (fallbackLine < 0) fallbackLine = lineIndex;
+                } else if (random.nextInt(++safeLinesSeen) == 0) {
+                    safeLine = lineIndex;
+                }
+            }
+            if (safeLine >= 0) return safeLine;
+            if (fallbackLine >= 0) return fallbackLine;
+            throw new IllegalStateException("There are no lines left to draw.");
+        };
+    }
+
+    /**
+     * A policy backed by the {@link DotsAndBoxesAI} search.
+     * @param timeBudgetMillis How long the search may think about each move.
+     */
+    static DotsAndBoxesPolicy computer(long timeBudgetMillis) {
+        DotsAndBoxesAI computerOpponent = new DotsAndBoxesAI(timeBudgetMillis);
+        return (board, random) -> computerOpponent.chooseMove(board);
+    }
+
+    /**
+     * A policy backed by a single-threaded {@link DotsAndBoxesMcts} search.
+     * @param timeBudgetMillis How long the search may think about each move.
+     */
+    static DotsAndBoxesPolicy mcts(long timeBudgetMillis) {
+        DotsAndBoxesMcts search = new DotsAndBoxesMcts(timeBudgetMillis);
+        return (board, random) -> search.chooseMove(board);
+    }
+}
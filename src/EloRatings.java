@@ -0,0 +1,78 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Elo ratings for a fixed field of competitors, numbered from 0. Ratings are kept as the bits of
+ * doubles in an atomic array and updated with compare-and-set loops, so any number of threads can
+ * record results at once without locking; each result moves both ratings by the same amount in
+ * opposite directions, so the field's average rating never changes.
+ */
+public class EloRatings {
+    public static final double DEFAULT_RATING = 1500;
+    public static final double DEFAULT_K_FACTOR = 16;
+
+    private final AtomicLongArray ratingBits;
+    private final double kFactor;
+
+    public EloRatings(int competitorCount) {
+        this(competitorCount, DEFAULT_RATING, DEFAULT_K_FACTOR);
+    }
+
+    /**
+     * @param initialRating The rating every competitor starts with.
+     * @param kFactor The most a single result can move a rating.
+     */
+    public EloRatings(int competitorCount, double initialRating, double kFactor) {
+        if (competitorCount < 1) {
+            throw new IllegalArgumentException("There must be at least one competitor.");
+        }
+        if (!(kFactor > 0)) {
+            throw new IllegalArgumentException("K factor must be positive.");
+        }
+        this.ratingBits = new AtomicLongArray(competitorCount);
+        this.kFactor = kFactor;
+        for (int competitor = 0; competitor < competitorCount; competitor++) {
+            ratingBits.set(competitor, Double.doubleToRawLongBits(initialRating));
+        }
+    }
+
+    public int getCompetitorCount() {
+        return ratingBits.length();
+    }
+
+    public double getRating(int competitor) {
+        return Double.longBitsToDouble(ratingBits.get(competitor));
+    }
+
+    /**
+     * Returns the score the first competitor is expected to take from a game against the second,
+     * between 0 and 1.
+     */
+    public double expectedScore(int first, int second) {
+        return 1 / (1 + Math.pow(10, (getRating(second) - getRating(first)) / 400));
+    }
+
+    /**
+     * Records the result of one game between two competitors.
+     * @param outcome Positive if the first competitor won, negative if the second did, zero for a draw.
+     * @return How much the first competitor's rating changed.
+     */
+    public double recordResult(int first, int second, int outcome) {
+        if (first == second) {
+            throw new IllegalArgumentException("A competitor cannot play against itself.");
+        }
+        double score = outcome > 0 ? 1 : outcome < 0 ? 0 : 0.5;
+        double change = kFactor * (score - expectedScore(first, second));
+        addToRating(first, change);
+        addToRating(second, -change);
+        return change;
+    }
+
+    private void addToRating(int competitor, double change) {
+        long currentBits;
+        long updatedBits;
+        do {
+            currentBits = ratingBits.get(competitor);
+            updatedBits = Double.doubleToRawLongBits(Double.longBitsToDouble(currentBits) + change);
+        } while (!ratingBits.compareAndSet(competitor, currentBits, updatedBits));
+    }
+}
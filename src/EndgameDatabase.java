@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A fixed-size hash table of solved endgame values, keyed by a 64-bit hash of a position's
+ * canonical form. The table lives either on the heap or in a memory-mapped file, so solved
+ * positions survive restarts and are shared by every process that opens the same file.
+ * Each entry is twelve bytes: the key and the value. When a probe finds no free slot,
+ * the home slot is overwritten, so the table behaves as a cache that never grows.
+ */
+public class EndgameDatabase implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY_BITS = 16;
+
+    /** Identifies an endgame database file ("DBEG"). */
+    private static final int FILE_MAGIC = 0x44424547;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int MAX_PROBES = 16;
+
+    /** Returned by {@link #get(long)} when a position has not been solved yet. */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private final ByteBuffer table;
+    private final FileChannel channel;
+    private final int mask;
+
+    /**
+     * Creates an empty database on the heap with 2^{@link #DEFAULT_CAPACITY_BITS} entries.
+     */
+    public EndgameDatabase() {
+        this(ByteBuffer.allocate(HEADER_BYTES + (ENTRY_BYTES << DEFAULT_CAPACITY_BITS)), null, DEFAULT_CAPACITY_BITS);
+    }
+
+    private EndgameDatabase(ByteBuffer table, FileChannel channel, int capacityBits) {
+        this.table = table;
+        this.channel = channel;
+        this.mask = (1 << capacityBits) - 1;
+    }
+
+    /**
+     * Opens a database file, creating it with the given capacity if it does not exist yet.
+     * An existing file keeps the capacity it was created with.
+     * @param capacityBits The table holds 2^capacityBits entries.
+     */
+    public static EndgameDatabase open(Path path, int capacityBits) throws IOException {
+        if (capacityBits < 4 || capacityBits > 26) throw new IllegalArgumentException("Capacity bits must be between 4 and 26.");
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() >= HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != FILE_MAGIC) throw new IOException("Not an endgame database: " + path);
+                capacityBits = header.getInt();
+                if (capacityBits < 4 || capacityBits > 26) throw new IOException("Corrupt endgame database: " + path);
+            }
+            long fileBytes = HEADER_BYTES + ((long) ENTRY_BYTES << capacityBits);
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileBytes);
+            table.putInt(0, FILE_MAGIC);
+            table.putInt(Integer.BYTES, capacityBits);
+            return new EndgameDatabase(table, channel, capacityBits);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Looks up a solved value.
+     * @return The stored value, or {@link #MISSING}.
+     */
+    public synchronized int get(long key) {
+        long storedKey = nonZero(key);
+        int slot = (int) storedKey & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int offset = offsetOf((slot + probe) & mask);
+            long slotKey = table.getLong(offset);
+            if (slotKey == storedKey) return table.getInt(offset + Long.BYTES);
+            if (slotKey == 0) return MISSING;
+        }
+        return MISSING;
+    }
+
+    public synchronized void put(long key, int value) {
+        long storedKey = nonZero(key);
+        int slot = (int) storedKey & mask;
+        int offset = offsetOf(slot);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int probeOffset = offsetOf((slot + probe) & mask);
+            long slotKey = table.getLong(probeOffset);
+            if (slotKey == 0 || slotKey == storedKey) {
+                offset = probeOffset;
+                break;
+            }
+        }
+        table.putLong(offset, storedKey);
+        table.putInt(offset + Long.BYTES, value);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_BYTES + slot * ENTRY_BYTES;
+    }
+
+    /**
+     * Zero marks an empty slot, so a key of zero is stored as one.
+     */
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Writes a file-backed table out to disk and closes the file. Heap tables need no closing.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) return;
+        ((MappedByteBuffer) table).force();
+        channel.close();
+    }
+}
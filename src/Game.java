@@ -1,27 +1,100 @@
+import java.io.IOException;
 import java.util.Scanner;
 
 /**
  * An abstract class that defines the structure for all board games.
  * It uses the Template Method design pattern with the final 'play' method.
+ * Games read input from a {@link GameInput} and report everything through a {@link GameEventSink},
+ * so the same game logic runs on the console, headless or behind a remote driver.
  */
 public abstract class Game {
 
     /**
-     * The main template method that runs the entire game lifecycle.
+     * Where the running game reports its output; set for the duration of {@link #play}.
+     */
+    protected GameEventSink events = NoOpEventSink.INSTANCE;
+
+    /**
+     * Where the game's moves and result are recorded, or null if no history is kept.
+     */
+    protected GameHistoryLog history;
+
+    /**
+     * A write to the game history.
+     */
+    @FunctionalInterface
+    protected interface HistoryWrite {
+        void run() throws IOException;
+    }
+
+    /**
+     * Records the games played from now on in a history log.
+     * @param history The log to append to, or null to stop recording.
+     */
+    public void setHistory(GameHistoryLog history) {
+        this.history = history;
+    }
+
+    /**
+     * Plays the game on the console, reading from the given scanner.
      */
     public final void play(Scanner scanner) {
-        getGameInfo(scanner);
-        initializeBoard();
-        runGame(scanner);
-        System.out.println("\n------------------------------------\n");
+        play(() -> scanner.hasNextLine() ? scanner.nextLine() : null, new ConsoleEventSink());
+    }
+
+    /**
+     * The main template method that runs the entire game lifecycle.
+     */
+    public final void play(GameInput input, GameEventSink events) {
+        this.events = events;
+        long startNanos = 0;
+        long allocatedBytesAtStart = 0;
+        if (Metrics.ENABLED) {
+            Metrics.GAMES_STARTED.increment();
+            startNanos = System.nanoTime();
+            allocatedBytesAtStart = Metrics.currentThreadAllocatedBytes();
+        }
+        boolean finishedNormally = false;
+        try {
+            if (getGameInfo(input) != null) {
+                initializeBoard();
+                runGame(input);
+            } else {
+                // The input ended during setup, which is handled like quitting mid-game
+                quitToMainMenu();
+            }
+            events.message("\n------------------------------------\n");
+            finishedNormally = true;
+        } finally {
+            events.flush();
+            if (Metrics.ENABLED) Metrics.recordGame(startNanos, allocatedBytesAtStart, finishedNormally);
+        }
+    }
+
+
+    /**
+     * Writes to the game history if one is kept. A history that fails is reported once and then
+     * no longer used, so a full disk never interrupts a game.
+     */
+    protected final void recordHistory(HistoryWrite write) {
+        if (history == null) return;
+        try {
+            write.run();
+        } catch (IOException exception) {
+            events.message("Game history is no longer recorded: " + exception.getMessage());
+            history = null;
+        }
     }
 
     // Abstract methods to be implemented by specific game classes
-    protected abstract String getGameInfo(Scanner scanner);
+    /**
+     * Asks for the players and the board size.
+     * @return A summary of the setup, or null if the input ended first and the game should not start.
+     */
+    protected abstract String getGameInfo(GameInput input);
     protected abstract void initializeBoard();
-    protected abstract void runGame(Scanner scanner);
+    protected abstract void runGame(GameInput input);
     protected abstract boolean isGameOver();
     protected abstract void printBoard();
     protected abstract void quitToMainMenu();
 }
-
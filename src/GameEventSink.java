@@ -0,0 +1,41 @@
+import java.util.function.Supplier;
+
+/**
+ * Receives everything a game reports while it runs, instead of the game printing to the console.
+ * Text meant for a person arrives as messages and prompts, while moves, board changes and the
+ * end of the game also arrive as separate events so that headless drivers can follow a game
+ * without parsing text.
+ */
+public interface GameEventSink {
+
+    /**
+     * Reports a line of text for the player.
+     */
+    void message(String text);
+
+    /**
+     * Asks the player for input. The text has no line break, and the game reads input straight after it.
+     */
+    void prompt(String text);
+
+    /**
+     * Reports a move that has been played, in the same form a player would type it.
+     */
+    void moveMade(Player player, String move);
+
+    /**
+     * Reports that the board should be shown again.
+     * @param view Renders the part of the board the game would show, only if the sink asks for it.
+     */
+    void boardChanged(Board board, Supplier<String> view);
+
+    /**
+     * Reports that the game has finished, with a line announcing the result.
+     */
+    void gameOver(String result);
+
+    /**
+     * Passes on anything the sink is still holding back.
+     */
+    void flush();
+}
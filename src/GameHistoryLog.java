@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of every game played: when it started, who played, every move, undo and
+ * redo, and how it ended. Records are 32 bytes each and are written straight into memory-mapped
+ * segment files, so appending a move is a copy into the page cache that survives the process
+ * crashing; {@link #sync()} also forces it to disk. When a segment is full the log rolls over to the
+ * next one. Every record carries a CRC32 of its contents, so reopening the log after a crash finds
+ * the end of the last complete record and discards any torn tail. Logs are read back with
+ * {@link GameHistoryScanner}.
+ *
+ * <pre>
+ * offset  0  int   CRC32 of bytes 4 to 31
+ *         4  byte  record type
+ *         5  byte  player slot, game type or outcome
+ *         6  short small value (player count, boxes completed, name length, score count)
+ *         8  long  game id
+ *        16  16 bytes of payload
+ * </pre>
+ */
+public class GameHistoryLog implements AutoCloseable {
+    public static final byte DOTS_AND_BOXES = 1;
+    public static final byte SLIDING_PUZZLE = 2;
+
+    /** The game was played to the end. */
+    public static final byte FINISHED = 0;
+    /** A player quit before the end. */
+    public static final byte ABANDONED = 1;
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    static final int RECORD_BYTES = 32;
+    static final byte GAME_STARTED = 1;
+    static final byte PLAYER_JOINED = 2;
+    static final byte PUZZLE_LAYOUT = 3;
+    static final byte MOVE_MADE = 4;
+    static final byte MOVE_UNDONE = 5;
+    static final byte MOVE_REDONE = 6;
+    static final byte GAME_ENDED = 7;
+    static final byte FINAL_SCORES = 8;
+
+    /** Bytes of a player's name carried by each PLAYER_JOINED record. */
+    static final int NAME_BYTES_PER_RECORD = 16;
+    /** Tiles of a puzzle's starting layout carried by each PUZZLE_LAYOUT record. */
+    static final int TILES_PER_RECORD = 4;
+    /** Scores carried by the GAME_ENDED record itself; the rest go in FINAL_SCORES records before it. */
+    static final int SCORES_IN_END_RECORD = 2;
+    /** Scores carried by each FINAL_SCORES record. */
+    static final int SCORES_PER_RECORD = 4;
+
+    /** Identifies a history segment ("GHLG"); the header fills the first record. */
+    static final int SEGMENT_MAGIC = 0x47484C47;
+    static final int SEGMENT_VERSION = 1;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 checksum = new CRC32();
+
+    private long segmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long lastGameId;
+
+    private GameHistoryLog(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Opens the log in a directory with 64 MB segments, creating the directory if needed.
+     */
+    public static GameHistoryLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens the log in a directory, recovering the end of the last segment if the previous writer crashed.
+     * @param segmentBytes The size of each segment file, a multiple of 32 bytes of at most 1 GB.
+     */
+    public static GameHistoryLog open(Path directory, long segmentBytes) throws IOException {
+        if (segmentBytes < 2 * RECORD_BYTES || segmentBytes > 1L << 30 || segmentBytes % RECORD_BYTES != 0) {
+            throw new IllegalArgumentException("Segment size must be a multiple of " + RECORD_BYTES + " bytes of at most 1 GB.");
+        }
+        Files.createDirectories(directory);
+        GameHistoryLog log = new GameHistoryLog(directory, segmentBytes);
+        List<Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            log.openSegment(1);
+        } else {
+            log.recoverLastSegment(segments);
+        }
+        return log;
+    }
+
+    /**
+     * Lists the segment files of a log in the order they were written.
+     */
+    static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().matches("history-\\d{8}\\.log"))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("history-%08d.log", number));
+    }
+
+    /**
+     * Reads the segment number from a segment's header.
+     * @throws IOException If the header is not a valid history segment header.
+     */
+    static long readSegmentHeader(ByteBuffer segment, Path path) throws IOException {
+        if (segment.capacity() < RECORD_BYTES || segment.getInt(0) != SEGMENT_MAGIC
+                || segment.getInt(Integer.BYTES) != SEGMENT_VERSION || segment.getInt(16) != RECORD_BYTES) {
+            throw new IOException("Not a game history segment: " + path);
+        }
+        return segment.getLong(8);
+    }
+
+    /**
+     * Checks a record's checksum. The check moves the buffer's position and limit,
+     * so callers pass a view of the segment made with {@link ByteBuffer#duplicate()}.
+     * @return false if the record is empty, torn or corrupt.
+     */
+    static boolean isValidRecord(ByteBuffer segmentView, int offset, CRC32 checksum) {
+        segmentView.clear();
+        if (segmentView.get(offset + 4) == 0) return false;
+        checksum.reset();
+        segmentView.limit(offset + RECORD_BYTES).position(offset + 4);
+        checksum.update(segmentView);
+        return (int) checksum.getValue() == segmentView.getInt(offset);
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path path = segmentPath(number);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(0, SEGMENT_MAGIC);
+        segment.putInt(Integer.BYTES, SEGMENT_VERSION);
+        segment.putLong(8, number);
+        segment.putInt(16, RECORD_BYTES);
+        segment.position(RECORD_BYTES);
+        segmentNumber = number;
+    }
+
+    /**
+     * Finds the end of the last complete record in the newest segment and wipes whatever follows it,
+     * and works out the last game id handed out.
+     */
+    private void recoverLastSegment(List<Path> segments) throws IOException {
+        Path path = segments.get(segments.size() - 1);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existingBytes = channel.size();
+        // A segment written with a different size keeps its own size
+        long mappedBytes = Math.max(existingBytes - existingBytes % RECORD_BYTES, RECORD_BYTES);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedBytes);
+        segmentNumber = readSegmentHeader(segment, path);
+
+        ByteBuffer segmentView = segment.duplicate();
+        int offset = RECORD_BYTES;
+        while (offset + RECORD_BYTES <= segment.capacity() && isValidRecord(segmentView, offset, checksum)) {
+            lastGameId = Math.max(lastGameId, segment.getLong(offset + 8));
+            offset += RECORD_BYTES;
+        }
+        // Wipe everything after the valid records up to the last slot that holds anything. Pages can
+        // reach the disk out of order, so stale records may lie beyond an empty slot, and once new
+        // appends filled the gap they would read as part of the log.
+        int end = segment.capacity();
+        while (end > offset && isEmptySlot(segment, end - RECORD_BYTES)) {
+            end -= RECORD_BYTES;
+        }
+        for (int tail = offset; tail < end; tail += Long.BYTES) {
+            segment.putLong(tail, 0);
+        }
+        if (end > offset) segment.force();
+        segment.position(offset);
+
+        if (offset == RECORD_BYTES && segments.size() > 1) {
+            // The newest segment is empty, so the last game id is in the one before it
+            try (FileChannel previous = FileChannel.open(segments.get(segments.size() - 2), StandardOpenOption.READ)) {
+                ByteBuffer previousSegment = previous.map(FileChannel.MapMode.READ_ONLY, 0, previous.size());
+                for (int previousOffset = RECORD_BYTES; previousOffset + RECORD_BYTES <= previousSegment.capacity()
+                        && isValidRecord(previousSegment, previousOffset, checksum); previousOffset += RECORD_BYTES) {
+                    lastGameId = Math.max(lastGameId, previousSegment.getLong(previousOffset + 8));
+                }
+            }
+        }
+    }
+
+    private static boolean isEmptySlot(ByteBuffer segment, int offset) {
+        for (int index = 0; index < RECORD_BYTES; index += Long.BYTES) {
+            if (segment.getLong(offset + index) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records the start of a game and its players.
+     * @return The id that identifies the game's later records.
+     */
+    public synchronized long startGame(byte gameType, int width, int height, String... playerNames) throws IOException {
+        long gameId = ++lastGameId;
+        beginRecord(GAME_STARTED, gameType, playerNames.length, gameId);
+        record.putInt(width).putInt(height).putLong(System.currentTimeMillis());
+        appendRecord();
+        for (int slot = 0; slot < playerNames.length; slot++) {
+            byte[] name = playerNames[slot].getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(name.length, Short.MAX_VALUE);
+            int start = 0;
+            do {
+                beginRecord(PLAYER_JOINED, (byte) slot, length, gameId);
+                int chunkLength = Math.min(NAME_BYTES_PER_RECORD, length - start);
+                record.put(name, start, chunkLength);
+                start += chunkLength;
+                appendRecord();
+            } while (start < length);
+        }
+        return gameId;
+    }
+
+    /**
+     * Records the starting layout of a sliding puzzle, so the game can be replayed.
+     */
+    public synchronized void recordLayout(long gameId, int[] tiles) throws IOException {
+        for (int start = 0; start < tiles.length; start += TILES_PER_RECORD) {
+            beginRecord(PUZZLE_LAYOUT, (byte) 0, 0, gameId);
+            for (int index = start; index < Math.min(tiles.length, start + TILES_PER_RECORD); index++) {
+                record.putInt(tiles[index]);
+            }
+            appendRecord();
+        }
+    }
+
+    /**
+     * Records a move: a line index in Dots and Boxes, the tile slid in the sliding puzzle.
+     * @param boxesCompleted How many boxes the move completed, 0 for puzzles.
+     */
+    public synchronized void recordMove(long gameId, int playerSlot, int move, int boxesCompleted) throws IOException {
+        beginRecord(MOVE_MADE, (byte) playerSlot, boxesCompleted, gameId);
+        record.putInt(move).putInt(0).putLong(System.currentTimeMillis());
+        appendRecord();
+    }
+
+    public synchronized void recordUndo(long gameId, int playerSlot) throws IOException {
+        beginRecord(MOVE_UNDONE, (byte) playerSlot, 0, gameId);
+        appendRecord();
+    }
+
+    public synchronized void recordRedo(long gameId, int playerSlot) throws IOException {
+        beginRecord(MOVE_REDONE, (byte) playerSlot, 0, gameId);
+        appendRecord();
+    }
+
+    /**
+     * Records how a game ended.
+     * @param outcome {@link #FINISHED} or {@link #ABANDONED}.
+     * @param scores The final score of each player; for puzzles, the number of moves made.
+     */
+    public synchronized void endGame(long gameId, byte outcome, int moveCount, int... scores) throws IOException {
+        for (int start = SCORES_IN_END_RECORD; start < scores.length; start += SCORES_PER_RECORD) {
+            beginRecord(FINAL_SCORES, (byte) 0, start, gameId);
+            for (int index = start; index < Math.min(scores.length, start + SCORES_PER_RECORD); index++) {
+                record.putInt(scores[index]);
+            }
+            appendRecord();
+        }
+        beginRecord(GAME_ENDED, outcome, scores.length, gameId);
+        record.putInt(moveCount);
+        record.putInt(scores.length > 0 ? scores[0] : 0);
+        record.putInt(scores.length > 1 ? scores[1] : 0);
+        record.putInt((int) Math.min(Integer.MAX_VALUE, System.currentTimeMillis() / 1000));
+        appendRecord();
+    }
+
+    private void beginRecord(byte type, byte slot, int smallValue, long gameId) {
+        record.clear();
+        record.putInt(0).put(type).put(slot).putShort((short) smallValue).putLong(gameId);
+    }
+
+    private void appendRecord() throws IOException {
+        while (record.hasRemaining()) record.put((byte) 0);
+        checksum.reset();
+        checksum.update(record.array(), 4, RECORD_BYTES - 4);
+        record.putInt(0, (int) checksum.getValue());
+        if (segment.remaining() < RECORD_BYTES) rollSegment();
+        record.flip();
+        segment.put(record);
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force();
+        channel.close();
+        openSegment(segmentNumber + 1);
+    }
+
+    /**
+     * Forces every record appended so far onto the disk.
+     */
+    public synchronized void sync() {
+        segment.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        segment.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replays every game of a history scan on real boards and checks that each recorded result is the
+ * one the recorded moves lead to: the final scores of a Dots and Boxes game, and for a finished
+ * puzzle that the moves solve the starting layout in the recorded number of moves.
+ */
+public class GameHistoryReplay implements GameHistoryScanner.Visitor {
+
+    /**
+     * A game being replayed.
+     */
+    private static final class ReplayedGame {
+        final byte gameType;
+        final int width;
+        final int height;
+        final Player[] players;
+        int joinedPlayers;
+        DotsAndBoxesBoard dotsBoard;
+        PuzzleBoard puzzleBoard;
+        boolean failed;
+
+        ReplayedGame(byte gameType, int width, int height, int playerCount) {
+            this.gameType = gameType;
+            this.width = width;
+            this.height = height;
+            this.players = new Player[playerCount];
+        }
+    }
+
+    private final Map<Long, ReplayedGame> games = new HashMap<>();
+    private long verifiedGames;
+    private long mismatchedGames;
+    private long firstMismatchedGameId = -1;
+
+    @Override
+    public void gameStarted(long gameId, byte gameType, int width, int height, int playerCount, long startMillis) {
+        games.put(gameId, new ReplayedGame(gameType, width, height, playerCount));
+    }
+
+    @Override
+    public void playerJoined(long gameId, int playerSlot, String name) {
+        ReplayedGame game = games.get(gameId);
+        if (game == null || playerSlot >= game.players.length || game.players[playerSlot] != null) return;
+        Player player = PlayerRegistry.getDefault().intern(name);
+        for (Player seatedPlayer : game.players) {
+            // Two players of one game can share a name, but not a seat
+            if (seatedPlayer == player) player = new Player(name);
+        }
+        game.players[playerSlot] = player;
+        game.joinedPlayers++;
+        if (game.gameType == GameHistoryLog.DOTS_AND_BOXES && game.joinedPlayers == game.players.length) {
+            try {
+                game.dotsBoard = new DotsAndBoxesBoard(game.width, game.height, game.players);
+            } catch (IllegalArgumentException exception) {
+                game.failed = true;
+            }
+        }
+    }
+
+    @Override
+    public void puzzleLayout(long gameId, int[] tiles) {
+        ReplayedGame game = games.get(gameId);
+        if (game == null) return;
+        try {
+            game.puzzleBoard = new PuzzleBoard(game.width, game.height, tiles);
+        } catch (IllegalArgumentException exception) {
+            game.failed = true;
+        }
+    }
+
+    @Override
+    public void moveMade(long gameId, int playerSlot, int move, int boxesCompleted) {
+        ReplayedGame game = games.get(gameId);
+        if (game == null || game.failed) return;
+        try {
+            if (game.dotsBoard != null) {
+                game.failed = game.dotsBoard.drawLine(move, game.players[playerSlot]) != boxesCompleted;
+            } else if (game.puzzleBoard != null) {
+                game.failed = !game.puzzleBoard.slideTile(move);
+            } else {
+                game.failed = true;
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException exception) {
+            game.failed = true;
+        }
+    }
+
+    @Override
+    public void moveUndone(long gameId, int playerSlot) {
+        ReplayedGame game = games.get(gameId);
+        if (game == null || game.failed) return;
+        if (game.dotsBoard != null) game.failed = game.dotsBoard.undoMove() == null;
+        else if (game.puzzleBoard != null) game.failed = !game.puzzleBoard.undoMove();
+    }
+
+    @Override
+    public void moveRedone(long gameId, int playerSlot) {
+        ReplayedGame game = games.get(gameId);
+        if (game == null || game.failed) return;
+        if (game.dotsBoard != null) game.failed = game.dotsBoard.redoMove() == null;
+        else if (game.puzzleBoard != null) game.failed = !game.puzzleBoard.redoMove();
+    }
+
+    @Override
+    public void gameEnded(long gameId, byte outcome, int moveCount, int[] scores) {
+        ReplayedGame game = games.remove(gameId);
+        if (game == null) return;
+        boolean matches = !game.failed;
+        if (matches && game.dotsBoard != null) {
+            matches = scores.length == game.players.length && game.dotsBoard.getMoveCount() == moveCount
+                    && game.dotsBoard.isGameOver() == (outcome == GameHistoryLog.FINISHED);
+            for (int playerIndex = 0; matches && playerIndex < scores.length; playerIndex++) {
+                matches = game.dotsBoard.getScore(playerIndex) == scores[playerIndex];
+            }
+        } else if (matches && game.puzzleBoard != null) {
+            matches = game.puzzleBoard.getMoveCount() == moveCount
+                    && game.puzzleBoard.isSolved() == (outcome == GameHistoryLog.FINISHED);
+        } else {
+            matches = false;
+        }
+        if (matches) {
+            verifiedGames++;
+        } else {
+            mismatchedGames++;
+            if (firstMismatchedGameId < 0) firstMismatchedGameId = gameId;
+        }
+    }
+
+    public long getVerifiedGames() {
+        return verifiedGames;
+    }
+
+    public long getMismatchedGames() {
+        return mismatchedGames;
+    }
+
+    /**
+     * Returns the id of the first game whose result did not match its moves, or -1 if there was none.
+     */
+    public long getFirstMismatchedGameId() {
+        return firstMismatchedGameId;
+    }
+}
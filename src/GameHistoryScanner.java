@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a {@link GameHistoryLog} back, segment by segment, and hands each record to a {@link Visitor}.
+ * Segments are memory-mapped read-only and records are decoded in place, so scanning runs at
+ * about the speed the disk can deliver the segments; only player names and puzzle layouts are
+ * copied out. A torn record at the end of the newest segment ends the scan quietly, while a bad
+ * record in an older segment, which was forced to disk when the log rolled over, is reported as corruption.
+ */
+public class GameHistoryScanner {
+
+    /**
+     * Receives the records of a scan in the order they were appended.
+     * Records of different games can be interleaved when several games were logged at once.
+     */
+    public interface Visitor {
+        /**
+         * @param playerCount How many players will join the game.
+         */
+        default void gameStarted(long gameId, byte gameType, int width, int height, int playerCount, long startMillis) {
+        }
+
+        default void playerJoined(long gameId, int playerSlot, String name) {
+        }
+
+        /**
+         * Receives the complete starting layout of a sliding puzzle.
+         */
+        default void puzzleLayout(long gameId, int[] tiles) {
+        }
+
+        default void moveMade(long gameId, int playerSlot, int move, int boxesCompleted) {
+        }
+
+        default void moveUndone(long gameId, int playerSlot) {
+        }
+
+        default void moveRedone(long gameId, int playerSlot) {
+        }
+
+        /**
+         * @param scores The final score of each player; for puzzles, the number of moves made.
+         */
+        default void gameEnded(long gameId, byte outcome, int moveCount, int[] scores) {
+        }
+    }
+
+    private final CRC32 checksum = new CRC32();
+    private final Map<Long, int[]> layoutsInProgress = new HashMap<>();
+    private final Map<Long, Integer> layoutLengths = new HashMap<>();
+    private final Map<Long, byte[]> namesInProgress = new HashMap<>();
+    private final Map<Long, Integer> nameLengths = new HashMap<>();
+    private final Map<Long, int[]> scoresInProgress = new HashMap<>();
+    private long recordsScanned;
+
+    /**
+     * Scans every segment of the log in a directory.
+     * @return The number of records scanned.
+     * @throws IOException If a segment other than the newest contains a corrupt record.
+     */
+    public long scan(Path directory, Visitor visitor) throws IOException {
+        recordsScanned = 0;
+        layoutsInProgress.clear();
+        layoutLengths.clear();
+        namesInProgress.clear();
+        nameLengths.clear();
+        scoresInProgress.clear();
+        List<Path> segments = GameHistoryLog.listSegments(directory);
+        for (int index = 0; index < segments.size(); index++) {
+            scanSegment(segments.get(index), index == segments.size() - 1, visitor);
+        }
+        return recordsScanned;
+    }
+
+    private void scanSegment(Path path, boolean newest, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            GameHistoryLog.readSegmentHeader(segment, path);
+            ByteBuffer segmentView = segment.duplicate();
+            int limit = segment.capacity() - segment.capacity() % GameHistoryLog.RECORD_BYTES;
+            for (int offset = GameHistoryLog.RECORD_BYTES; offset < limit; offset += GameHistoryLog.RECORD_BYTES) {
+                if (segment.get(offset + 4) == 0) return;
+                if (!GameHistoryLog.isValidRecord(segmentView, offset, checksum)) {
+                    if (newest) return;
+                    throw new IOException("Corrupt record at byte " + offset + " of " + path);
+                }
+                dispatch(segment, offset, visitor);
+                recordsScanned++;
+            }
+        }
+    }
+
+    private void dispatch(ByteBuffer segment, int offset, Visitor visitor) throws IOException {
+        byte type = segment.get(offset + 4);
+        byte slot = segment.get(offset + 5);
+        int smallValue = segment.getShort(offset + 6);
+        long gameId = segment.getLong(offset + 8);
+        int payload = offset + 16;
+        switch (type) {
+            case GameHistoryLog.GAME_STARTED:
+                int width = segment.getInt(payload);
+                int height = segment.getInt(payload + 4);
+                if (slot == GameHistoryLog.SLIDING_PUZZLE) {
+                    layoutsInProgress.put(gameId, new int[width * height]);
+                    layoutLengths.put(gameId, 0);
+                }
+                visitor.gameStarted(gameId, slot, width, height, playerCount(slot, smallValue), segment.getLong(payload + 8));
+                break;
+            case GameHistoryLog.PLAYER_JOINED:
+                readNameChunk(segment, payload, gameId, slot, smallValue, visitor);
+                break;
+            case GameHistoryLog.PUZZLE_LAYOUT:
+                readLayoutChunk(segment, payload, gameId, visitor);
+                break;
+            case GameHistoryLog.MOVE_MADE:
+                visitor.moveMade(gameId, slot, segment.getInt(payload), smallValue);
+                break;
+            case GameHistoryLog.MOVE_UNDONE:
+                visitor.moveUndone(gameId, slot);
+                break;
+            case GameHistoryLog.MOVE_REDONE:
+                visitor.moveRedone(gameId, slot);
+                break;
+            case GameHistoryLog.FINAL_SCORES:
+                int[] laterScores = scoresInProgress.computeIfAbsent(gameId, ignored -> new int[0]);
+                laterScores = Arrays.copyOf(laterScores, Math.max(laterScores.length, smallValue + GameHistoryLog.SCORES_PER_RECORD));
+                for (int index = 0; index < GameHistoryLog.SCORES_PER_RECORD; index++) {
+                    laterScores[smallValue + index] = segment.getInt(payload + index * 4);
+                }
+                scoresInProgress.put(gameId, laterScores);
+                break;
+            case GameHistoryLog.GAME_ENDED:
+                int[] scores = new int[smallValue];
+                int[] collectedScores = scoresInProgress.remove(gameId);
+                for (int index = 0; index < smallValue; index++) {
+                    if (index < GameHistoryLog.SCORES_IN_END_RECORD) {
+                        scores[index] = segment.getInt(payload + 4 + index * 4);
+                    } else if (collectedScores != null && index < collectedScores.length) {
+                        scores[index] = collectedScores[index];
+                    }
+                }
+                layoutsInProgress.remove(gameId);
+                layoutLengths.remove(gameId);
+                visitor.gameEnded(gameId, slot, segment.getInt(payload), scores);
+                break;
+            default:
+                throw new IOException("Unknown record type " + type + " for game " + gameId + ".");
+        }
+    }
+
+    /**
+     * Logs written before games recorded their player count hold 0 there, when every Dots and Boxes
+     * game had two players and every puzzle one.
+     */
+    private static int playerCount(byte gameType, int recordedCount) {
+        if (recordedCount > 0) return recordedCount;
+        return gameType == GameHistoryLog.DOTS_AND_BOXES ? 2 : 1;
+    }
+
+    /**
+     * Names longer than one record are spread over consecutive records for the same slot.
+     */
+    private void readNameChunk(ByteBuffer segment, int payload, long gameId, int slot, int length, Visitor visitor) {
+        if (length <= GameHistoryLog.NAME_BYTES_PER_RECORD) {
+            byte[] name = new byte[length];
+            copyBytes(segment, payload, name, 0, length);
+            visitor.playerJoined(gameId, slot, new String(name, StandardCharsets.UTF_8));
+            return;
+        }
+        long key = gameId * 256 + slot;
+        byte[] name = namesInProgress.computeIfAbsent(key, ignored -> new byte[length]);
+        int start = nameLengths.getOrDefault(key, 0);
+        int chunkLength = Math.min(GameHistoryLog.NAME_BYTES_PER_RECORD, length - start);
+        copyBytes(segment, payload, name, start, chunkLength);
+        if (start + chunkLength < length) {
+            nameLengths.put(key, start + chunkLength);
+            return;
+        }
+        namesInProgress.remove(key);
+        nameLengths.remove(key);
+        visitor.playerJoined(gameId, slot, new String(name, StandardCharsets.UTF_8));
+    }
+
+    private static void copyBytes(ByteBuffer segment, int offset, byte[] destination, int start, int length) {
+        for (int index = 0; index < length; index++) {
+            destination[start + index] = segment.get(offset + index);
+        }
+    }
+
+    /**
+     * Collects the layout records of a puzzle, which follow its start record, until every tile has arrived.
+     */
+    private void readLayoutChunk(ByteBuffer segment, int payload, long gameId, Visitor visitor) throws IOException {
+        int[] tiles = layoutsInProgress.get(gameId);
+        if (tiles == null) throw new IOException("Layout of game " + gameId + " has no size.");
+        int start = layoutLengths.get(gameId);
+        int end = Math.min(tiles.length, start + GameHistoryLog.TILES_PER_RECORD);
+        for (int index = start; index < end; index++) {
+            tiles[index] = segment.getInt(payload + (index - start) * 4);
+        }
+        if (end < tiles.length) {
+            layoutLengths.put(gameId, end);
+            return;
+        }
+        layoutsInProgress.remove(gameId);
+        layoutLengths.remove(gameId);
+        visitor.puzzleLayout(gameId, tiles);
+    }
+
+    /**
+     * Prints statistics for a history directory, and with {@code replay} also checks every game
+     * against its moves, for example {@code java GameHistoryScanner history replay}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: GameHistoryScanner <history directory> [replay]");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        GameHistoryScanner scanner = new GameHistoryScanner();
+        GameHistoryStatistics statistics = new GameHistoryStatistics();
+        long startNanos = System.nanoTime();
+        long records = scanner.scan(directory, statistics);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.print(statistics);
+        System.out.printf("Scanned %d records in %.2f s (%.0f MB/s)%n", records, seconds,
+                records * GameHistoryLog.RECORD_BYTES / 1e6 / seconds);
+
+        if (args.length > 1 && args[1].equalsIgnoreCase("replay")) {
+            GameHistoryReplay replay = new GameHistoryReplay();
+            scanner.scan(directory, replay);
+            System.out.printf("Replayed %d games: %d matched their results, %d did not%s%n",
+                    replay.getVerifiedGames() + replay.getMismatchedGames(), replay.getVerifiedGames(), replay.getMismatchedGames(),
+                    replay.getMismatchedGames() == 0 ? "" : " (first: game " + replay.getFirstMismatchedGameId() + ")");
+        }
+    }
+}
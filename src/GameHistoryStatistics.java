@@ -0,0 +1,186 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates a scan of the game history: win, loss and tie counts per Dots and Boxes player and
+ * the average number of moves puzzles were solved in, per board size. Only games that were played
+ * to the end count towards these figures; abandoned games are counted separately.
+ */
+public class GameHistoryStatistics implements GameHistoryScanner.Visitor {
+
+    /**
+     * One player's Dots and Boxes results.
+     */
+    public static final class PlayerRecord {
+        private long wins;
+        private long losses;
+        private long ties;
+
+        public long getGamesPlayed() {
+            return wins + losses + ties;
+        }
+
+        public long getWins() {
+            return wins;
+        }
+
+        public long getLosses() {
+            return losses;
+        }
+
+        public long getTies() {
+            return ties;
+        }
+
+        public double getWinRate() {
+            long games = getGamesPlayed();
+            return games == 0 ? 0 : (double) wins / games;
+        }
+    }
+
+    /**
+     * The solved puzzles of one board size.
+     */
+    public static final class PuzzleRecord {
+        private long solvedCount;
+        private long totalMoves;
+
+        public long getSolvedCount() {
+            return solvedCount;
+        }
+
+        public double getAverageSolveLength() {
+            return solvedCount == 0 ? 0 : (double) totalMoves / solvedCount;
+        }
+    }
+
+    /**
+     * What is known about a game between its start and end records.
+     */
+    private static final class OpenGame {
+        final byte gameType;
+        final int width;
+        final int height;
+        final String[] playerNames;
+
+        OpenGame(byte gameType, int width, int height, int playerCount) {
+            this.gameType = gameType;
+            this.width = width;
+            this.height = height;
+            this.playerNames = new String[playerCount];
+        }
+    }
+
+    private final Map<Long, OpenGame> openGames = new HashMap<>();
+    private final Map<String, PlayerRecord> players = new TreeMap<>();
+    private final Map<String, PuzzleRecord> puzzles = new TreeMap<>();
+    private long finishedGames;
+    private long abandonedGames;
+    private long movesMade;
+
+    @Override
+    public void gameStarted(long gameId, byte gameType, int width, int height, int playerCount, long startMillis) {
+        openGames.put(gameId, new OpenGame(gameType, width, height, playerCount));
+    }
+
+    @Override
+    public void playerJoined(long gameId, int playerSlot, String name) {
+        OpenGame game = openGames.get(gameId);
+        if (game != null && playerSlot < game.playerNames.length) game.playerNames[playerSlot] = name;
+    }
+
+    @Override
+    public void moveMade(long gameId, int playerSlot, int move, int boxesCompleted) {
+        movesMade++;
+    }
+
+    @Override
+    public void gameEnded(long gameId, byte outcome, int moveCount, int[] scores) {
+        OpenGame game = openGames.remove(gameId);
+        if (game == null) return;
+        if (outcome != GameHistoryLog.FINISHED) {
+            abandonedGames++;
+            return;
+        }
+        finishedGames++;
+        if (game.gameType == GameHistoryLog.SLIDING_PUZZLE) {
+            PuzzleRecord puzzle = puzzles.computeIfAbsent(game.width + "x" + game.height, ignored -> new PuzzleRecord());
+            puzzle.solvedCount++;
+            puzzle.totalMoves += moveCount;
+        } else if (scores.length == game.playerNames.length) {
+            // The best score wins; players sharing it tie, and everyone else loses
+            int bestScore = Integer.MIN_VALUE;
+            int bestCount = 0;
+            for (int score : scores) {
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestCount = 1;
+                } else if (score == bestScore) {
+                    bestCount++;
+                }
+            }
+            for (int playerIndex = 0; playerIndex < scores.length; playerIndex++) {
+                PlayerRecord record = playerRecord(game.playerNames[playerIndex]);
+                if (scores[playerIndex] < bestScore) record.losses++;
+                else if (bestCount == 1) record.wins++;
+                else record.ties++;
+            }
+        }
+    }
+
+    private PlayerRecord playerRecord(String name) {
+        return players.computeIfAbsent(name == null ? "?" : name, ignored -> new PlayerRecord());
+    }
+
+    /**
+     * Returns each Dots and Boxes player's results, by name.
+     */
+    public Map<String, PlayerRecord> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Returns the solved puzzles by board size, such as "4x4".
+     */
+    public Map<String, PuzzleRecord> getPuzzles() {
+        return puzzles;
+    }
+
+    public long getFinishedGames() {
+        return finishedGames;
+    }
+
+    public long getAbandonedGames() {
+        return abandonedGames;
+    }
+
+    public long getMovesMade() {
+        return movesMade;
+    }
+
+    /**
+     * Returns the number of games that started but have no end record, such as games still being played.
+     */
+    public long getOpenGames() {
+        return openGames.size();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%d games finished, %d abandoned, %d unfinished, %d moves%n",
+                finishedGames, abandonedGames, openGames.size(), movesMade));
+        for (Map.Entry<String, PlayerRecord> entry : players.entrySet()) {
+            PlayerRecord record = entry.getValue();
+            summary.append(String.format("%-20s %8d games %8d won %8d lost %8d tied %6.1f%% win rate%n", entry.getKey(),
+                    record.getGamesPlayed(), record.wins, record.losses, record.ties, record.getWinRate() * 100));
+        }
+        for (Map.Entry<String, PuzzleRecord> entry : puzzles.entrySet()) {
+            PuzzleRecord record = entry.getValue();
+            summary.append(String.format("%-9s puzzles %8d solved, %.1f moves on average%n",
+                    entry.getKey(), record.solvedCount, record.getAverageSolveLength()));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Supplies the lines a game reads as player input, such as names, board sizes and moves.
+ * The console adapts a {@link java.util.Scanner}; headless and remote drivers can feed
+ * scripted or network input to the same game logic.
+ */
+@FunctionalInterface
+public interface GameInput {
+
+    /**
+     * Returns the next line of input, or null once the input has ended.
+     */
+    String nextLine();
+}
@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Hosts many independent Dots and Boxes and sliding puzzle sessions over a line-based TCP protocol.
+ * A single selector thread accepts connections, reads commands and writes replies without blocking,
+ * so thousands of idle or slow clients cost only their buffers. Each connection owns its own
+ * session and board, and moves use the same text as the console games: "row col H" for Dots and Boxes
+ * and a tile number for the puzzle.
+ *
+ * <p>Commands are {@code NEW DOTS <width> <height> [COMPUTER]}, {@code NEW PUZZLE <width> <height>},
+ * a move, {@code BOARD} and {@code QUIT}. Every reply ends with exactly one line starting with
+ * {@code OK}, {@code OVER} or {@code ERR}; any lines before it, such as the computer's {@code MOVE}
+ * lines or the rendered board, belong to the same reply.</p>
+ */
+public class GameServer implements Runnable, AutoCloseable {
+
+    public static final int DEFAULT_PORT = 4455;
+
+    /**
+     * The largest board a session may ask for, which keeps thousands of sessions within a modest heap.
+     */
+    public static final int MAX_SESSION_DIMENSION = 50;
+
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final int READ_BUFFER_BYTES = 1024;
+    private static final int WRITE_BUFFER_BYTES = 1024;
+
+    /**
+     * A session stops reading commands while this much of its output is still waiting to be sent.
+     */
+    private static final int MAX_PENDING_OUTPUT_BYTES = 1024 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+    private volatile int sessionCount;
+
+    /**
+     * Opens the listening socket.
+     * @param port The port to listen on, or 0 to pick any free port.
+     */
+    public GameServer(int port) throws IOException {
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Serves connections until {@link #close()} is called.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) {
+                            acceptConnection();
+                        } else {
+                            if (key.isReadable()) ((GameSession) key.attachment()).readCommands(key);
+                            if (key.isValid() && key.isWritable()) ((GameSession) key.attachment()).flush(key);
+                        }
+                    } catch (IOException exception) {
+                        closeSession(key);
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Game server failed: " + exception.getMessage(), exception);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void acceptConnection() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new GameSession(channel));
+            sessionCount++;
+        }
+    }
+
+    private void closeSession(SelectionKey key) {
+        if (key.attachment() instanceof GameSession) sessionCount--;
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing useful can be done while shutting a connection down
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        closeQuietly(key.channel());
+    }
+
+    /**
+     * Stops the server and closes every connection.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * The state of one connection: its buffers and the game it is playing.
+     */
+    private final class GameSession {
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final StringBuilder currentLine = new StringBuilder();
+        private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        private final StringBuilder reply = new StringBuilder();
+        private boolean closeAfterFlush;
+
+        private DotsAndBoxesBoard dotsBoard;
+        private Player firstPlayer;
+        private Player secondPlayer;
+        private Player currentPlayer;
+        private DotsAndBoxesPolicy computerOpponent;
+        private PuzzleBoard puzzleBoard;
+        private final Random random = new Random();
+
+        GameSession(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void readCommands(SelectionKey key) throws IOException {
+            int bytesRead = channel.read(readBuffer);
+            if (bytesRead < 0) {
+                closeSession(key);
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.hasRemaining() && !closeAfterFlush) {
+                char character = (char) (readBuffer.get() & 0xFF);
+                if (character == '\n') {
+                    handleLine(currentLine.toString().trim());
+                    currentLine.setLength(0);
+                } else if (currentLine.length() == MAX_LINE_LENGTH) {
+                    send("ERR Line too long.");
+                    closeAfterFlush = true;
+                } else {
+                    currentLine.append(character);
+                }
+            }
+            readBuffer.clear();
+            flush(key);
+        }
+
+        void flush(SelectionKey key) throws IOException {
+            writeBuffer.flip();
+            channel.write(writeBuffer);
+            writeBuffer.compact();
+            if (writeBuffer.position() > 0) {
+                int interest = SelectionKey.OP_WRITE;
+                if (writeBuffer.position() < MAX_PENDING_OUTPUT_BYTES && !closeAfterFlush) interest |= SelectionKey.OP_READ;
+                key.interestOps(interest);
+            } else if (closeAfterFlush) {
+                closeSession(key);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void send(String line) {
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            if (writeBuffer.remaining() < bytes.length) {
+                ByteBuffer largerBuffer = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + bytes.length));
+                writeBuffer.flip();
+                largerBuffer.put(writeBuffer);
+                writeBuffer = largerBuffer;
+            }
+            writeBuffer.put(bytes);
+        }
+
+        private void handleLine(String line) {
+            if (line.isEmpty()) return;
+            String[] parts = line.split("\\s+");
+            String command = parts[0].toUpperCase();
+            try {
+                if (command.equals("NEW")) {
+                    startGame(parts);
+                } else if (command.equals("BOARD")) {
+                    sendBoard();
+                } else if (command.equals("QUIT")) {
+                    send("OK BYE");
+                    closeAfterFlush = true;
+                } else if (dotsBoard != null) {
+                    playDotsMove(parts);
+                } else if (puzzleBoard != null) {
+                    playPuzzleMove(parts);
+                } else {
+                    send("ERR Start a game with NEW DOTS or NEW PUZZLE.");
+                }
+            } catch (NumberFormatException exception) {
+                send("ERR Invalid input. Please enter numbers only.");
+            } catch (IllegalArgumentException | IllegalStateException exception) {
+                send("ERR " + exception.getMessage());
+            }
+        }
+
+        private void startGame(String[] parts) {
+            if (parts.length < 4) throw new IllegalArgumentException("Usage: NEW DOTS|PUZZLE <width> <height> [COMPUTER]");
+            int width = Integer.parseInt(parts[2]);
+            int height = Integer.parseInt(parts[3]);
+            if (width > MAX_SESSION_DIMENSION || height > MAX_SESSION_DIMENSION) {
+                throw new IllegalArgumentException("Server games may be at most " + MAX_SESSION_DIMENSION + " wide and high.");
+            }
+            String game = parts[1].toUpperCase();
+            if (game.equals("DOTS")) {
+                firstPlayer = PlayerRegistry.getDefault().intern("Player 1");
+                boolean againstComputer = parts.length > 4 && parts[4].equalsIgnoreCase("COMPUTER");
+                secondPlayer = PlayerRegistry.getDefault().intern(againstComputer ? "Computer" : "Player 2");
+                dotsBoard = new DotsAndBoxesBoard(width, height, firstPlayer, secondPlayer);
+                currentPlayer = firstPlayer;
+                // The greedy policy answers in microseconds, so it never stalls the selector thread
+                computerOpponent = againstComputer ? DotsAndBoxesPolicy.greedy() : null;
+                puzzleBoard = null;
+                send("OK DOTS " + width + " " + height);
+            } else if (game.equals("PUZZLE")) {
+                puzzleBoard = new PuzzleBoard(width, height);
+                dotsBoard = null;
+                send("OK PUZZLE " + width + " " + height);
+            } else {
+                throw new IllegalArgumentException("Unknown game: " + parts[1]);
+            }
+        }
+
+        private void sendBoard() {
+            if (dotsBoard == null && puzzleBoard == null) throw new IllegalStateException("No game in progress.");
+            String board = dotsBoard != null ? dotsBoard.getBoardAsString() : puzzleBoard.getBoardAsString();
+            reply.setLength(0);
+            reply.append(board);
+            if (reply.length() > 0 && reply.charAt(reply.length() - 1) == '\n') reply.setLength(reply.length() - 1);
+            send(reply.toString());
+            send("OK");
+        }
+
+        private void playDotsMove(String[] parts) {
+            if (dotsBoard.isGameOver()) throw new IllegalStateException("The game is over.");
+            if (parts.length != 3) throw new IllegalArgumentException("Input must have 3 parts.");
+            int rowIndex = Integer.parseInt(parts[0]);
+            int columnIndex = Integer.parseInt(parts[1]);
+            char direction = parts[2].toUpperCase().charAt(0);
+            if (direction != 'H' && direction != 'V') throw new IllegalArgumentException("Direction must be 'H' or 'V'.");
+
+            int boxesCompleted = dotsBoard.tryDrawLine(dotsBoard.lineIndex(rowIndex, columnIndex, direction), currentPlayer);
+            if (boxesCompleted < 0) {
+                send("ERR " + DotsAndBoxesBoard.describeResult(boxesCompleted));
+                return;
+            }
+            if (boxesCompleted == 0) switchPlayer();
+            while (computerOpponent != null && currentPlayer == secondPlayer && !dotsBoard.isGameOver()) {
+                int lineIndex = computerOpponent.chooseLine(dotsBoard, random);
+                send("MOVE " + dotsBoard.describeLine(lineIndex));
+                if (dotsBoard.drawLine(lineIndex, currentPlayer) == 0) switchPlayer();
+            }
+
+            int firstScore = dotsBoard.getScore(firstPlayer);
+            int secondScore = dotsBoard.getScore(secondPlayer);
+            if (dotsBoard.isGameOver()) {
+                send("OVER " + firstScore + " " + secondScore);
+            } else {
+                send("OK " + firstScore + " " + secondScore + " " + (currentPlayer == firstPlayer ? 1 : 2));
+            }
+        }
+
+        private void switchPlayer() {
+            currentPlayer = currentPlayer == firstPlayer ? secondPlayer : firstPlayer;
+        }
+
+        private void playPuzzleMove(String[] parts) {
+            if (puzzleBoard.isSolved()) throw new IllegalStateException("The puzzle is already solved.");
+            if (parts.length != 1) throw new IllegalArgumentException("Enter a single tile number.");
+            if (!puzzleBoard.slideTile(Integer.parseInt(parts[0]))) {
+                throw new IllegalArgumentException("That tile is not adjacent to the empty space.");
+            }
+            send((puzzleBoard.isSolved() ? "OVER " : "OK ") + puzzleBoard.getMoveCount());
+        }
+    }
+
+    /**
+     * Runs the server from the command line: {@code java GameServer [port]}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        MetricsExporter metrics = MetricsExporter.startFromSystemProperties();
+        try (GameServer server = new GameServer(port)) {
+            System.out.println("Game server listening on port " + server.getPort() + ".");
+            server.run();
+        } finally {
+            if (metrics != null) metrics.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values such as latencies in nanoseconds, laid out like
+ * an HdrHistogram: values below 64 get a bucket each, and every power of two above that is split
+ * into 32 buckets, so any recorded value is reported to within about 3% using a fixed 15 KB of
+ * counters. Recording is a couple of atomic increments and never allocates, so many threads can
+ * record into one histogram while another reads percentiles from it.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one value; negative values are counted as zero.
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(clamped));
+        totalCount.increment();
+        totalValue.add(clamped);
+        long currentMax = maxValue.get();
+        while (clamped > currentMax && !maxValue.compareAndSet(currentMax, clamped)) {
+            currentMax = maxValue.get();
+        }
+    }
+
+    /**
+     * Records the nanoseconds elapsed since a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getTotal() {
+        return totalValue.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * Returns the value that the given percentage of recorded values are at or below,
+     * rounded up to the top of its bucket.
+     * @param percentile Between 0 and 100, for example 99.9.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            count += snapshot[bucket];
+        }
+        if (count == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= target) return Math.min(highestValueIn(bucket), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears every recorded value. Values recorded while the reset is running may be lost.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts.set(bucket, 0);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        maxValue.set(0);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < 2 * SUB_BUCKET_COUNT) return bucket;
+        int shift = bucket / SUB_BUCKET_COUNT - 1;
+        long lowestValue = (long) (bucket - shift * SUB_BUCKET_COUNT) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
@@ -7,8 +9,23 @@ import java.util.Scanner;
  */
 public class MainMenu {
 
-    public static void main(String[] args) {
-        new MainMenu().run();
+    /**
+     * Where games are recorded, or null; set with {@code -Dboardgames.history.dir=<directory>}.
+     */
+    private final GameHistoryLog history;
+
+    private MainMenu(GameHistoryLog history) {
+        this.history = history;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String historyDirectory = System.getProperty("boardgames.history.dir");
+        MetricsExporter metrics = MetricsExporter.startFromSystemProperties();
+        try (GameHistoryLog history = historyDirectory == null ? null : GameHistoryLog.open(Paths.get(historyDirectory))) {
+            new MainMenu(history).run();
+        } finally {
+            if (metrics != null) metrics.close();
+        }
     }
 
     private void run() {
@@ -23,6 +40,7 @@ public class MainMenu {
                 scanner.close();
                 break;
             }
+            selectedGame.setHistory(history);
             selectedGame.play(scanner);
         }
     }
@@ -36,6 +54,7 @@ public class MainMenu {
     }
 
     private Game selectGame(Scanner scanner) {
+        if (!scanner.hasNextLine()) return null;
         String userChoice = scanner.nextLine();
         switch (userChoice) {
             case "1":
@@ -0,0 +1,99 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics for the hot paths of both boards and the lifecycle of every game.
+ * Metrics are switched on by starting the JVM with {@code -Dboardgames.metrics=true}. The switch is
+ * a constant, so when it is off the JIT compiler removes every guarded timing call and the
+ * instrumented methods cost nothing extra. Latencies are recorded in nanoseconds into
+ * {@link LatencyHistogram}s and events are counted with {@link LongAdder}s, so recording never
+ * takes a lock; {@link MetricsExporter} publishes snapshots to a file or over JMX.
+ */
+public final class Metrics {
+
+    /**
+     * Whether metrics are recorded. Instrumented code checks this before reading the clock.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("boardgames.metrics");
+
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new LinkedHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new LinkedHashMap<>();
+
+    public static final LatencyHistogram DOTS_DRAW_LINE = histogram("dots.drawLine.nanos");
+    public static final LatencyHistogram DOTS_CHECK_COMPLETED_BOXES = histogram("dots.checkForCompletedBoxes.nanos");
+    public static final LatencyHistogram DOTS_RENDER = histogram("dots.render.nanos");
+    public static final LatencyHistogram PUZZLE_SLIDE_TILE = histogram("puzzle.slideTile.nanos");
+    public static final LatencyHistogram PUZZLE_RENDER = histogram("puzzle.render.nanos");
+    public static final LatencyHistogram GAME_DURATION = histogram("game.duration.nanos");
+    public static final LatencyHistogram GAME_ALLOCATED_BYTES = histogram("game.allocated.bytes");
+
+    public static final LongAdder GAMES_STARTED = counter("game.started");
+    public static final LongAdder GAMES_FINISHED = counter("game.finished");
+    public static final LongAdder GAMES_FAILED = counter("game.failed");
+    public static final LongAdder MCTS_PLAYOUTS = counter("mcts.playouts");
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private Metrics() {
+    }
+
+    private static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = new LatencyHistogram(name);
+        HISTOGRAMS.put(name, histogram);
+        return histogram;
+    }
+
+    private static LongAdder counter(String name) {
+        LongAdder counter = new LongAdder();
+        COUNTERS.put(name, counter);
+        return counter;
+    }
+
+    /**
+     * Returns every histogram by name, in a fixed order.
+     */
+    public static Map<String, LatencyHistogram> histograms() {
+        return Collections.unmodifiableMap(HISTOGRAMS);
+    }
+
+    /**
+     * Returns every counter by name, in a fixed order.
+     */
+    public static Map<String, LongAdder> counters() {
+        return Collections.unmodifiableMap(COUNTERS);
+    }
+
+    /**
+     * Returns the bytes allocated so far by the calling thread, or -1 if the JVM cannot tell.
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREAD_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Records a finished game from the clock and allocation readings taken when it started.
+     */
+    public static void recordGame(long startNanos, long allocatedBytesAtStart, boolean finishedNormally) {
+        GAME_DURATION.recordSince(startNanos);
+        long allocatedBytes = currentThreadAllocatedBytes();
+        if (allocatedBytes >= 0 && allocatedBytesAtStart >= 0) {
+            GAME_ALLOCATED_BYTES.record(allocatedBytes - allocatedBytesAtStart);
+        }
+        (finishedNormally ? GAMES_FINISHED : GAMES_FAILED).increment();
+    }
+
+    /**
+     * Clears every histogram and counter.
+     */
+    public static void reset() {
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+        COUNTERS.values().forEach(LongAdder::reset);
+    }
+}
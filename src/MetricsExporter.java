@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes snapshots of {@link Metrics}: periodically to a text file, which is replaced atomically
+ * so readers never see half a snapshot, and as read-only JMX attributes under
+ * {@code boardgames:type=Metrics}. Each histogram is reported as its count, p50, p99, p999,
+ * max and mean; the allocation rate is derived from the bytes allocated and the time spent in games.
+ */
+public class MetricsExporter implements AutoCloseable {
+    private static final String OBJECT_NAME = "boardgames:type=Metrics";
+
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectName registeredName;
+
+    private MetricsExporter(Path file, ScheduledExecutorService scheduler, ObjectName registeredName) {
+        this.file = file;
+        this.scheduler = scheduler;
+        this.registeredName = registeredName;
+    }
+
+    /**
+     * Starts writing a snapshot to a file every period, and once more when closed.
+     * @param registerJmx Whether to also publish the metrics over JMX.
+     */
+    public static MetricsExporter start(Path file, long periodMillis, boolean registerJmx) {
+        if (periodMillis <= 0) throw new IllegalArgumentException("Export period must be positive.");
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> writeQuietly(file), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return new MetricsExporter(file, scheduler, registerJmx ? registerMBean() : null);
+    }
+
+    /**
+     * Starts the exporter configured by system properties when metrics are enabled:
+     * {@code boardgames.metrics.file} (default {@code metrics.txt}) and
+     * {@code boardgames.metrics.periodMillis} (default 10000). JMX is always registered.
+     * @return The running exporter, or null if metrics are disabled.
+     */
+    public static MetricsExporter startFromSystemProperties() {
+        if (!Metrics.ENABLED) return null;
+        Path file = Paths.get(System.getProperty("boardgames.metrics.file", "metrics.txt"));
+        long periodMillis = Long.getLong("boardgames.metrics.periodMillis", 10_000L);
+        return start(file, periodMillis, true);
+    }
+
+    /**
+     * Returns the current value of every metric, keyed by names such as {@code dots.drawLine.nanos.p99}.
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        for (LatencyHistogram histogram : Metrics.histograms().values()) {
+            String name = histogram.getName();
+            values.put(name + ".count", histogram.getCount());
+            values.put(name + ".p50", histogram.getValueAtPercentile(50));
+            values.put(name + ".p99", histogram.getValueAtPercentile(99));
+            values.put(name + ".p999", histogram.getValueAtPercentile(99.9));
+            values.put(name + ".max", histogram.getMax());
+            values.put(name + ".mean", histogram.getMean());
+        }
+        for (Map.Entry<String, LongAdder> counter : Metrics.counters().entrySet()) {
+            values.put(counter.getKey(), counter.getValue().sum());
+        }
+        long gameNanos = Metrics.GAME_DURATION.getTotal();
+        double bytesPerSecond = gameNanos == 0 ? 0 : Metrics.GAME_ALLOCATED_BYTES.getTotal() * 1e9 / gameNanos;
+        values.put("game.allocated.bytesPerSecond", bytesPerSecond);
+        return values;
+    }
+
+    /**
+     * Writes the current snapshot as one {@code name value} line per metric.
+     */
+    public static void writeSnapshot(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# " + Instant.now());
+        for (Map.Entry<String, Number> value : snapshot().entrySet()) {
+            Number number = value.getValue();
+            lines.add(value.getKey() + " " + (number instanceof Double ? String.format("%.1f", number.doubleValue()) : number));
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryFile, lines, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static void writeQuietly(Path file) {
+        try {
+            writeSnapshot(file);
+        } catch (IOException exception) {
+            System.err.println("Could not write metrics to " + file + ": " + exception.getMessage());
+        }
+    }
+
+    private static ObjectName registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+            return name;
+        } catch (JMException exception) {
+            throw new IllegalStateException("Could not register the metrics MBean.", exception);
+        }
+    }
+
+    /**
+     * Writes a final snapshot, stops the periodic export and unregisters the JMX attributes.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        writeQuietly(file);
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException ignored) {
+                // Already unregistered
+            }
+        }
+    }
+
+    /**
+     * Exposes every value of {@link #snapshot()} as a read-only attribute.
+     */
+    private static final class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = snapshot().get(attribute);
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Number value = values.get(attribute);
+                if (value != null) list.add(new Attribute(attribute, value));
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("Metrics have no operations.");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Number> value : snapshot().entrySet()) {
+                String type = value.getValue() instanceof Double ? "double" : "long";
+                attributes.add(new MBeanAttributeInfo(value.getKey(), type, value.getKey(), true, false, false));
+            }
+            return new MBeanInfo(MetricsMBean.class.getName(), "Board game runtime metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Replays archives of recorded games, written in the move format the console games accept, and
+ * checks that every move was legal and every recorded result is the one the moves lead to.
+ * A log holds any number of games, each opened by a header line and closed by an {@code END} line:
+ *
+ * <pre>
+ * # Dots and Boxes: width and height in dots, then optionally the number of players
+ * DOTS 3 3 2
+ * 0 0 H
+ * 0 0 V
+ * undo
+ * ...
+ * END 3 1        # optional final scores, in turn order; the game must be over
+ * # Sliding puzzle: width, height and the starting layout, row by row, 0 for the space
+ * PUZZLE 2 2 1 2 0 3
+ * 3
+ * END 1          # optional number of moves the puzzle was solved in
+ * </pre>
+ *
+ * Lines may also say {@code redo}, {@code hint} (ignored) or {@code quit}, which ends a game
+ * without a result. Files are memory-mapped and cut into segments at game boundaries, the segments
+ * are replayed in parallel, and {@link MoveLogTokenizer} reads them without allocating; moves are
+ * collected into batches for {@link DotsAndBoxesBoard#applyMoves} and {@link PuzzleBoard#applyMoves}.
+ */
+public class MoveLogReplay {
+
+    /** Logs are cut into segments of about this many bytes, each replayed as one task. */
+    static final long SEGMENT_BYTES = 32L * 1024 * 1024;
+    /** How many moves are collected before they are applied. */
+    private static final int BATCH_MOVES = 256;
+    /** How many error messages a replay keeps; the rest are only counted. */
+    private static final int MAX_ERRORS = 20;
+    /** The most numbers a line can hold: the dimensions and layout of the largest puzzle. */
+    private static final int MAX_LINE_NUMBERS = 2 + Board.MAX_DIMENSION * Board.MAX_DIMENSION;
+
+    private static final int NO_GAME = 0;
+    private static final int DOTS_GAME = 1;
+    private static final int PUZZLE_GAME = 2;
+
+    /**
+     * What a replay found. Every game is counted as exactly one of valid, invalid or unfinished.
+     */
+    public static final class Result {
+        private long bytes;
+        private long games;
+        private long validGames;
+        private long invalidGames;
+        private long unfinishedGames;
+        private long moves;
+        private long errorCount;
+        private long elapsedNanos;
+        private final List<String> errors = new ArrayList<>();
+
+        void addError(String message) {
+            errorCount++;
+            if (errors.size() < MAX_ERRORS) errors.add(message);
+        }
+
+        void merge(Result other) {
+            bytes += other.bytes;
+            games += other.games;
+            validGames += other.validGames;
+            invalidGames += other.invalidGames;
+            unfinishedGames += other.unfinishedGames;
+            moves += other.moves;
+            errorCount += other.errorCount;
+            for (String error : other.errors) {
+                if (errors.size() < MAX_ERRORS) errors.add(error);
+            }
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getValidGames() {
+            return validGames;
+        }
+
+        public long getInvalidGames() {
+            return invalidGames;
+        }
+
+        /**
+         * Returns the number of games that had no {@code END} or {@code quit} line.
+         */
+        public long getUnfinishedGames() {
+            return unfinishedGames;
+        }
+
+        public long getMoves() {
+            return moves;
+        }
+
+        /**
+         * Returns the first few errors found, each naming the file and byte offset of the problem.
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%d games: %d valid, %d invalid, %d unfinished; %d moves, %d errors%n"
+                            + "%.1f MB in %.2f s (%.0f MB/s, %.0f moves/s)",
+                    games, validGames, invalidGames, unfinishedGames, moves, errorCount,
+                    bytes / 1e6, seconds, seconds == 0 ? 0 : bytes / 1e6 / seconds, seconds == 0 ? 0 : moves / seconds);
+        }
+    }
+
+    private final int threadCount;
+
+    /**
+     * @param threadCount How many segments are replayed at once.
+     */
+    public MoveLogReplay(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Replays every game in the given files.
+     * @throws IOException If a file cannot be read.
+     */
+    public Result replay(List<Path> files) throws IOException {
+        long startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Result>> results = new ArrayList<>();
+            long totalBytes = 0;
+            for (Path file : files) {
+                long fileSize = Files.size(file);
+                totalBytes += fileSize;
+                for (long segmentStart = 0; segmentStart < fileSize; segmentStart += SEGMENT_BYTES) {
+                    long start = segmentStart;
+                    long end = Math.min(fileSize, segmentStart + SEGMENT_BYTES);
+                    results.add(executor.submit(() -> new SegmentReplay(file, fileSize, start, end).run()));
+                }
+            }
+            Result result = new Result();
+            for (Future<Result> segmentResult : results) {
+                result.merge(segmentResult.get());
+            }
+            result.bytes = totalBytes;
+            result.elapsedNanos = System.nanoTime() - startNanos;
+            return result;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Replay was interrupted.", exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof IOException) throw (IOException) exception.getCause();
+            throw new IllegalStateException("Replay failed: " + exception.getCause().getMessage(), exception.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Replays the games that start within one segment of a file. A game that starts in the segment
+     * is followed to its end even if that lies beyond the segment; the lines before the first game
+     * of a segment belong to the segment before it.
+     */
+    private static final class SegmentReplay {
+        final Path file;
+        final long fileSize;
+        final long segmentStart;
+        final long segmentEnd;
+        final Result result = new Result();
+        final MoveLogTokenizer tokenizer = new MoveLogTokenizer();
+        final int[] pendingMoves = new int[BATCH_MOVES];
+        final long[] pendingOffsets = new long[BATCH_MOVES];
+        final int[] pendingResults = new int[BATCH_MOVES];
+        /** The numbers of the line being read, grown for puzzle headers that list many tiles. */
+        int[] numbers = new int[16];
+        /** Boards only read their players, so games with the same number of players share them. */
+        final Player[][] seatsByCount = new Player[8][];
+        int pendingCount;
+
+        int gameType = NO_GAME;
+        long gameOffset;
+        boolean gameFailed;
+        DotsAndBoxesBoard dotsBoard;
+        PuzzleBoard puzzleBoard;
+
+        SegmentReplay(Path file, long fileSize, long segmentStart, long segmentEnd) {
+            this.file = file;
+            this.fileSize = fileSize;
+            this.segmentStart = segmentStart;
+            this.segmentEnd = segmentEnd;
+        }
+
+        Result run() throws IOException {
+            // Map from the byte before the segment, which tells whether the segment starts a line
+            long mapStart = Math.max(0, segmentStart - 1);
+            long mapLength = Math.min(fileSize - mapStart, Integer.MAX_VALUE);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapLength);
+                tokenizer.reset(mapped, mapStart, 0);
+            }
+            if (segmentStart > 0) tokenizer.skipLine();
+            boolean seenGame = false;
+            while (true) {
+                int token = tokenizer.next();
+                if (token == MoveLogTokenizer.END_OF_INPUT) break;
+                if (token == MoveLogTokenizer.END_OF_LINE) continue;
+                long lineOffset = tokenizer.getTokenOffset();
+                boolean header = token == MoveLogTokenizer.WORD && (tokenizer.isWord("DOTS") || tokenizer.isWord("PUZZLE"));
+                if (header) {
+                    if (lineOffset >= segmentEnd) break;
+                    seenGame = true;
+                    startGame(lineOffset);
+                } else if (!seenGame && segmentStart > 0) {
+                    tokenizer.skipLine();
+                } else if (lineOffset >= segmentEnd && gameType == NO_GAME) {
+                    break;
+                } else {
+                    readLine(token, lineOffset);
+                }
+            }
+            if (gameType != NO_GAME) {
+                abandonGame();
+            }
+            return result;
+        }
+
+        private void startGame(long offset) {
+            if (gameType != NO_GAME) {
+                abandonGame();
+            }
+            boolean dots = tokenizer.isWord("DOTS");
+            int numberCount = readNumbers();
+            gameOffset = offset;
+            gameFailed = false;
+            gameType = dots ? DOTS_GAME : PUZZLE_GAME;
+            result.games++;
+            try {
+                if (dots) {
+                    if (numberCount < 2 || numberCount > 3) throw new IllegalArgumentException("Expected width, height and players.");
+                    dotsBoard = new DotsAndBoxesBoard(numbers[0], numbers[1], seats(numberCount == 3 ? numbers[2] : 2));
+                } else {
+                    int[] tiles = new int[Math.max(0, numberCount - 2)];
+                    if (numberCount < 2 || numbers[0] * numbers[1] != tiles.length) {
+                        throw new IllegalArgumentException("Expected width, height and one number per tile.");
+                    }
+                    System.arraycopy(numbers, 2, tiles, 0, tiles.length);
+                    puzzleBoard = new PuzzleBoard(numbers[0], numbers[1], tiles);
+                }
+            } catch (IllegalArgumentException exception) {
+                fail(offset, "Bad game header: " + exception.getMessage());
+            }
+        }
+
+        private Player[] seats(int playerCount) {
+            if (playerCount < seatsByCount.length && seatsByCount[playerCount] != null) return seatsByCount[playerCount];
+            if (playerCount < 2 || playerCount > DotsAndBoxesBoard.MAX_PLAYERS) {
+                throw new IllegalArgumentException("A game needs between 2 and " + DotsAndBoxesBoard.MAX_PLAYERS + " players.");
+            }
+            Player[] players = new Player[playerCount];
+            for (int playerIndex = 0; playerIndex < playerCount; playerIndex++) {
+                players[playerIndex] = PlayerRegistry.getDefault().intern("Player " + (playerIndex + 1));
+            }
+            if (playerCount < seatsByCount.length) seatsByCount[playerCount] = players;
+            return players;
+        }
+
+        /**
+         * Reads the numbers left on the current line.
+         * @return How many there were, or -1 if the line holds anything else or more numbers than any header needs.
+         */
+        private int readNumbers() {
+            int count = 0;
+            boolean wellFormed = true;
+            int token;
+            while ((token = tokenizer.next()) != MoveLogTokenizer.END_OF_LINE && token != MoveLogTokenizer.END_OF_INPUT) {
+                if (token != MoveLogTokenizer.NUMBER || count == MAX_LINE_NUMBERS) {
+                    wellFormed = false;
+                } else {
+                    if (count == numbers.length) numbers = Arrays.copyOf(numbers, Math.min(MAX_LINE_NUMBERS, count * 2));
+                    numbers[count++] = tokenizer.getNumber();
+                }
+            }
+            return wellFormed ? count : -1;
+        }
+
+        private void readLine(int token, long offset) {
+            if (gameType == NO_GAME) {
+                fail(offset, "Move outside a game.");
+                tokenizer.skipLine();
+                return;
+            }
+            if (gameFailed) {
+                if (token == MoveLogTokenizer.WORD && (tokenizer.isWord("END") || tokenizer.isWord("QUIT"))) {
+                    tokenizer.skipLine();
+                    finishGame(false);
+                } else {
+                    tokenizer.skipLine();
+                }
+                return;
+            }
+            if (token == MoveLogTokenizer.WORD) {
+                if (tokenizer.isWord("END")) {
+                    endGame(offset, readNumbers());
+                } else if (tokenizer.isWord("QUIT")) {
+                    tokenizer.skipLine();
+                    flushMoves();
+                    finishGame(!gameFailed);
+                } else if (tokenizer.isWord("UNDO") || tokenizer.isWord("REDO")) {
+                    boolean undo = tokenizer.isWord("UNDO");
+                    if (readNumbers() != 0) {
+                        failMalformed(offset);
+                        return;
+                    }
+                    flushMoves();
+                    if (gameFailed) return;
+                    boolean done = dotsBoard != null
+                            ? (undo ? dotsBoard.undoMove() : dotsBoard.redoMove()) != null
+                            : (undo ? puzzleBoard.undoMove() : puzzleBoard.redoMove());
+                    if (!done) fail(offset, undo ? "Nothing to undo." : "Nothing to redo.");
+                } else if (tokenizer.isWord("HINT")) {
+                    tokenizer.skipLine();
+                } else {
+                    failMalformed(offset);
+                    tokenizer.skipLine();
+                }
+                return;
+            }
+            int move = gameType == DOTS_GAME ? readLineMove(token) : readTileMove(token);
+            if (move == Integer.MIN_VALUE) {
+                failMalformed(offset);
+                return;
+            }
+            pendingMoves[pendingCount] = move;
+            pendingOffsets[pendingCount] = offset;
+            if (++pendingCount == BATCH_MOVES) flushMoves();
+        }
+
+        /**
+         * Reads the rest of a move like {@code 0 1 H}, whose row has already been read.
+         * @return The line index, -1 for a line off the grid, or {@link Integer#MIN_VALUE} if the line is malformed.
+         */
+        private int readLineMove(int token) {
+            if (token != MoveLogTokenizer.NUMBER) return malformed(token);
+            int rowIndex = tokenizer.getNumber();
+            if ((token = tokenizer.next()) != MoveLogTokenizer.NUMBER) return malformed(token);
+            int columnIndex = tokenizer.getNumber();
+            if ((token = tokenizer.next()) != MoveLogTokenizer.WORD) return malformed(token);
+            if (!tokenizer.isWord("H") && !tokenizer.isWord("V")) return malformed(token);
+            char direction = tokenizer.getUpperCaseInitial();
+            if ((token = tokenizer.next()) != MoveLogTokenizer.END_OF_LINE && token != MoveLogTokenizer.END_OF_INPUT) {
+                return malformed(token);
+            }
+            return dotsBoard.lineIndex(rowIndex, columnIndex, direction);
+        }
+
+        private int readTileMove(int token) {
+            if (token != MoveLogTokenizer.NUMBER) return malformed(token);
+            int tileValue = tokenizer.getNumber();
+            if ((token = tokenizer.next()) != MoveLogTokenizer.END_OF_LINE && token != MoveLogTokenizer.END_OF_INPUT) {
+                return malformed(token);
+            }
+            return tileValue;
+        }
+
+        private int malformed(int token) {
+            if (token != MoveLogTokenizer.END_OF_LINE) tokenizer.skipLine();
+            return Integer.MIN_VALUE;
+        }
+
+        /**
+         * Applies the moves collected so far, failing the game at the first that is not legal.
+         */
+        private void flushMoves() {
+            if (pendingCount == 0 || gameFailed) {
+                pendingCount = 0;
+                return;
+            }
+            int applied = dotsBoard != null
+                    ? dotsBoard.applyMoves(pendingMoves, 0, pendingCount, pendingResults, true)
+                    : puzzleBoard.applyMoves(pendingMoves, 0, pendingCount, pendingResults, true);
+            if (applied < pendingCount) {
+                for (int index = 0; index < pendingCount; index++) {
+                    int code = pendingResults[index];
+                    if (code < 0 && code != MoveResult.NOT_APPLIED) {
+                        fail(pendingOffsets[index], "Illegal move: " + MoveResult.describe(code) + ".");
+                        break;
+                    }
+                }
+            }
+            result.moves += applied;
+            pendingCount = 0;
+        }
+
+        private void endGame(long offset, int numberCount) {
+            flushMoves();
+            if (gameFailed) {
+                finishGame(false);
+                return;
+            }
+            if (numberCount < 0) {
+                fail(offset, "Malformed line.");
+                finishGame(false);
+                return;
+            }
+            if (numberCount > 0) {
+                String mismatch = dotsBoard != null ? checkScores(numberCount) : checkSolved(numberCount);
+                if (mismatch != null) fail(offset, mismatch);
+            }
+            finishGame(!gameFailed);
+        }
+
+        private String checkScores(int numberCount) {
+            if (numberCount != dotsBoard.getPlayerCount()) return "Expected one score per player.";
+            if (!dotsBoard.isGameOver()) return "Scores recorded before the game was over.";
+            for (int playerIndex = 0; playerIndex < numberCount; playerIndex++) {
+                if (dotsBoard.getScore(playerIndex) != numbers[playerIndex]) {
+                    return "Recorded scores do not match the moves.";
+                }
+            }
+            return null;
+        }
+
+        private String checkSolved(int numberCount) {
+            if (numberCount != 1) return "Expected the number of moves.";
+            if (!puzzleBoard.isSolved()) return "The moves do not solve the puzzle.";
+            if (puzzleBoard.getMoveCount() != numbers[0]) return "Recorded move count does not match the moves.";
+            return null;
+        }
+
+        /**
+         * Reports a line that cannot be read, after the moves before it, so the first problem in a game is the one reported.
+         */
+        private void failMalformed(long offset) {
+            flushMoves();
+            if (!gameFailed) fail(offset, "Malformed line.");
+        }
+
+        private void fail(long offset, String message) {
+            if (gameType != NO_GAME) gameFailed = true;
+            result.addError(file + " at byte " + offset + ": " + message);
+        }
+
+        /**
+         * Closes a game that has no {@code END} or {@code quit} line; it is unfinished unless a move was illegal.
+         */
+        private void abandonGame() {
+            flushMoves();
+            if (gameFailed) result.invalidGames++;
+            else result.unfinishedGames++;
+            closeGame();
+        }
+
+        private void finishGame(boolean valid) {
+            if (gameType == NO_GAME) return;
+            if (valid) result.validGames++;
+            else result.invalidGames++;
+            closeGame();
+        }
+
+        private void closeGame() {
+            gameType = NO_GAME;
+            dotsBoard = null;
+            puzzleBoard = null;
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * Replays logs from the command line, for example {@code java MoveLogReplay archive/ [threads]}.
+     * Directories are searched for {@code .log} and {@code .txt} files.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: MoveLogReplay <file or directory> [threads]");
+            return;
+        }
+        Path root = Paths.get(args[0]);
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.filter(Files::isRegularFile)
+                        .filter(path -> path.toString().endsWith(".log") || path.toString().endsWith(".txt"))
+                        .sorted()
+                        .forEach(files::add);
+            }
+        } else {
+            files.add(root);
+        }
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Result result = new MoveLogReplay(threadCount).replay(files);
+        System.out.println(result);
+        for (String error : result.getErrors()) {
+            System.out.println(error);
+        }
+        if (result.getErrorCount() > result.getErrors().size()) {
+            System.out.println("... and " + (result.getErrorCount() - result.getErrors().size()) + " more errors.");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a move log held in a byte buffer, typically a memory-mapped file, into lines and tokens
+ * without allocating. Tokens are runs of non-blank ASCII characters; those that are a small
+ * decimal number are parsed straight from the bytes, and words are compared against keywords in
+ * place rather than turned into strings. A {@code #} starts a comment that runs to the end of the line.
+ */
+public class MoveLogTokenizer {
+    public static final int END_OF_INPUT = 0;
+    public static final int END_OF_LINE = 1;
+    public static final int NUMBER = 2;
+    public static final int WORD = 3;
+
+    /** Numbers of more digits than this are treated as words, so parsing never overflows. */
+    private static final int MAX_NUMBER_DIGITS = 9;
+
+    private ByteBuffer buffer;
+    private long baseOffset;
+    private int position;
+    private int limit;
+    private int tokenStart;
+    private int tokenEnd;
+    private int number;
+
+    /**
+     * Starts tokenizing a buffer.
+     * @param baseOffset The offset in the whole log of the buffer's byte 0, used to report token offsets.
+     * @param position Where in the buffer to start.
+     */
+    public void reset(ByteBuffer buffer, long baseOffset, int position) {
+        this.buffer = buffer;
+        this.baseOffset = baseOffset;
+        this.position = position;
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Moves on to the next token.
+     * @return {@link #NUMBER}, {@link #WORD}, {@link #END_OF_LINE} after the last token of a line,
+     *         or {@link #END_OF_INPUT}.
+     */
+    public int next() {
+        while (position < limit) {
+            byte current = buffer.get(position);
+            if (current == ' ' || current == '\t' || current == '\r') {
+                position++;
+            } else if (current == '#') {
+                while (position < limit && buffer.get(position) != '\n') position++;
+            } else {
+                break;
+            }
+        }
+        tokenStart = position;
+        if (position >= limit) return END_OF_INPUT;
+        if (buffer.get(position) == '\n') {
+            tokenEnd = ++position;
+            return END_OF_LINE;
+        }
+        while (position < limit && !isBlank(buffer.get(position))) position++;
+        tokenEnd = position;
+        return parseNumber() ? NUMBER : WORD;
+    }
+
+    private static boolean isBlank(byte value) {
+        return value == ' ' || value == '\t' || value == '\r' || value == '\n' || value == '#';
+    }
+
+    private boolean parseNumber() {
+        int length = tokenEnd - tokenStart;
+        if (length > MAX_NUMBER_DIGITS) return false;
+        int value = 0;
+        for (int index = tokenStart; index < tokenEnd; index++) {
+            int digit = buffer.get(index) - '0';
+            if (digit < 0 || digit > 9) return false;
+            value = value * 10 + digit;
+        }
+        number = value;
+        return true;
+    }
+
+    /**
+     * Returns the value of the current {@link #NUMBER} token.
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns whether the current token is the given keyword, ignoring ASCII case.
+     */
+    public boolean isWord(String keyword) {
+        if (tokenEnd - tokenStart != keyword.length()) return false;
+        for (int index = 0; index < keyword.length(); index++) {
+            int character = buffer.get(tokenStart + index);
+            if (character >= 'a' && character <= 'z') character -= 'a' - 'A';
+            int expected = keyword.charAt(index);
+            if (expected >= 'a' && expected <= 'z') expected -= 'a' - 'A';
+            if (character != expected) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the first character of the current token in upper case.
+     */
+    public char getUpperCaseInitial() {
+        return Character.toUpperCase((char) (buffer.get(tokenStart) & 0xFF));
+    }
+
+    /**
+     * Returns the offset of the current token in the whole log.
+     */
+    public long getTokenOffset() {
+        return baseOffset + tokenStart;
+    }
+
+    /**
+     * Skips the rest of the current line, including its line break.
+     */
+    public void skipLine() {
+        while (position < limit && buffer.get(position) != '\n') position++;
+        if (position < limit) position++;
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Result codes for moves that are checked without throwing, such as the moves of a batch passed to
+ * {@link DotsAndBoxesBoard#applyMoves} or {@link PuzzleBoard#applyMoves}. A code of zero or more
+ * means the move was made; in Dots and Boxes it is the number of boxes the line completed. A
+ * negative code says why the move was not made.
+ */
+public final class MoveResult {
+    /** The move was made. In Dots and Boxes, positive codes also count the boxes it completed. */
+    public static final int OK = 0;
+    /** The line or tile does not exist on this board. */
+    public static final int OUT_OF_BOUNDS = -1;
+    /** The line has already been drawn. */
+    public static final int TAKEN = -2;
+    /** The tile is not next to the empty space. */
+    public static final int NOT_ADJACENT = -3;
+    /** The move was valid, but was not made or was taken back because another move of its all-or-nothing batch failed. */
+    public static final int NOT_APPLIED = -4;
+
+    private MoveResult() {
+    }
+
+    public static boolean isApplied(int code) {
+        return code >= OK;
+    }
+
+    /**
+     * Returns a short description of a code, for logs and error reports.
+     */
+    public static String describe(int code) {
+        switch (code) {
+            case OUT_OF_BOUNDS:
+                return "out of bounds";
+            case TAKEN:
+                return "already taken";
+            case NOT_ADJACENT:
+                return "not adjacent to the empty space";
+            case NOT_APPLIED:
+                return "not applied";
+            case OK:
+                return "ok";
+            default:
+                return code > 0 ? code + " box(es) completed" : "unknown result " + code;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.function.Supplier;
+
+/**
+ * Discards every game event, for games driven without anyone watching.
+ * Boards are never rendered because the view is never asked for.
+ */
+public final class NoOpEventSink implements GameEventSink {
+    public static final NoOpEventSink INSTANCE = new NoOpEventSink();
+
+    private NoOpEventSink() {
+    }
+
+    @Override
+    public void message(String text) {
+    }
+
+    @Override
+    public void prompt(String text) {
+    }
+
+    @Override
+    public void moveMade(Player player, String move) {
+    }
+
+    @Override
+    public void boardChanged(Board board, Supplier<String> view) {
+    }
+
+    @Override
+    public void gameOver(String result) {
+    }
+
+    @Override
+    public void flush() {
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves sliding puzzles optimally with IDA* spread across several cores.
+ * Each iteration forks one task per node near the root of the search tree onto a
+ * {@link ForkJoinPool}, and the tasks search their subtrees depth-first while sharing a
+ * {@link PuzzleTranspositionTable} keyed by the Zobrist hash of the tiles, so that
+ * positions reached along different paths are only searched once.
+ */
+public class ParallelPuzzleSolver implements AutoCloseable {
+    private static final int FOUND = -1;
+    private static final int TIMED_OUT = -2;
+    private static final int PRUNED = Integer.MAX_VALUE;
+    private static final int TIME_CHECK_INTERVAL = 4096;
+    private static final int TABLE_SIZE_BITS = 22;
+
+    private final int threadCount;
+    private final long timeBudgetMillis;
+    private final ForkJoinPool pool;
+
+    private PuzzleTranspositionTable transpositionTable;
+    private volatile boolean stopped;
+    private long deadlineNanos;
+    private int splitDepth;
+    private int iteration;
+    private int threshold;
+    private final AtomicReference<int[]> solution = new AtomicReference<>();
+    private final Map<String, AtomicLong> nodesByThread = new ConcurrentHashMap<>();
+    private long elapsedNanos;
+
+    /**
+     * @param threadCount How many worker threads to search with.
+     * @param timeBudgetMillis How long a single solve may take, or {@link PuzzleSolver#NO_TIME_LIMIT}.
+     */
+    public ParallelPuzzleSolver(int threadCount, long timeBudgetMillis) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        this.threadCount = threadCount;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.pool = new ForkJoinPool(threadCount);
+    }
+
+    /**
+     * Computes a shortest sequence of slides that solves the board.
+     * @return The tiles to slide in order (empty if already solved), or null if the time budget ran out.
+     * @throws IllegalArgumentException if the board is too large to solve optimally or not solvable.
+     */
+    public int[] solve(PuzzleBoard board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        if (width * height > PuzzleSolver.MAX_OPTIMAL_CELLS) {
+            throw new IllegalArgumentException("Boards larger than " + PuzzleSolver.MAX_OPTIMAL_CELLS + " cells cannot be solved optimally.");
+        }
+        int[] tiles = board.getTiles();
+        if (!PuzzleBoard.isSolvable(tiles, width, height)) {
+            throw new IllegalArgumentException("Puzzle is not solvable.");
+        }
+
+        long startNanos = System.nanoTime();
+        deadlineNanos = timeBudgetMillis == PuzzleSolver.NO_TIME_LIMIT ? Long.MAX_VALUE : startNanos + timeBudgetMillis * 1_000_000L;
+        stopped = false;
+        solution.set(null);
+        nodesByThread.clear();
+        transpositionTable = new PuzzleTranspositionTable(TABLE_SIZE_BITS);
+        splitDepth = chooseSplitDepth();
+
+        PatternDatabase[] patternDatabases = timeBudgetMillis == PuzzleSolver.NO_TIME_LIMIT
+                ? PatternDatabase.forBoard(width, height)
+                : PatternDatabase.getIfReady(width, height);
+        PuzzleSearchState root = new PuzzleSearchState(tiles, width, height, patternDatabases);
+        threshold = root.heuristic();
+        iteration = 0;
+        try {
+            while (true) {
+                iteration++;
+                int result = pool.invoke(new SearchTask(new PuzzleSearchState(root), 0, new int[threshold + 1], -1));
+                if (result == FOUND) return solution.get();
+                if (result == TIMED_OUT) return null;
+                threshold = result;
+            }
+        } finally {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Splits deep enough that there are many more subtrees than threads,
+     * which keeps every worker busy while the subtrees vary in size.
+     */
+    private int chooseSplitDepth() {
+        int depth = 2;
+        double subtreeCount = 4;
+        while (subtreeCount < threadCount * 64.0) {
+            subtreeCount *= 2.13;
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Searches one subtree of the current iteration, forking children above the split depth.
+     */
+    private class SearchTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final PuzzleSearchState state;
+        private final int depth;
+        private final int[] path;
+        private final int previousBlankCell;
+        private long nodesExpanded;
+
+        SearchTask(PuzzleSearchState state, int depth, int[] path, int previousBlankCell) {
+            this.state = state;
+            this.depth = depth;
+            this.path = path;
+            this.previousBlankCell = previousBlankCell;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (depth >= splitDepth) {
+                int result = search(depth, previousBlankCell);
+                nodesByThread.computeIfAbsent(Thread.currentThread().getName(), name -> new AtomicLong())
+                        .addAndGet(nodesExpanded);
+                return result;
+            }
+
+            int estimate = depth + state.heuristic();
+            if (estimate > threshold) return estimate;
+            if (state.isSolved()) return recordSolution(depth);
+            if (transpositionTable.visit(state.getHash(), depth, iteration)) return PRUNED;
+
+            List<SearchTask> children = new ArrayList<>(4);
+            int blankCell = state.getBlankCell();
+            for (int direction = 0; direction < 4; direction++) {
+                int sourceCell = state.neighbourOfBlank(direction);
+                if (sourceCell < 0 || sourceCell == previousBlankCell) continue;
+                PuzzleSearchState childState = new PuzzleSearchState(state);
+                int[] childPath = path.clone();
+                childPath[depth] = childState.slide(sourceCell);
+                children.add(new SearchTask(childState, depth + 1, childPath, blankCell));
+            }
+
+            int nextThreshold = PRUNED;
+            for (SearchTask child : invokeAll(children)) {
+                int result = child.join();
+                if (result == FOUND) return FOUND;
+                if (result == TIMED_OUT) nextThreshold = TIMED_OUT;
+                else if (nextThreshold != TIMED_OUT && result < nextThreshold) nextThreshold = result;
+            }
+            return nextThreshold;
+        }
+
+        private int search(int currentDepth, int previousBlank) {
+            int estimate = currentDepth + state.heuristic();
+            if (estimate > threshold) return estimate;
+            if (state.isSolved()) return recordSolution(currentDepth);
+            if (stopped) return solution.get() != null ? FOUND : TIMED_OUT;
+            if (++nodesExpanded % TIME_CHECK_INTERVAL == 0 && System.nanoTime() > deadlineNanos) {
+                stopped = true;
+                return TIMED_OUT;
+            }
+            if (transpositionTable.visit(state.getHash(), currentDepth, iteration)) return PRUNED;
+
+            int nextThreshold = PRUNED;
+            int blankCell = state.getBlankCell();
+            for (int direction = 0; direction < 4; direction++) {
+                int sourceCell = state.neighbourOfBlank(direction);
+                if (sourceCell < 0 || sourceCell == previousBlank) continue;
+
+                path[currentDepth] = state.slide(sourceCell);
+                int result = search(currentDepth + 1, blankCell);
+                state.slide(blankCell);
+
+                if (result == FOUND || result == TIMED_OUT) return result;
+                if (result < nextThreshold) nextThreshold = result;
+            }
+            return nextThreshold;
+        }
+
+        private int recordSolution(int solutionLength) {
+            int[] moves = new int[solutionLength];
+            System.arraycopy(path, 0, moves, 0, solutionLength);
+            solution.compareAndSet(null, moves);
+            stopped = true;
+            return FOUND;
+        }
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Returns how many nodes the last solve expanded across all threads.
+     */
+    public long getNodesExpanded() {
+        long total = 0;
+        for (AtomicLong nodes : nodesByThread.values()) {
+            total += nodes.get();
+        }
+        return total;
+    }
+
+    /**
+     * Reports the search speed of each worker thread during the last solve.
+     * @return Nodes expanded per second, keyed by worker thread name.
+     */
+    public Map<String, Double> getNodesPerSecondByThread() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        List<String> threadNames = new ArrayList<>(nodesByThread.keySet());
+        Collections.sort(threadNames);
+        for (String threadName : threadNames) {
+            rates.put(threadName, nodesByThread.get(threadName).get() / seconds);
+        }
+        return rates;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,405 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An additive pattern database for one group of tiles in a sliding puzzle.
+ * For every placement of the group's tiles it stores how many moves of those tiles
+ * are needed to bring them home, ignoring all other tiles except as obstacles to each other.
+ * Because every real move slides exactly one tile, the values of disjoint groups can be
+ * added together and still never overestimate the true solution length.
+ * The groups of a board are built in parallel, and can be built ahead of time and saved to a
+ * file with {@link #main}; when the {@code boardgames.pdb.dir} property names a directory holding
+ * that file, it is memory-mapped on first use instead of rebuilt, so only the pages a search
+ * touches are ever read.
+ */
+public class PatternDatabase {
+    /**
+     * The largest number of tiles grouped into one database.
+     */
+    public static final int MAX_GROUP_SIZE = 5;
+
+    /**
+     * The largest table a single group may use, in entries (one byte each).
+     */
+    public static final int MAX_ENTRIES = 6_400_000;
+
+    /**
+     * Pattern databases are only built for boards with at least this many cells.
+     */
+    public static final int MIN_CELLS = 16;
+
+    /**
+     * Pattern databases are only built for boards with at most this many cells,
+     * since tile positions are tracked in a single long bit mask.
+     */
+    public static final int MAX_CELLS = 64;
+
+    /** Identifies a pattern database file ("DBPT"). */
+    private static final int FILE_MAGIC = 0x44425054;
+    private static final byte UNVISITED = -1;
+    private static final Map<String, CompletableFuture<PatternDatabase[]>> CACHE = new ConcurrentHashMap<>();
+
+    private final int width;
+    private final int height;
+    private final int cellCount;
+    private final int[] groupTiles;
+    /** One byte per placement of the group's tiles, on the heap or mapped from a file. */
+    private final ByteBuffer distances;
+
+    private PatternDatabase(int width, int height, int[] groupTiles) {
+        this.width = width;
+        this.height = height;
+        this.cellCount = width * height;
+        this.groupTiles = groupTiles;
+        byte[] table = new byte[(int) entryCount(cellCount, groupTiles.length)];
+        build(table);
+        this.distances = ByteBuffer.wrap(table);
+    }
+
+    private PatternDatabase(int width, int height, int[] groupTiles, ByteBuffer distances) {
+        this.width = width;
+        this.height = height;
+        this.cellCount = width * height;
+        this.groupTiles = groupTiles;
+        this.distances = distances;
+    }
+
+    /**
+     * Returns the disjoint pattern databases covering every tile of a board size,
+     * building and caching them on first use.
+     * @return The databases, or null if the board is too small to benefit or too large to tabulate.
+     */
+    public static PatternDatabase[] forBoard(int width, int height) {
+        CompletableFuture<PatternDatabase[]> databases = prepareInBackground(width, height);
+        return databases == null ? null : databases.join();
+    }
+
+    /**
+     * Returns the pattern databases for a board size only if they have already been built.
+     * @return The databases, or null if they are not ready or not used for this size.
+     */
+    public static PatternDatabase[] getIfReady(int width, int height) {
+        CompletableFuture<PatternDatabase[]> databases = CACHE.get(width + "x" + height);
+        return databases != null && databases.isDone() ? databases.join() : null;
+    }
+
+    /**
+     * Starts loading or building the pattern databases for a board size on a background thread.
+     * @return The pending databases, or null if the board size does not use them.
+     */
+    public static CompletableFuture<PatternDatabase[]> prepareInBackground(int width, int height) {
+        int cellCount = width * height;
+        if (cellCount < MIN_CELLS || cellCount > MAX_CELLS) return null;
+        return CACHE.computeIfAbsent(width + "x" + height,
+                key -> CompletableFuture.supplyAsync(() -> loadOrBuild(width, height)));
+    }
+
+    /**
+     * Maps the saved databases for a board size if the {@code boardgames.pdb.dir} directory has them, or builds them.
+     * A saved file that cannot be used, such as one for another size, is ignored and the databases are built instead.
+     */
+    private static PatternDatabase[] loadOrBuild(int width, int height) {
+        String directory = System.getProperty("boardgames.pdb.dir");
+        if (directory != null) {
+            Path file = fileFor(Paths.get(directory), width, height);
+            if (Files.isRegularFile(file)) {
+                try {
+                    return load(file, width, height);
+                } catch (IOException exception) {
+                    // Fall through and build the databases
+                }
+            }
+        }
+        return buildPartition(width, height, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the name a board size's databases are saved under in a directory.
+     */
+    public static Path fileFor(Path directory, int width, int height) {
+        return directory.resolve("puzzle-" + width + "x" + height + ".pdb");
+    }
+
+    /**
+     * Builds the disjoint databases covering every tile of a board size, one group per task.
+     * @param executor Runs the groups' breadth-first searches, which are independent of each other.
+     * @throws IllegalArgumentException If the board size does not use pattern databases.
+     */
+    public static PatternDatabase[] buildPartition(int width, int height, Executor executor) {
+        if (width * height < MIN_CELLS || width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Pattern databases are built for boards of " + MIN_CELLS + " to " + MAX_CELLS + " cells.");
+        }
+        int cellCount = width * height;
+        int groupSize = MAX_GROUP_SIZE;
+        while (groupSize > 1 && entryCount(cellCount, groupSize) > MAX_ENTRIES) {
+            groupSize--;
+        }
+
+        int tileCount = cellCount - 1;
+        int groupCount = (tileCount + groupSize - 1) / groupSize;
+        List<CompletableFuture<PatternDatabase>> builds = new ArrayList<>();
+        for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+            int firstTile = groupIndex * groupSize + 1;
+            int lastTile = Math.min(tileCount, firstTile + groupSize - 1);
+            int[] groupTiles = new int[lastTile - firstTile + 1];
+            for (int i = 0; i < groupTiles.length; i++) {
+                groupTiles[i] = firstTile + i;
+            }
+            builds.add(CompletableFuture.supplyAsync(() -> new PatternDatabase(width, height, groupTiles), executor));
+        }
+        PatternDatabase[] databases = new PatternDatabase[groupCount];
+        for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+            databases[groupIndex] = builds.get(groupIndex).join();
+        }
+        return databases;
+    }
+
+    private static long entryCount(int cellCount, int groupSize) {
+        long entries = 1;
+        for (int i = 0; i < groupSize; i++) {
+            entries *= cellCount - i;
+        }
+        return entries;
+    }
+
+    public int[] getGroupTiles() {
+        return groupTiles.clone();
+    }
+
+    /**
+     * Looks up the number of moves this group's tiles need.
+     * @param positions The current cell of every tile, indexed by tile value.
+     */
+    public int lookup(int[] positions) {
+        long usedCells = 0L;
+        int index = 0;
+        for (int i = 0; i < groupTiles.length; i++) {
+            int cell = positions[groupTiles[i]];
+            index = index * (cellCount - i) + cell - Long.bitCount(usedCells & ((1L << cell) - 1));
+            usedCells |= 1L << cell;
+        }
+        return distances.get(index) & 0xFF;
+    }
+
+    /**
+     * Saves the databases of one board size to a file: a header with the board size and every
+     * group's tiles, followed by each group's table.
+     */
+    public static void save(PatternDatabase[] databases, Path file) throws IOException {
+        int headerBytes = 4 * Integer.BYTES;
+        for (PatternDatabase database : databases) {
+            headerBytes += Integer.BYTES * (1 + database.groupTiles.length);
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        header.putInt(FILE_MAGIC).putInt(databases[0].width).putInt(databases[0].height).putInt(databases.length);
+        for (PatternDatabase database : databases) {
+            header.putInt(database.groupTiles.length);
+            for (int tile : database.groupTiles) {
+                header.putInt(tile);
+            }
+        }
+        header.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            for (PatternDatabase database : databases) {
+                ByteBuffer table = database.distances.duplicate();
+                table.clear();
+                while (table.hasRemaining()) channel.write(table);
+            }
+        }
+    }
+
+    /**
+     * Maps a file written by {@link #save}. The tables are read from the file as they are used.
+     * @throws IOException If the file cannot be read, is not a complete pattern database for the
+     * given board size, or its groups do not split the tiles into disjoint groups covering each one.
+     */
+    public static PatternDatabase[] load(Path file, int expectedWidth, int expectedHeight) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Corrupt pattern database: " + file);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                if (mapped.getInt() != FILE_MAGIC) throw new IOException("Not a pattern database: " + file);
+                int width = mapped.getInt();
+                int height = mapped.getInt();
+                int groupCount = mapped.getInt();
+                int cellCount = width * height;
+                if (width != expectedWidth || height != expectedHeight) {
+                    throw new IOException("Pattern database is for a " + width + "x" + height + " board: " + file);
+                }
+                if (width < 1 || height < 1 || cellCount < MIN_CELLS || cellCount > MAX_CELLS || groupCount < 1 || groupCount >= cellCount) {
+                    throw new IOException("Corrupt pattern database: " + file);
+                }
+                int[][] groups = new int[groupCount][];
+                boolean[] tileGrouped = new boolean[cellCount];
+                int groupedTileCount = 0;
+                for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+                    int groupSize = mapped.getInt();
+                    if (groupSize < 1 || groupSize > MAX_GROUP_SIZE) throw new IOException("Corrupt pattern database: " + file);
+                    groups[groupIndex] = new int[groupSize];
+                    for (int i = 0; i < groupSize; i++) {
+                        int tile = mapped.getInt();
+                        if (tile < 1 || tile >= cellCount || tileGrouped[tile]) {
+                            throw new IOException("Corrupt pattern database: " + file);
+                        }
+                        groups[groupIndex][i] = tile;
+                        tileGrouped[tile] = true;
+                        groupedTileCount++;
+                    }
+                }
+                if (groupedTileCount != cellCount - 1) throw new IOException("Corrupt pattern database: " + file);
+                PatternDatabase[] databases = new PatternDatabase[groupCount];
+                for (int groupIndex = 0; groupIndex < groupCount; groupIndex++) {
+                    long entries = entryCount(cellCount, groups[groupIndex].length);
+                    if (entries > mapped.remaining()) throw new IOException("Truncated pattern database: " + file);
+                    ByteBuffer table = mapped.slice();
+                    table.limit((int) entries);
+                    mapped.position(mapped.position() + (int) entries);
+                    databases[groupIndex] = new PatternDatabase(width, height, groups[groupIndex], table.slice());
+                }
+                if (mapped.hasRemaining()) throw new IOException("Corrupt pattern database: " + file);
+                return databases;
+            } catch (BufferUnderflowException exception) {
+                throw new IOException("Truncated pattern database: " + file, exception);
+            }
+        }
+    }
+
+    /**
+     * Fills the table with a breadth-first search outward from the solved placement.
+     */
+    private void build(byte[] distances) {
+        Arrays.fill(distances, UNVISITED);
+        int groupSize = groupTiles.length;
+        int[] queue = new int[distances.length];
+        int[] cells = new int[groupSize];
+
+        for (int i = 0; i < groupSize; i++) {
+            cells[i] = groupTiles[i] - 1;
+        }
+        int startIndex = rank(cells);
+        distances[startIndex] = 0;
+        queue[0] = startIndex;
+        int queueHead = 0;
+        int queueTail = 1;
+
+        while (queueHead < queueTail) {
+            int stateIndex = queue[queueHead++];
+            int nextDistance = (distances[stateIndex] & 0xFF) + 1;
+            unrank(stateIndex, cells);
+            long occupiedCells = 0L;
+            for (int cell : cells) {
+                occupiedCells |= 1L << cell;
+            }
+
+            for (int i = 0; i < groupSize; i++) {
+                int cell = cells[i];
+                int rowIndex = cell / width;
+                int columnIndex = cell % width;
+                for (int direction = 0; direction < 4; direction++) {
+                    int targetCell;
+                    if (direction == 0 && rowIndex > 0) targetCell = cell - width;
+                    else if (direction == 1 && rowIndex < height - 1) targetCell = cell + width;
+                    else if (direction == 2 && columnIndex > 0) targetCell = cell - 1;
+                    else if (direction == 3 && columnIndex < width - 1) targetCell = cell + 1;
+                    else continue;
+                    if ((occupiedCells & (1L << targetCell)) != 0) continue;
+
+                    cells[i] = targetCell;
+                    int neighbourIndex = rank(cells);
+                    cells[i] = cell;
+                    if (distances[neighbourIndex] == UNVISITED) {
+                        distances[neighbourIndex] = (byte) nextDistance;
+                        queue[queueTail++] = neighbourIndex;
+                    }
+                }
+            }
+        }
+    }
+
+    private int rank(int[] cells) {
+        long usedCells = 0L;
+        int index = 0;
+        for (int i = 0; i < cells.length; i++) {
+            int cell = cells[i];
+            index = index * (cellCount - i) + cell - Long.bitCount(usedCells & ((1L << cell) - 1));
+            usedCells |= 1L << cell;
+        }
+        return index;
+    }
+
+    private void unrank(int index, int[] cells) {
+        for (int i = cells.length - 1; i >= 0; i--) {
+            int radix = cellCount - i;
+            cells[i] = index % radix;
+            index /= radix;
+        }
+        long usedCells = 0L;
+        for (int i = 0; i < cells.length; i++) {
+            int remaining = cells[i];
+            int cell = 0;
+            while (true) {
+                if ((usedCells & (1L << cell)) == 0) {
+                    if (remaining == 0) break;
+                    remaining--;
+                }
+                cell++;
+            }
+            cells[i] = cell;
+            usedCells |= 1L << cell;
+        }
+    }
+
+    /**
+     * Builds the databases for board sizes ahead of time, for example
+     * {@code java PatternDatabase pdb 4x4 5x5 [threads]}, and saves them for {@code -Dboardgames.pdb.dir=pdb}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: PatternDatabase <directory> <width>x<height>... [threads]");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        int sizeCount = args.length - 1;
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        if (!args[args.length - 1].contains("x")) {
+            threadCount = Integer.parseInt(args[args.length - 1]);
+            sizeCount--;
+        }
+        Files.createDirectories(directory);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (int argIndex = 1; argIndex <= sizeCount; argIndex++) {
+                String[] size = args[argIndex].split("x");
+                int width = Integer.parseInt(size[0]);
+                int height = Integer.parseInt(size[1]);
+                long startNanos = System.nanoTime();
+                PatternDatabase[] databases = buildPartition(width, height, executor);
+                Path file = fileFor(directory, width, height);
+                save(databases, file);
+                System.out.printf("%dx%d: %d groups, %d bytes in %.1f s -> %s%n", width, height, databases.length,
+                        Files.size(file), (System.nanoTime() - startNanos) / 1e9, file);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -2,6 +2,7 @@
  * Represents a single line segment on the Dots and Boxes board.
  * Each piece has a location (row and column index), a direction
  * (horizontal or vertical), and can be claimed by a player.
+ * Boards do not keep pieces; {@link DotsAndBoxesBoard#getPiece} makes one on demand.
  */
 public class Piece {
     private final int rowIndex;
@@ -16,6 +17,17 @@ public class Piece {
         this.owner = null;
     }
 
+    /**
+     * Creates a piece with a known owner, such as a view of a line on a board.
+     * @param owner The player who drew the line, or null if it is not drawn yet.
+     */
+    public Piece(int rowIndex, int columnIndex, char direction, Player owner) {
+        this.rowIndex = rowIndex;
+        this.columnIndex = columnIndex;
+        this.direction = direction;
+        this.owner = owner;
+    }
+
     /**
      * Checks if this piece has been claimed by a player.
      * @return true if the piece has an owner, false otherwise.
@@ -1,13 +1,33 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
 /**
  * Models a player in one of the board games.
  * This class stores the player's name and ensures that upon creation the name is valid.
  * A valid name cannot be empty, must contain only letters, numbers, and spaces,
  * and has its whitespace normalized (e.g., multiple spaces are reduced to one).
+ * Every player also gets a small integer id, unique within the running program, so that players
+ * can be compared and used as array indices cheaply. {@link PlayerRegistry} hands out one shared
+ * player per name instead of a new one on every call.
  */
 public class Player {
+    private static final Pattern VALID_NAME = Pattern.compile("[a-zA-Z0-9 ]+");
+    private static final Pattern REPEATED_SPACES = Pattern.compile(" {2,}");
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
     private final String name;
+    private final int id;
 
     public Player(String inputName) {
+        this.name = normalizeName(inputName);
+        this.id = NEXT_ID.getAndIncrement();
+    }
+
+    /**
+     * Validates a name and normalizes its whitespace.
+     * @throws IllegalArgumentException If the name is empty or contains characters other than letters, numbers and spaces.
+     */
+    static String normalizeName(String inputName) {
         if (inputName == null || inputName.trim().isEmpty()) {
             throw new IllegalArgumentException("Player name cannot be empty.");
         }
@@ -15,16 +35,22 @@ public class Player {
         String trimmedName = inputName.trim();
 
         // The regex ensures the name contains only allowed characters.
-        if (!trimmedName.matches("[a-zA-Z0-9 ]+")) {
+        if (!VALID_NAME.matcher(trimmedName).matches()) {
             throw new IllegalArgumentException("Player name must contain only letters, numbers, and spaces.");
         }
 
-        // Replaces multiple whitespace characters with a single space for consistency.
-        String normalizedName = trimmedName.replaceAll("\\s+", " ");
-        this.name = normalizedName;
+        // Only spaces are left, so runs of them are reduced to one for consistency.
+        return trimmedName.contains("  ") ? REPEATED_SPACES.matcher(trimmedName).replaceAll(" ") : trimmedName;
     }
 
     public String getName() {
         return name;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the player's id: a small non-negative number no other player in this program shares.
+     */
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns players by name, so that every request for the same name returns the same {@link Player}.
+ * A name that is already registered, in either its raw or normalized form, is found with a single
+ * hash lookup and no validation; only new spellings go through {@link Player}'s validation. Players
+ * can also be looked up by id, which makes the id a compact key for per-player arrays.
+ * The registry is safe to share between threads.
+ */
+public class PlayerRegistry {
+    private static final PlayerRegistry DEFAULT = new PlayerRegistry();
+
+    private final ConcurrentHashMap<String, Player> playersByName = new ConcurrentHashMap<>();
+    private Player[] playersById = new Player[16];
+    private int size;
+
+    /**
+     * Returns the registry shared by the whole program.
+     */
+    public static PlayerRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the player with the given name, registering a new one the first time a name is seen.
+     * Names that only differ in surrounding or repeated whitespace give the same player.
+     * @throws IllegalArgumentException If the name is not a valid player name.
+     */
+    public Player intern(String inputName) {
+        Player player = inputName == null ? null : playersByName.get(inputName);
+        if (player != null) return player;
+        String normalizedName = Player.normalizeName(inputName);
+        player = playersByName.computeIfAbsent(normalizedName, this::register);
+        // Remember the raw spelling too, so it skips validation next time
+        if (!normalizedName.equals(inputName)) playersByName.putIfAbsent(inputName, player);
+        return player;
+    }
+
+    private synchronized Player register(String normalizedName) {
+        Player player = new Player(normalizedName);
+        if (size == playersById.length) playersById = Arrays.copyOf(playersById, size * 2);
+        playersById[size++] = player;
+        return player;
+    }
+
+    /**
+     * Returns the registered player with the given id.
+     * @return The player, or null if no player with that id was registered here.
+     */
+    public synchronized Player get(int id) {
+        // Players are registered in increasing id order, so the array is sorted by id
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = playersById[middle].getId();
+            if (middleId == id) return playersById[middle];
+            if (middleId < id) low = middle + 1;
+            else high = middle - 1;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of distinct players registered.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -1,4 +1,9 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -6,21 +11,142 @@ import java.util.Random;
  * Manages the state and logic for a sliding puzzle game board.
  * This class handles the initialization of the grid, shuffling the tiles,
  * processing player moves, and checking for the solved state.
+ * Tiles are stored in a flat row-major array alongside an index from each tile to its cell,
+ * kept current on every slide, so boards up to {@link Board#MAX_DIMENSION} tiles wide cost
+ * eight bytes per cell and no move has to search the grid.
+ * Generating and playing a board allocates nothing beyond these two arrays and a move log
+ * of one byte per slide, which supports undo and redo and is stored in binary snapshots;
+ * the symmetry hash behind {@link #getCanonicalHash} is only built once it is first asked for.
+ * Slides can also be submitted in batches, see {@link #applyMoves}.
  */
 public class PuzzleBoard extends Board {
-    private final int[][] grid;
+
+    /**
+     * How a new board is scrambled.
+     */
+    public enum ShuffleMode {
+        /** Makes width * height * 20 random slides from the solved position. */
+        RANDOM_WALK,
+        /** Picks a uniformly random solvable layout directly, using a parity check. */
+        RANDOM_PERMUTATION
+    }
+
+    // Bits of a move mask, one per tile that can slide into the empty space
+    private static final int MOVE_FROM_ABOVE = 1;
+    private static final int MOVE_FROM_BELOW = 2;
+    private static final int MOVE_FROM_LEFT = 4;
+    private static final int MOVE_FROM_RIGHT = 8;
+
+    /** Identifies a sliding puzzle snapshot ("PUZL"). */
+    private static final int SNAPSHOT_MAGIC = 0x50555A4C;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Row and column steps from the empty space to the tile that slid, indexed by the logged direction
+    private static final int[] DIRECTION_ROW_STEPS = {-1, 1, 0, 0};
+    private static final int[] DIRECTION_COLUMN_STEPS = {0, 0, -1, 1};
+
+    private final int[] grid;
+    private final int[] tilePositions;
     private int emptySpaceRowIndex;
     private int emptySpaceColumnIndex;
     private final Random random = new Random();
+    /** The full rendered board, built on the first full render and patched by every slide after that. */
+    private BoardRenderCache renderCache;
+    private SymmetryHash symmetryHash;
+    /** Slides made, followed by slides that were undone and can still be redone, as directions. */
+    private byte[] moveLog = new byte[16];
+    private int moveCount;
+    private int redoableMoveCount;
 
     public PuzzleBoard(int width, int height) {
+        this(width, height, ShuffleMode.RANDOM_WALK);
+    }
+
+    public PuzzleBoard(int width, int height, ShuffleMode shuffleMode) {
         super(width, height);
-        if (width < 2 || width > 10 || height < 2 || height > 10) {
-            throw new IllegalArgumentException("Board dimensions must be between 2x2 and 10x10.");
+        if (width < MIN_DIMENSION || width > MAX_DIMENSION || height < MIN_DIMENSION || height > MAX_DIMENSION) {
+            throw new IllegalArgumentException("Board dimensions must be between " + MIN_DIMENSION + "x" + MIN_DIMENSION
+                    + " and " + MAX_DIMENSION + "x" + MAX_DIMENSION + ".");
         }
-        this.grid = new int[height][width];
+        this.grid = new int[height * width];
+        this.tilePositions = new int[height * width];
         initializeBoard();
-        shuffleBoard();
+        if (shuffleMode == ShuffleMode.RANDOM_PERMUTATION) {
+            shuffleToRandomPermutation();
+        } else {
+            shuffleBoard();
+        }
+    }
+
+    /**
+     * Creates a board from a known layout instead of shuffling, for example one made by {@link PuzzleGenerator}.
+     * @param tiles The tiles in row-major order, with 0 for the empty space. The array is copied.
+     * @throws IllegalArgumentException If the layout is not a solvable arrangement of every tile.
+     */
+    public PuzzleBoard(int width, int height, int[] tiles) {
+        super(width, height);
+        if (width < MIN_DIMENSION || width > MAX_DIMENSION || height < MIN_DIMENSION || height > MAX_DIMENSION) {
+            throw new IllegalArgumentException("Board dimensions must be between " + MIN_DIMENSION + "x" + MIN_DIMENSION
+                    + " and " + MAX_DIMENSION + "x" + MAX_DIMENSION + ".");
+        }
+        if (tiles.length != width * height) throw new IllegalArgumentException("The layout must have one tile per cell.");
+        boolean[] seen = new boolean[tiles.length];
+        for (int tileValue : tiles) {
+            if (tileValue < 0 || tileValue >= tiles.length || seen[tileValue]) {
+                throw new IllegalArgumentException("The layout must hold each tile exactly once.");
+            }
+            seen[tileValue] = true;
+        }
+        if (!isSolvable(tiles, width, height)) throw new IllegalArgumentException("The layout cannot be solved.");
+        this.grid = tiles.clone();
+        this.tilePositions = new int[tiles.length];
+        for (int cellIndex = 0; cellIndex < tiles.length; cellIndex++) {
+            tilePositions[tiles[cellIndex]] = cellIndex;
+        }
+        this.emptySpaceRowIndex = tilePositions[0] / width;
+        this.emptySpaceColumnIndex = tilePositions[0] % width;
+    }
+
+    /**
+     * Hashes every tile placement. Only symmetries that keep the solved layout in place give
+     * positions with the same solution, which on a square board is the transposition, with each
+     * tile renamed after the tile whose home cell it is carried onto. Other rotations and
+     * reflections move the goal, so rectangular boards hash each position on its own.
+     * The hash is built from the grid the first time it is needed and kept current from then on,
+     * so boards that are never asked for a canonical hash skip its upkeep on every slide.
+     */
+    private SymmetryHash symmetryHash() {
+        if (symmetryHash == null) {
+            BoardSymmetry[] symmetries = width == height
+                    ? new BoardSymmetry[]{BoardSymmetry.IDENTITY, BoardSymmetry.TRANSPOSE}
+                    : new BoardSymmetry[]{BoardSymmetry.IDENTITY};
+            symmetryHash = new SymmetryHash(symmetries, this::mapPlacement);
+            for (int cellIndex = 0; cellIndex < grid.length; cellIndex++) {
+                symmetryHash.toggle(placementOf(grid[cellIndex], cellIndex));
+            }
+        }
+        return symmetryHash;
+    }
+
+    private long placementOf(int tileValue, int cellIndex) {
+        return (long) tileValue * grid.length + cellIndex;
+    }
+
+    private long mapPlacement(BoardSymmetry symmetry, long placement) {
+        int tileValue = (int) (placement / grid.length);
+        int cellIndex = (int) (placement % grid.length);
+        int homeCell = homeCellOf(tileValue, grid.length);
+        int mappedCell = mapCell(symmetry, cellIndex);
+        int mappedHomeCell = mapCell(symmetry, homeCell);
+        int mappedTile = mappedHomeCell == grid.length - 1 ? 0 : mappedHomeCell + 1;
+        return placementOf(mappedTile, mappedCell);
+    }
+
+    private int mapCell(BoardSymmetry symmetry, int cellIndex) {
+        int rowIndex = cellIndex / width;
+        int columnIndex = cellIndex % width;
+        return symmetry.mapRow(rowIndex, columnIndex, height, width) * width
+                + symmetry.mapColumn(rowIndex, columnIndex, height, width);
     }
 
     /**
@@ -28,14 +154,12 @@ public class PuzzleBoard extends Board {
      * and the empty space (represented by 0) in the bottom-right corner.
      */
     private void initializeBoard() {
-        int currentTileValue = 1;
-        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
-            for (int columnIndex = 0; columnIndex < width; columnIndex++) {
-                grid[rowIndex][columnIndex] = currentTileValue++;
-            }
+        for (int cellIndex = 0; cellIndex < grid.length; cellIndex++) {
+            grid[cellIndex] = cellIndex + 1;
+            tilePositions[cellIndex + 1 == grid.length ? 0 : cellIndex + 1] = cellIndex;
         }
         // Place the empty space at the end
-        grid[height - 1][width - 1] = 0;
+        grid[grid.length - 1] = 0;
         this.emptySpaceRowIndex = height - 1;
         this.emptySpaceColumnIndex = width - 1;
     }
@@ -46,23 +170,67 @@ public class PuzzleBoard extends Board {
     private void shuffleBoard() {
         int shuffleMoves = width * height * 20;
         for (int i = 0; i < shuffleMoves; i++) {
-            List<int[]> possibleMoves = getValidMoves();
-            int[] selectedMove = possibleMoves.get(random.nextInt(possibleMoves.size()));
-            performSlide(selectedMove[0], selectedMove[1]);
+            int possibleMoves = getValidMoves();
+            // Pick one of the set bits uniformly
+            for (int skip = random.nextInt(Integer.bitCount(possibleMoves)); skip > 0; skip--) {
+                possibleMoves &= possibleMoves - 1;
+            }
+            int selectedMove = Integer.lowestOneBit(possibleMoves);
+            if (selectedMove == MOVE_FROM_ABOVE) performSlide(emptySpaceRowIndex - 1, emptySpaceColumnIndex);
+            else if (selectedMove == MOVE_FROM_BELOW) performSlide(emptySpaceRowIndex + 1, emptySpaceColumnIndex);
+            else if (selectedMove == MOVE_FROM_LEFT) performSlide(emptySpaceRowIndex, emptySpaceColumnIndex - 1);
+            else performSlide(emptySpaceRowIndex, emptySpaceColumnIndex + 1);
+        }
+    }
+
+    /**
+     * Shuffles the tiles into a uniformly random solvable layout.
+     * A Fisher-Yates shuffle picks any layout with equal probability; each real swap flips the
+     * permutation's parity, so the parity is known without a second pass. If the layout turns out
+     * to be unsolvable, swapping two tiles fixes it, which pairs every unsolvable layout with
+     * exactly one solvable one and keeps the result uniform.
+     */
+    private void shuffleToRandomPermutation() {
+        int swapParity = 0;
+        for (int cellIndex = grid.length - 1; cellIndex > 0; cellIndex--) {
+            int otherCellIndex = random.nextInt(cellIndex + 1);
+            if (otherCellIndex != cellIndex) {
+                int swap = grid[cellIndex];
+                grid[cellIndex] = grid[otherCellIndex];
+                grid[otherCellIndex] = swap;
+                swapParity ^= 1;
+            }
+        }
+        for (int cellIndex = 0; cellIndex < grid.length; cellIndex++) {
+            tilePositions[grid[cellIndex]] = cellIndex;
+        }
+        int emptyCell = tilePositions[0];
+        emptySpaceRowIndex = emptyCell / width;
+        emptySpaceColumnIndex = emptyCell % width;
+
+        int emptyDistance = (height - 1 - emptySpaceRowIndex) + (width - 1 - emptySpaceColumnIndex);
+        if (swapParity != (emptyDistance & 1)) {
+            // Swap tiles 1 and 2, which leaves the empty space where it is
+            int firstCell = tilePositions[1];
+            int secondCell = tilePositions[2];
+            grid[firstCell] = 2;
+            grid[secondCell] = 1;
+            tilePositions[1] = secondCell;
+            tilePositions[2] = firstCell;
         }
     }
 
     /**
      * Calculates the possible moves based on the current position of the empty space.
-     * @return A list of valid coordinates [row, column] that can be slid into the empty space.
+     * @return A bit mask of the neighbouring tiles that can slide into the empty space.
      */
-    private List<int[]> getValidMoves() {
-        List<int[]> validMovesList = new ArrayList<>();
-        if (emptySpaceRowIndex > 0) validMovesList.add(new int[]{emptySpaceRowIndex - 1, emptySpaceColumnIndex});
-        if (emptySpaceRowIndex < height - 1) validMovesList.add(new int[]{emptySpaceRowIndex + 1, emptySpaceColumnIndex});
-        if (emptySpaceColumnIndex > 0) validMovesList.add(new int[]{emptySpaceRowIndex, emptySpaceColumnIndex - 1});
-        if (emptySpaceColumnIndex < width - 1) validMovesList.add(new int[]{emptySpaceRowIndex, emptySpaceColumnIndex + 1});
-        return validMovesList;
+    private int getValidMoves() {
+        int validMoves = 0;
+        if (emptySpaceRowIndex > 0) validMoves |= MOVE_FROM_ABOVE;
+        if (emptySpaceRowIndex < height - 1) validMoves |= MOVE_FROM_BELOW;
+        if (emptySpaceColumnIndex > 0) validMoves |= MOVE_FROM_LEFT;
+        if (emptySpaceColumnIndex < width - 1) validMoves |= MOVE_FROM_RIGHT;
+        return validMoves;
     }
 
     /**
@@ -71,29 +239,205 @@ public class PuzzleBoard extends Board {
      * @return true if the move was valid and performed, false otherwise.
      */
     public boolean slideTile(int tileValue) {
-        if (tileValue <= 0 || tileValue >= width * height) return false;
-
-        int tileRowIndex = -1, tileColumnIndex = -1;
-        // Find the location of the requested tile
-        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
-            for (int columnIndex = 0; columnIndex < width; columnIndex++) {
-                if (grid[rowIndex][columnIndex] == tileValue) {
-                    tileRowIndex = rowIndex;
-                    tileColumnIndex = columnIndex;
-                    break;
-                }
-            }
-        }
+        return trySlideTile(tileValue) == MoveResult.OK;
+    }
+
+    /**
+     * Slides a tile if it can slide, saying why it cannot otherwise.
+     * @return {@link MoveResult#OK}, {@link MoveResult#OUT_OF_BOUNDS} if there is no such tile, or
+     *         {@link MoveResult#NOT_ADJACENT}.
+     */
+    public int trySlideTile(int tileValue) {
+        if (tileValue <= 0 || tileValue >= width * height) return MoveResult.OUT_OF_BOUNDS;
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
 
-        if (tileRowIndex == -1) return false; // Tile not found
+        int tileCellIndex = tilePositions[tileValue];
+        int tileRowIndex = tileCellIndex / width;
+        int tileColumnIndex = tileCellIndex % width;
 
-        // Check if the found tile is adjacent to the empty space
+        // Check if the tile is adjacent to the empty space
         boolean isAdjacent = Math.abs(tileRowIndex - emptySpaceRowIndex) + Math.abs(tileColumnIndex - emptySpaceColumnIndex) == 1;
         if (isAdjacent) {
+            int direction = tileRowIndex < emptySpaceRowIndex ? 0
+                    : tileRowIndex > emptySpaceRowIndex ? 1
+                    : tileColumnIndex < emptySpaceColumnIndex ? 2 : 3;
+            if (moveCount == moveLog.length) moveLog = Arrays.copyOf(moveLog, moveLog.length * 2);
+            moveLog[moveCount++] = (byte) direction;
+            redoableMoveCount = 0;
             performSlide(tileRowIndex, tileColumnIndex);
-            return true;
+            if (Metrics.ENABLED) Metrics.PUZZLE_SLIDE_TILE.recordSince(startNanos);
+            return MoveResult.OK;
         }
-        return false;
+        if (Metrics.ENABLED) Metrics.PUZZLE_SLIDE_TILE.recordSince(startNanos);
+        return MoveResult.NOT_ADJACENT;
+    }
+
+    /**
+     * Slides a batch of tiles in order. Tiles that cannot slide are reported in the results rather
+     * than stopping the batch.
+     * @param tileValues The tiles to slide.
+     * @param start The position of the first tile of the batch in {@code tileValues}.
+     * @param count How many tiles the batch holds.
+     * @param results Receives each slide's result code at the tile's position, see {@link MoveResult}.
+     * @param allOrNothing If true, the first tile that cannot slide takes back every slide of the batch made
+     *                     before it and leaves the board, including the slides it could redo, as it was.
+     *                     Otherwise such tiles are skipped and the rest still slide.
+     * @return How many tiles slid.
+     */
+    public int applyMoves(int[] tileValues, int start, int count, int[] results, boolean allOrNothing) {
+        checkBatch(tileValues.length, start, count, results.length);
+        byte[] redoableMoves = allOrNothing && redoableMoveCount > 0
+                ? Arrays.copyOfRange(moveLog, moveCount, moveCount + redoableMoveCount) : null;
+        int appliedCount = 0;
+        for (int position = start; position < start + count; position++) {
+            int result = trySlideTile(tileValues[position]);
+            results[position] = result;
+            if (result == MoveResult.OK) {
+                appliedCount++;
+            } else if (allOrNothing) {
+                rollBack(appliedCount, redoableMoves);
+                Arrays.fill(results, start, start + count, MoveResult.NOT_APPLIED);
+                results[position] = result;
+                return 0;
+            }
+        }
+        return appliedCount;
+    }
+
+    public int applyMoves(int[] tileValues, int[] results, boolean allOrNothing) {
+        return applyMoves(tileValues, 0, tileValues.length, results, allOrNothing);
+    }
+
+    /**
+     * Takes back the slides of a failed batch and restores the slides that could be redone before it.
+     */
+    private void rollBack(int appliedCount, byte[] redoableMoves) {
+        for (int move = 0; move < appliedCount; move++) undoMove();
+        if (appliedCount == 0) return;
+        redoableMoveCount = redoableMoves == null ? 0 : redoableMoves.length;
+        if (redoableMoves != null) System.arraycopy(redoableMoves, 0, moveLog, moveCount, redoableMoves.length);
+    }
+
+    /**
+     * Slides back the tile moved most recently.
+     * @return true if a slide was undone, false if there was nothing to undo.
+     */
+    public boolean undoMove() {
+        if (moveCount == 0) return false;
+        int direction = moveLog[--moveCount];
+        redoableMoveCount++;
+        // The tile now sits where the empty space was, on the opposite side
+        performSlide(emptySpaceRowIndex - DIRECTION_ROW_STEPS[direction], emptySpaceColumnIndex - DIRECTION_COLUMN_STEPS[direction]);
+        return true;
+    }
+
+    /**
+     * Makes the most recently undone slide again. Sliding a tile discards the slides that could be redone.
+     * @return true if a slide was redone, false if there was nothing to redo.
+     */
+    public boolean redoMove() {
+        if (redoableMoveCount == 0) return false;
+        int direction = moveLog[moveCount++];
+        redoableMoveCount--;
+        performSlide(emptySpaceRowIndex + DIRECTION_ROW_STEPS[direction], emptySpaceColumnIndex + DIRECTION_COLUMN_STEPS[direction]);
+        return true;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getRedoableMoveCount() {
+        return redoableMoveCount;
+    }
+
+    /**
+     * Writes the board to a channel as a binary snapshot: a small header, the tiles in row-major
+     * order and the move log, including slides that can still be redone.
+     */
+    public void writeSnapshot(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_BYTES);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(width).putInt(height);
+        for (int tileValue : grid) {
+            if (buffer.remaining() < Integer.BYTES) flushSnapshotBuffer(buffer, channel);
+            buffer.putInt(tileValue);
+        }
+        if (buffer.remaining() < 2 * Integer.BYTES) flushSnapshotBuffer(buffer, channel);
+        buffer.putInt(moveCount).putInt(redoableMoveCount);
+        for (int moveIndex = 0; moveIndex < moveCount + redoableMoveCount; moveIndex++) {
+            if (!buffer.hasRemaining()) flushSnapshotBuffer(buffer, channel);
+            buffer.put(moveLog[moveIndex]);
+        }
+        flushSnapshotBuffer(buffer, channel);
+    }
+
+    /**
+     * Reads a board written by {@link #writeSnapshot}.
+     * @throws IOException If the channel fails or does not hold a valid snapshot.
+     */
+    public static PuzzleBoard readSnapshot(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER_BYTES);
+        buffer.flip();
+        requireSnapshotBytes(buffer, channel, 4 * Integer.BYTES);
+        if (buffer.getInt() != SNAPSHOT_MAGIC) throw new IOException("Not a sliding puzzle snapshot.");
+        if (buffer.getInt() != SNAPSHOT_VERSION) throw new IOException("Unsupported sliding puzzle snapshot version.");
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        if (width < MIN_DIMENSION || width > MAX_DIMENSION || height < MIN_DIMENSION || height > MAX_DIMENSION) {
+            throw new IOException("Corrupt snapshot: bad board dimensions.");
+        }
+
+        int[] tiles = new int[width * height];
+        for (int cellIndex = 0; cellIndex < tiles.length; cellIndex++) {
+            requireSnapshotBytes(buffer, channel, Integer.BYTES);
+            tiles[cellIndex] = buffer.getInt();
+        }
+        PuzzleBoard board;
+        try {
+            board = new PuzzleBoard(width, height, tiles);
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Corrupt snapshot: " + exception.getMessage(), exception);
+        }
+
+        requireSnapshotBytes(buffer, channel, 2 * Integer.BYTES);
+        int moveCount = buffer.getInt();
+        int redoableMoveCount = buffer.getInt();
+        if (moveCount < 0 || redoableMoveCount < 0 || moveCount + redoableMoveCount < 0) {
+            throw new IOException("Corrupt snapshot: bad move count.");
+        }
+        // The counts are not trusted to size the log: it grows as moves are actually read
+        for (int moveIndex = 0; moveIndex < moveCount + redoableMoveCount; moveIndex++) {
+            requireSnapshotBytes(buffer, channel, 1);
+            byte direction = buffer.get();
+            if (direction < 0 || direction > 3) throw new IOException("Corrupt snapshot: bad move.");
+            if (moveIndex == board.moveLog.length) board.moveLog = Arrays.copyOf(board.moveLog, moveIndex * 2);
+            board.moveLog[moveIndex] = direction;
+        }
+        board.moveCount = moveCount;
+        board.redoableMoveCount = redoableMoveCount;
+        if (!board.isMoveLogOnBoard()) throw new IOException("Corrupt snapshot: a logged move leaves the board.");
+        return board;
+    }
+
+    /**
+     * Checks that undoing every logged slide, and redoing every undone one, keeps the empty space on the board.
+     */
+    private boolean isMoveLogOnBoard() {
+        int rowIndex = emptySpaceRowIndex;
+        int columnIndex = emptySpaceColumnIndex;
+        for (int moveIndex = moveCount - 1; moveIndex >= 0; moveIndex--) {
+            rowIndex -= DIRECTION_ROW_STEPS[moveLog[moveIndex]];
+            columnIndex -= DIRECTION_COLUMN_STEPS[moveLog[moveIndex]];
+            if (rowIndex < 0 || rowIndex >= height || columnIndex < 0 || columnIndex >= width) return false;
+        }
+        rowIndex = emptySpaceRowIndex;
+        columnIndex = emptySpaceColumnIndex;
+        for (int moveIndex = moveCount; moveIndex < moveCount + redoableMoveCount; moveIndex++) {
+            rowIndex += DIRECTION_ROW_STEPS[moveLog[moveIndex]];
+            columnIndex += DIRECTION_COLUMN_STEPS[moveLog[moveIndex]];
+            if (rowIndex < 0 || rowIndex >= height || columnIndex < 0 || columnIndex >= width) return false;
+        }
+        return true;
     }
 
     /**
@@ -102,10 +446,39 @@ public class PuzzleBoard extends Board {
      * @param sourceColumn The column of the tile to slide.
      */
     private void performSlide(int sourceRow, int sourceColumn) {
-        grid[emptySpaceRowIndex][emptySpaceColumnIndex] = grid[sourceRow][sourceColumn];
-        grid[sourceRow][sourceColumn] = 0;
+        int emptyCell = emptySpaceRowIndex * width + emptySpaceColumnIndex;
+        int sourceCell = sourceRow * width + sourceColumn;
+        int tileValue = grid[sourceCell];
+        grid[emptyCell] = tileValue;
+        grid[sourceCell] = 0;
+        tilePositions[tileValue] = emptyCell;
+        tilePositions[0] = sourceCell;
         emptySpaceRowIndex = sourceRow;
         emptySpaceColumnIndex = sourceColumn;
+        if (symmetryHash != null) {
+            symmetryHash.toggle(placementOf(tileValue, sourceCell));
+            symmetryHash.toggle(placementOf(tileValue, emptyCell));
+            symmetryHash.toggle(placementOf(0, emptyCell));
+            symmetryHash.toggle(placementOf(0, sourceCell));
+        }
+        if (renderCache != null) {
+            int cellWidth = getCellWidth();
+            renderCache.writeNumber(cellOffset(emptyCell, cellWidth), cellWidth, tileValue);
+            renderCache.writeNumber(cellOffset(sourceCell, cellWidth), cellWidth, 0);
+        }
+    }
+
+    /**
+     * Finds where a cell's text starts in the full rendering, where every line,
+     * border or tiles, is width * (cellWidth + 1) + 2 characters including the newline.
+     */
+    private int cellOffset(int cellIndex, int cellWidth) {
+        int lineLength = width * (cellWidth + 1) + 2;
+        return lineLength * (1 + 2 * (cellIndex / width)) + 1 + (cellIndex % width) * (cellWidth + 1);
+    }
+
+    private int getCellWidth() {
+        return Math.max(2, stringSize(grid.length - 1));
     }
 
     /**
@@ -113,51 +486,170 @@ public class PuzzleBoard extends Board {
      * @return true if all tiles are in ascending order, false otherwise.
      */
     public boolean isSolved() {
-        int expectedTileValue = 1;
-        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
-            for (int columnIndex = 0; columnIndex < width; columnIndex++) {
-                // For the last cell, check if it's the empty space
-                if (rowIndex == height - 1 && columnIndex == width - 1) {
-                    return grid[rowIndex][columnIndex] == 0;
-                }
-                // For all other cells, check if they hold the correct number
-                if (grid[rowIndex][columnIndex] != expectedTileValue++) {
-                    return false;
-                }
+        // The last cell must hold the empty space; every other cell holds its index plus one
+        if (grid[grid.length - 1] != 0) return false;
+        for (int cellIndex = 0; cellIndex < grid.length - 1; cellIndex++) {
+            if (grid[cellIndex] != cellIndex + 1) {
+                return false;
             }
         }
         return true;
     }
 
+    /**
+     * Returns a copy of the tiles in row-major order, with 0 for the empty space.
+     */
+    public int[] getTiles() {
+        return grid.clone();
+    }
+
+    /**
+     * Checks whether a layout can be slid back into the solved configuration.
+     * Every slide swaps the empty space with a tile, flipping the parity of the permutation
+     * and moving the empty space one step, so a layout is solvable exactly when the
+     * permutation parity matches the parity of the empty space's distance from its home cell.
+     * @param tiles The tiles in row-major order, with 0 for the empty space.
+     */
+    public static boolean isSolvable(int[] tiles, int width, int height) {
+        int cellCount = width * height;
+        boolean[] visited = new boolean[cellCount];
+        int cycleCount = 0;
+        int blankCell = -1;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (tiles[cell] == 0) blankCell = cell;
+            if (visited[cell]) continue;
+            cycleCount++;
+            for (int current = cell; !visited[current]; current = homeCellOf(tiles[current], cellCount)) {
+                visited[current] = true;
+            }
+        }
+        int permutationParity = (cellCount - cycleCount) & 1;
+        int blankDistance = (height - 1 - blankCell / width) + (width - 1 - blankCell % width);
+        return permutationParity == (blankDistance & 1);
+    }
+
+    private static int homeCellOf(int tileValue, int cellCount) {
+        return tileValue == 0 ? cellCount - 1 : tileValue - 1;
+    }
+
+    /**
+     * Returns a hash of the layout that is shared with its mirror image across the main diagonal
+     * on square boards, where both take the same number of moves to solve.
+     */
+    public long getCanonicalHash() {
+        return symmetryHash().canonicalHash();
+    }
+
+    public int getTileAt(int rowIndex, int columnIndex) {
+        return grid[rowIndex * width + columnIndex];
+    }
+
+    public int getEmptySpaceRowIndex() {
+        return emptySpaceRowIndex;
+    }
+
+    public int getEmptySpaceColumnIndex() {
+        return emptySpaceColumnIndex;
+    }
+
     @Override
     public boolean isGameOver() {
         return isSolved();
     }
 
+    /**
+     * Estimates the heap used by the tile array and the tile position index, eight bytes per cell,
+     * plus the move log at one byte per slide.
+     */
+    @Override
+    public long estimateMemoryBytes() {
+        return ARRAY_HEADER_BYTES * 3 + grid.length * 8L + moveLog.length;
+    }
+
+    /**
+     * Renders the whole puzzle. The first call builds the text once; later slides patch
+     * only the two cells they change, so repeated renders cost a single copy.
+     */
     @Override
     public String getBoardAsString() {
-        StringBuilder boardBuilder = new StringBuilder();
+        if (!Metrics.ENABLED) return getRenderCache().render();
+        long startNanos = System.nanoTime();
+        String frame = getRenderCache().render();
+        Metrics.PUZZLE_RENDER.recordSince(startNanos);
+        return frame;
+    }
+
+    /**
+     * Returns the cells of the full rendering that changed since the last call to this
+     * method or {@link #getBoardAsString()}, for clients that keep their own copy of the frame.
+     * The first call returns the full frame as a single patch.
+     */
+    public List<BoardRenderCache.Patch> getBoardChanges() {
+        if (renderCache == null) {
+            return Collections.singletonList(new BoardRenderCache.Patch(0, getBoardAsString()));
+        }
+        return renderCache.drainChanges();
+    }
+
+    private BoardRenderCache getRenderCache() {
+        if (renderCache == null) {
+            renderCache = new BoardRenderCache(getBoardAsString(0, 0, height, width));
+        }
+        return renderCache;
+    }
+
+    /**
+     * Renders a rectangular window of the puzzle, which keeps output readable on large boards.
+     * Cells are padded to the width of the largest tile number, which is two characters up to 10x10.
+     * @param firstRowIndex The first row of tiles to show.
+     * @param firstColumnIndex The first column of tiles to show.
+     * @param rowCount How many rows of tiles to show.
+     * @param columnCount How many columns of tiles to show.
+     */
+    public String getBoardAsString(int firstRowIndex, int firstColumnIndex, int rowCount, int columnCount) {
+        int startRow = Math.max(0, firstRowIndex);
+        int startColumn = Math.max(0, firstColumnIndex);
+        int endRow = Math.min(height, startRow + rowCount);
+        int endColumn = Math.min(width, startColumn + columnCount);
+        int cellWidth = getCellWidth();
+
         StringBuilder borderBuilder = new StringBuilder("+");
-        for (int i = 0; i < width; i++) {
-            borderBuilder.append("--+");
+        for (int i = startColumn; i < endColumn; i++) {
+            for (int dash = 0; dash < cellWidth; dash++) {
+                borderBuilder.append('-');
+            }
+            borderBuilder.append('+');
         }
-        borderBuilder.append("\n");
+        borderBuilder.append('\n');
         String horizontalBorder = borderBuilder.toString();
 
+        StringBuilder boardBuilder = new StringBuilder(horizontalBorder.length() * (2 * Math.max(0, endRow - startRow) + 1));
         boardBuilder.append(horizontalBorder);
-        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
-            boardBuilder.append("|");
-            for (int columnIndex = 0; columnIndex < width; columnIndex++) {
-                int tileValue = grid[rowIndex][columnIndex];
-                if (tileValue == 0) {
-                    boardBuilder.append("  |");
-                } else {
-                    boardBuilder.append(String.format("%2d|", tileValue));
+        for (int rowIndex = startRow; rowIndex < endRow; rowIndex++) {
+            boardBuilder.append('|');
+            for (int columnIndex = startColumn; columnIndex < endColumn; columnIndex++) {
+                int tileValue = grid[rowIndex * width + columnIndex];
+                int digits = tileValue == 0 ? 0 : stringSize(tileValue);
+                for (int pad = digits; pad < cellWidth; pad++) {
+                    boardBuilder.append(' ');
                 }
+                if (tileValue != 0) {
+                    boardBuilder.append(tileValue);
+                }
+                boardBuilder.append('|');
             }
-            boardBuilder.append("\n");
+            boardBuilder.append('\n');
             boardBuilder.append(horizontalBorder);
         }
         return boardBuilder.toString();
     }
+
+    private static int stringSize(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,3 @@
-import java.util.Scanner;
-
 /**
  * Orchestrates the gameplay for the sliding puzzle game.
  * This class handles the player and board setup, runs the main game loop,
@@ -7,41 +5,67 @@ import java.util.Scanner;
  */
 public class PuzzleGame extends Game {
 
+    /**
+     * Boards larger than this many tiles in either direction are shown as a window around the empty space.
+     */
+    private static final int VIEWPORT_SIZE = 12;
+
+    /**
+     * How long a hint may search for an optimal solution unless configured otherwise.
+     */
+    public static final long DEFAULT_HINT_TIME_BUDGET_MILLIS = 2000;
+
     private PuzzleBoard board;
     private Player player;
     private int boardWidth;
     private int boardHeight;
+    private long historyGameId;
+    private final long hintTimeBudgetMillis;
 
     public PuzzleGame() {
+        this(DEFAULT_HINT_TIME_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param hintTimeBudgetMillis How long the 'hint' command may search before falling back to a quick suggestion.
+     */
+    public PuzzleGame(long hintTimeBudgetMillis) {
+        this.hintTimeBudgetMillis = hintTimeBudgetMillis;
     }
 
     @Override
-    protected String getGameInfo(Scanner scanner) {
-        System.out.println("\n--- Setting up Sliding Puzzle ---");
-        System.out.print("Enter your name: ");
-        this.player = new Player(scanner.nextLine());
+    protected String getGameInfo(GameInput input) {
+        events.message("\n--- Setting up Sliding Puzzle ---");
+        events.prompt("Enter your name: ");
+        String name = input.nextLine();
+        if (name == null) return null;
+        this.player = PlayerRegistry.getDefault().intern(name);
 
         while (true) {
-            System.out.print("Enter puzzle width and height (e.g., '4 3'): ");
+            events.prompt("Enter puzzle width and height (e.g., '4 3'): ");
+            String dimensions = input.nextLine();
+            if (dimensions == null) return null;
             try {
-                String[] dimensionParts = scanner.nextLine().split(" ");
+                String[] dimensionParts = dimensions.split(" ");
                 if (dimensionParts.length != 2) {
-                    System.out.println("Invalid format. Please enter two numbers separated by a space.");
+                    events.message("Invalid format. Please enter two numbers separated by a space.");
                     continue;
                 }
 
                 int desiredWidth = Integer.parseInt(dimensionParts[0]);
                 int desiredHeight = Integer.parseInt(dimensionParts[1]);
 
-                if (desiredWidth >= 1 && desiredWidth <= 10 && desiredHeight >= 1 && desiredHeight <= 10) {
+                if (desiredWidth >= Board.MIN_DIMENSION && desiredWidth <= Board.MAX_DIMENSION
+                        && desiredHeight >= Board.MIN_DIMENSION && desiredHeight <= Board.MAX_DIMENSION) {
                     this.boardWidth = desiredWidth;
                     this.boardHeight = desiredHeight;
                     break; // Exit the loop if input is valid
                 } else {
-                    System.out.println("Invalid dimensions. Both width and height must be between 1 and 10.");
+                    events.message("Invalid dimensions. Both width and height must be between "
+                            + Board.MIN_DIMENSION + " and " + Board.MAX_DIMENSION + ".");
                 }
             } catch (NumberFormatException exception) {
-                System.out.println("Invalid input. Please enter numbers only.");
+                events.message("Invalid input. Please enter numbers only.");
             }
         }
         return "Player and board dimensions are set.";
@@ -50,33 +74,79 @@ public class PuzzleGame extends Game {
     @Override
     protected void initializeBoard() {
         this.board = new PuzzleBoard(this.boardWidth, this.boardHeight);
-        System.out.println("Okay " + player.getName() + ", here’s your " + boardWidth + "x" + boardHeight + " puzzle:");
+        PatternDatabase.prepareInBackground(boardWidth, boardHeight);
+        events.message("Okay " + player.getName() + ", here’s your " + boardWidth + "x" + boardHeight + " puzzle:");
     }
 
     @Override
-    protected void runGame(Scanner scanner) {
+    protected void runGame(GameInput input) {
+        recordHistory(() -> {
+            historyGameId = history.startGame(GameHistoryLog.SLIDING_PUZZLE, boardWidth, boardHeight, player.getName());
+            history.recordLayout(historyGameId, board.getTiles());
+        });
         while (!isGameOver()) {
             printBoard();
-            System.out.print(player.getName() + ", which tile do you want to slide? (or type 'quit'): ");
-            String userInput = scanner.nextLine().trim();
+            events.prompt(player.getName() + ", which tile do you want to slide? (or type 'hint', 'undo', 'redo' or 'quit'): ");
+            String userInput = input.nextLine();
+            if (userInput != null) userInput = userInput.trim();
 
-            if (userInput.equalsIgnoreCase("quit")) {
+            if (userInput == null || userInput.equalsIgnoreCase("quit")) {
+                recordResult(GameHistoryLog.ABANDONED);
                 quitToMainMenu();
                 return;
             }
 
+            if (userInput.equalsIgnoreCase("hint")) {
+                showHint();
+                continue;
+            }
+
+            if (userInput.equalsIgnoreCase("undo")) {
+                if (board.undoMove()) recordHistory(() -> history.recordUndo(historyGameId, 0));
+                else events.message("There is no move to undo.");
+                continue;
+            }
+
+            if (userInput.equalsIgnoreCase("redo")) {
+                if (board.redoMove()) recordHistory(() -> history.recordRedo(historyGameId, 0));
+                else events.message("There is no move to redo.");
+                continue;
+            }
+
             try {
                 int tileValueToSlide = Integer.parseInt(userInput);
-                if (!board.slideTile(tileValueToSlide)) {
-                    System.out.println("Invalid move! That tile is not adjacent to the empty space.");
+                if (board.slideTile(tileValueToSlide)) {
+                    recordHistory(() -> history.recordMove(historyGameId, 0, tileValueToSlide, 0));
+                    events.moveMade(player, Integer.toString(tileValueToSlide));
+                } else {
+                    events.message("Invalid move! That tile is not adjacent to the empty space.");
                 }
             } catch (NumberFormatException exception) {
-                System.out.println("Invalid input. Please enter a number.");
+                events.message("Invalid input. Please enter a number.");
             }
         }
 
+        recordResult(GameHistoryLog.FINISHED);
         printBoard();
-        System.out.println("Congratulations, " + player.getName() + "! You solved the puzzle!");
+        events.gameOver("Congratulations, " + player.getName() + "! You solved the puzzle!");
+    }
+
+    /**
+     * Suggests the next tile to slide, using an optimal solution when one can be found in time.
+     */
+    private void showHint() {
+        if (boardWidth * boardHeight <= PuzzleSolver.MAX_OPTIMAL_CELLS) {
+            int[] solution = new PuzzleSolver(hintTimeBudgetMillis).solve(board);
+            if (solution != null) {
+                events.message("Hint: slide tile " + solution[0] + " (solvable in " + solution.length + " moves).");
+                return;
+            }
+        }
+        events.message("Hint: try sliding tile " + PuzzleSolver.suggestMove(board) + ".");
+    }
+
+    private void recordResult(byte outcome) {
+        recordHistory(() -> history.endGame(historyGameId, outcome, board.getMoveCount(), board.getMoveCount()));
     }
 
     @Override
@@ -86,11 +156,21 @@ public class PuzzleGame extends Game {
 
     @Override
     protected void printBoard() {
-        System.out.println(board.getBoardAsString());
+        events.boardChanged(board, this::renderView);
+    }
+
+    private String renderView() {
+        if (boardWidth <= VIEWPORT_SIZE && boardHeight <= VIEWPORT_SIZE) {
+            return board.getBoardAsString();
+        }
+        int firstRowIndex = Math.max(0, Math.min(board.getEmptySpaceRowIndex() - VIEWPORT_SIZE / 2, boardHeight - VIEWPORT_SIZE));
+        int firstColumnIndex = Math.max(0, Math.min(board.getEmptySpaceColumnIndex() - VIEWPORT_SIZE / 2, boardWidth - VIEWPORT_SIZE));
+        return "Showing tiles from row " + firstRowIndex + ", column " + firstColumnIndex + ":\n"
+                + board.getBoardAsString(firstRowIndex, firstColumnIndex, VIEWPORT_SIZE, VIEWPORT_SIZE);
     }
 
     @Override
     protected void quitToMainMenu() {
-        System.out.println("Returning to the main menu...");
+        events.message("Returning to the main menu...");
     }
 }
\ No newline at end of file
@@ -0,0 +1,346 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Generates sliding puzzles whose optimal solutions fall within a chosen range of lengths
+ * and streams them to a compact binary file. Worker threads scramble the solved layout with
+ * random walks, keep the candidates {@link PuzzleSolver} proves to be within the range, and
+ * drop any layout whose {@link PuzzleBoard#getCanonicalHash() canonical hash} has been seen
+ * before. Each puzzle is stored as its tiles packed four bits apiece on boards of up to
+ * 16 cells (a byte apiece otherwise) followed by one byte for the solution length.
+ * Stored layouts can be turned back into boards with {@link PuzzleBoard#PuzzleBoard(int, int, int[])}.
+ */
+public class PuzzleGenerator {
+
+    /**
+     * Receives each puzzle read back from a file. The tile array is reused between calls.
+     */
+    @FunctionalInterface
+    public interface PuzzleConsumer {
+        void accept(int[] tiles, int solutionLength);
+    }
+
+    /** Identifies a puzzle file ("PGEN"). */
+    private static final int FILE_MAGIC = 0x5047454E;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * How long a single candidate may be searched before it is thrown away.
+     */
+    private static final long SOLVE_TIME_BUDGET_MILLIS = 2000;
+
+    /**
+     * Generation gives up after this many candidates per requested puzzle, which only
+     * happens when the range holds fewer distinct puzzles than were asked for.
+     */
+    private static final int MAX_CANDIDATES_PER_PUZZLE = 1000;
+
+    private final int width;
+    private final int height;
+    private final int minimumLength;
+    private final int maximumLength;
+    private final int threadCount;
+    private final long seed;
+    private final AtomicLong candidatesTried = new AtomicLong();
+    private final AtomicLong duplicatesSkipped = new AtomicLong();
+
+    /**
+     * @param minimumLength The shortest optimal solution to accept.
+     * @param maximumLength The longest optimal solution to accept.
+     * @param threadCount How many worker threads to generate on.
+     * @param seed The seed from which every worker's random number generator is derived.
+     */
+    public PuzzleGenerator(int width, int height, int minimumLength, int maximumLength, int threadCount, long seed) {
+        if (width < Board.MIN_DIMENSION || height < Board.MIN_DIMENSION || width * height > PuzzleSolver.MAX_OPTIMAL_CELLS) {
+            throw new IllegalArgumentException("Puzzles can only be graded on boards of up to "
+                    + PuzzleSolver.MAX_OPTIMAL_CELLS + " cells.");
+        }
+        if (minimumLength < 0 || maximumLength < minimumLength || maximumLength > 255) {
+            throw new IllegalArgumentException("The solution length range must lie between 0 and 255.");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        this.width = width;
+        this.height = height;
+        this.minimumLength = minimumLength;
+        this.maximumLength = maximumLength;
+        this.threadCount = threadCount;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates distinct puzzles and writes them to a file, replacing anything already there.
+     * @return The number of puzzles written, which is less than requested only if the range ran out of distinct puzzles.
+     */
+    public long generate(Path path, long puzzleCount) throws IOException {
+        if (width * height >= PatternDatabase.MIN_CELLS) {
+            // Build the pattern databases once up front so the time-limited solvers can use them
+            PatternDatabase.forBoard(width, height);
+        }
+        candidatesTried.set(0);
+        duplicatesSkipped.set(0);
+        int bitsPerTile = bitsPerTile(width * height);
+        // Each worker can add one hash after the last puzzle is accepted, so the set must hold those as well
+        long setCapacity = Long.highestOneBit(Math.max(16, (puzzleCount + threadCount) * 2)) * 2;
+        if (setCapacity > 1 << 30) throw new IllegalArgumentException("Too many puzzles requested for one file.");
+        AtomicLongArray seenHashes = new AtomicLongArray((int) setCapacity);
+        AtomicLong acceptedCount = new AtomicLong();
+        long maxCandidates = Math.max(1_000_000L, puzzleCount * MAX_CANDIDATES_PER_PUZZLE);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(channel, bitsPerTile, 0);
+            channel.position(HEADER_BYTES);
+
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                List<Future<?>> workers = new ArrayList<>();
+                for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+                    Random random = new Random(seed + threadIndex * 0x9E3779B97F4A7C15L);
+                    workers.add(executor.submit(() -> {
+                        generateOnWorker(channel, random, puzzleCount, maxCandidates, acceptedCount, seenHashes, bitsPerTile);
+                        return null;
+                    }));
+                }
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Puzzle generation was interrupted.", exception);
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof IOException) throw (IOException) exception.getCause();
+                throw new IllegalStateException("Puzzle generation failed: " + exception.getCause().getMessage(), exception.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+
+            long written = Math.min(acceptedCount.get(), puzzleCount);
+            writeHeader(channel, bitsPerTile, written);
+            return written;
+        }
+    }
+
+    private void generateOnWorker(FileChannel channel, Random random, long puzzleCount, long maxCandidates,
+                                  AtomicLong acceptedCount, AtomicLongArray seenHashes, int bitsPerTile) throws IOException {
+        int cellCount = width * height;
+        int recordBytes = recordBytes(cellCount, bitsPerTile);
+        ByteBuffer records = ByteBuffer.allocate(WRITE_BUFFER_BYTES - WRITE_BUFFER_BYTES % recordBytes);
+        PuzzleSolver solver = new PuzzleSolver(SOLVE_TIME_BUDGET_MILLIS);
+        int[] tiles = new int[cellCount];
+
+        while (acceptedCount.get() < puzzleCount && candidatesTried.incrementAndGet() <= maxCandidates) {
+            // The optimal solution is never longer than the walk, and has the same parity
+            int walkLength = minimumLength + random.nextInt(maximumLength - minimumLength + (maximumLength - minimumLength) / 2 + 3);
+            scramble(tiles, walkLength, random);
+            PuzzleBoard board = new PuzzleBoard(width, height, tiles);
+            int[] solution = solver.solve(board);
+            if (solution == null || solution.length < minimumLength || solution.length > maximumLength) continue;
+            if (!addIfAbsent(seenHashes, board.getCanonicalHash())) {
+                duplicatesSkipped.incrementAndGet();
+                continue;
+            }
+            if (acceptedCount.getAndIncrement() >= puzzleCount) break;
+
+            packRecord(records, tiles, bitsPerTile, solution.length);
+            if (!records.hasRemaining()) writeRecords(channel, records);
+        }
+        writeRecords(channel, records);
+    }
+
+    /**
+     * Resets the tiles to the solved layout and makes a random walk that never immediately undoes a slide.
+     */
+    private void scramble(int[] tiles, int walkLength, Random random) {
+        int cellCount = tiles.length;
+        for (int cellIndex = 0; cellIndex < cellCount - 1; cellIndex++) {
+            tiles[cellIndex] = cellIndex + 1;
+        }
+        tiles[cellCount - 1] = 0;
+        int blankCell = cellCount - 1;
+        int previousBlankCell = -1;
+        for (int step = 0; step < walkLength; step++) {
+            int nextCell;
+            do {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        nextCell = blankCell >= width ? blankCell - width : -1;
+                        break;
+                    case 1:
+                        nextCell = blankCell < cellCount - width ? blankCell + width : -1;
+                        break;
+                    case 2:
+                        nextCell = blankCell % width > 0 ? blankCell - 1 : -1;
+                        break;
+                    default:
+                        nextCell = blankCell % width < width - 1 ? blankCell + 1 : -1;
+                        break;
+                }
+            } while (nextCell < 0 || nextCell == previousBlankCell);
+            tiles[blankCell] = tiles[nextCell];
+            tiles[nextCell] = 0;
+            previousBlankCell = blankCell;
+            blankCell = nextCell;
+        }
+    }
+
+    /**
+     * Inserts a hash into a lock-free open-addressing set.
+     * @return false if the hash was already there.
+     */
+    private static boolean addIfAbsent(AtomicLongArray set, long hash) {
+        long key = hash == 0 ? 1 : hash;
+        int mask = set.length() - 1;
+        for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+            long current = set.get(slot);
+            if (current == key) return false;
+            if (current == 0) {
+                if (set.compareAndSet(slot, 0, key)) return true;
+                if (set.get(slot) == key) return false;
+            }
+        }
+    }
+
+    private static void packRecord(ByteBuffer records, int[] tiles, int bitsPerTile, int solutionLength) {
+        if (bitsPerTile == 4) {
+            for (int cellIndex = 0; cellIndex < tiles.length; cellIndex += 2) {
+                int low = cellIndex + 1 < tiles.length ? tiles[cellIndex + 1] : 0;
+                records.put((byte) (tiles[cellIndex] << 4 | low));
+            }
+        } else {
+            for (int tileValue : tiles) {
+                records.put((byte) tileValue);
+            }
+        }
+        records.put((byte) solutionLength);
+    }
+
+    private static void writeRecords(FileChannel channel, ByteBuffer records) throws IOException {
+        records.flip();
+        // Each worker appends whole buffers of records, so records from different threads never interleave
+        synchronized (channel) {
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+        }
+        records.clear();
+    }
+
+    private void writeHeader(FileChannel channel, int bitsPerTile, long puzzleCount) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(width).putInt(height)
+                .putInt(bitsPerTile).putInt(0).putLong(puzzleCount);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * Returns how many bits each tile takes in a file: four for boards of up to 16 cells, eight otherwise.
+     */
+    public static int bitsPerTile(int cellCount) {
+        return cellCount <= 16 ? 4 : 8;
+    }
+
+    private static int recordBytes(int cellCount, int bitsPerTile) {
+        return (cellCount * bitsPerTile + 7) / 8 + 1;
+    }
+
+    /**
+     * Reads every puzzle in a file written by {@link #generate}.
+     * @return The number of puzzles read.
+     */
+    public static long forEachPuzzle(Path path, PuzzleConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            buffer.flip();
+            fill(buffer, channel, HEADER_BYTES);
+            if (buffer.getInt() != FILE_MAGIC) throw new IOException("Not a puzzle file: " + path);
+            if (buffer.getInt() != FILE_VERSION) throw new IOException("Unsupported puzzle file version: " + path);
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int bitsPerTile = buffer.getInt();
+            buffer.getInt();
+            long puzzleCount = buffer.getLong();
+            int cellCount = width * height;
+            if (width < Board.MIN_DIMENSION || height < Board.MIN_DIMENSION || cellCount > PuzzleSolver.MAX_OPTIMAL_CELLS
+                    || bitsPerTile != bitsPerTile(cellCount)) {
+                throw new IOException("Corrupt puzzle file header: " + path);
+            }
+
+            int recordBytes = recordBytes(cellCount, bitsPerTile);
+            int[] tiles = new int[cellCount];
+            for (long puzzle = 0; puzzle < puzzleCount; puzzle++) {
+                fill(buffer, channel, recordBytes);
+                if (bitsPerTile == 4) {
+                    for (int cellIndex = 0; cellIndex < cellCount; cellIndex += 2) {
+                        int packed = buffer.get() & 0xFF;
+                        tiles[cellIndex] = packed >>> 4;
+                        if (cellIndex + 1 < cellCount) tiles[cellIndex + 1] = packed & 0x0F;
+                    }
+                } else {
+                    for (int cellIndex = 0; cellIndex < cellCount; cellIndex++) {
+                        tiles[cellIndex] = buffer.get() & 0xFF;
+                    }
+                }
+                consumer.accept(tiles, buffer.get() & 0xFF);
+            }
+            return puzzleCount;
+        }
+    }
+
+    private static void fill(ByteBuffer buffer, FileChannel channel, int byteCount) throws IOException {
+        if (buffer.remaining() >= byteCount) return;
+        buffer.compact();
+        while (buffer.position() < byteCount) {
+            if (channel.read(buffer) < 0) throw new EOFException("Puzzle file ended unexpectedly.");
+        }
+        buffer.flip();
+    }
+
+    public long getCandidatesTried() {
+        return candidatesTried.get();
+    }
+
+    public long getDuplicatesSkipped() {
+        return duplicatesSkipped.get();
+    }
+
+    /**
+     * Generates puzzles from the command line, for example
+     * {@code java PuzzleGenerator 4 4 30 40 100000 puzzles.bin}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6) {
+            System.out.println("Usage: PuzzleGenerator <width> <height> <min length> <max length> <count> <file> [threads]");
+            return;
+        }
+        int threadCount = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+        PuzzleGenerator generator = new PuzzleGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]), threadCount, System.nanoTime());
+        long startNanos = System.nanoTime();
+        long written = generator.generate(Paths.get(args[5]), Long.parseLong(args[4]));
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%d puzzles written in %.1f s (%.0f puzzles/s), %d candidates tried, %d duplicates skipped%n",
+                written, seconds, written / seconds, generator.getCandidatesTried(), generator.getDuplicatesSkipped());
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * The estimates a {@link PuzzleSearchState} can guide a search with. Each is admissible, and
+ * each is kept up to date as tiles slide rather than recomputed from the board. Estimates whose
+ * tables are not available for a board size fall back to Manhattan distance with linear conflicts.
+ */
+public enum PuzzleHeuristic {
+    /** The sum of every tile's row and column distance from its goal cell. */
+    MANHATTAN,
+    /** Manhattan distance plus two moves for each tile that must leave its goal row or column to let another pass. */
+    LINEAR_CONFLICT,
+    /** The sum of the row and column {@link WalkingDistanceTable}s, available on boards up to about 16 cells. */
+    WALKING_DISTANCE,
+    /** The sum of the disjoint {@link PatternDatabase}s, available from 4x4 up to 64 cells. */
+    PATTERN_DATABASE,
+    /** The largest of linear conflicts, walking distance and the pattern databases, as far as each is available. */
+    COMBINED
+}
@@ -0,0 +1,71 @@
+import java.util.Random;
+
+/**
+ * Decides which tile to slide in the sliding puzzle, for games played without a console.
+ * A policy may keep state between moves, so each game should use its own instance.
+ */
+public interface PuzzlePolicy {
+
+    /**
+     * Chooses a tile next to the empty space.
+     * @return The value of the tile to slide.
+     */
+    int chooseTile(PuzzleBoard board, Random random);
+
+    /**
+     * A policy that slides a random tile next to the empty space.
+     */
+    static PuzzlePolicy random() {
+        return (board, random) -> {
+            int emptyRow = board.getEmptySpaceRowIndex();
+            int emptyColumn = board.getEmptySpaceColumnIndex();
+            while (true) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        if (emptyRow > 0) return board.getTileAt(emptyRow - 1, emptyColumn);
+                        break;
+                    case 1:
+                        if (emptyRow < board.getHeight() - 1) return board.getTileAt(emptyRow + 1, emptyColumn);
+                        break;
+                    case 2:
+                        if (emptyColumn > 0) return board.getTileAt(emptyRow, emptyColumn - 1);
+                        break;
+                    default:
+                        if (emptyColumn < board.getWidth() - 1) return board.getTileAt(emptyRow, emptyColumn + 1);
+                        break;
+                }
+            }
+        };
+    }
+
+    /**
+     * A policy that always makes the slide with the best heuristic estimate, see {@link PuzzleSolver#suggestMove}.
+     */
+    static PuzzlePolicy greedy() {
+        return (board, random) -> PuzzleSolver.suggestMove(board);
+    }
+
+    /**
+     * A policy that plays an optimal solution from {@link PuzzleSolver}, falling back to
+     * the greedy move when no solution is found within the time budget.
+     * @param timeBudgetMillis How long each attempt to solve may take.
+     */
+    static PuzzlePolicy solver(long timeBudgetMillis) {
+        PuzzleSolver solver = new PuzzleSolver(timeBudgetMillis);
+        return new PuzzlePolicy() {
+            private int[] plannedMoves;
+            private int nextMove;
+
+            @Override
+            public int chooseTile(PuzzleBoard board, Random random) {
+                if (plannedMoves == null || nextMove >= plannedMoves.length) {
+                    nextMove = 0;
+                    plannedMoves = board.getWidth() * board.getHeight() <= PuzzleSolver.MAX_OPTIMAL_CELLS
+                            ? solver.solve(board) : null;
+                    if (plannedMoves == null) return PuzzleSolver.suggestMove(board);
+                }
+                return plannedMoves[nextMove++];
+            }
+        };
+    }
+}
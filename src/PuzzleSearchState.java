@@ -0,0 +1,319 @@
+/**
+ * A mutable, primitive copy of a sliding puzzle used during search.
+ * It keeps both the tile in every cell and the cell of every tile, and updates the
+ * Manhattan distance and whichever of linear conflicts, walking distance and the pattern
+ * database estimate its {@link PuzzleHeuristic} uses incrementally as the empty space moves,
+ * so expanding a node never allocates.
+ */
+public class PuzzleSearchState {
+    private final int width;
+    private final int height;
+    private final int[] tiles;
+    private final int[] positions;
+    private int blankCell;
+    private long hash;
+
+    private final PatternDatabase[] patternDatabases;
+    private final int[] groupOfTile;
+    private final int[] groupValues;
+    private int patternSum;
+
+    private final WalkingDistanceTable rowWalking;
+    private final WalkingDistanceTable columnWalking;
+    private int rowWalkingState;
+    private int columnWalkingState;
+
+    private int manhattanDistance;
+    private final boolean useConflicts;
+    private final int[] rowConflicts;
+    private final int[] columnConflicts;
+    private int conflictSum;
+    private final int[] lisTails;
+
+    /**
+     * Builds a search state from a row-major tile layout, guided by the {@link PuzzleHeuristic#COMBINED} estimate.
+     * @param tiles The tile in every cell, with 0 for the empty space.
+     * @param patternDatabases The disjoint databases to consult, or null to do without them.
+     */
+    public PuzzleSearchState(int[] tiles, int width, int height, PatternDatabase[] patternDatabases) {
+        this(tiles, width, height, PuzzleHeuristic.COMBINED, patternDatabases);
+    }
+
+    /**
+     * Builds a search state from a row-major tile layout.
+     * @param tiles The tile in every cell, with 0 for the empty space.
+     * @param heuristic The estimate {@link #heuristic()} returns.
+     * @param patternDatabases The disjoint databases to consult if the heuristic uses them, or null to do without.
+     */
+    public PuzzleSearchState(int[] tiles, int width, int height, PuzzleHeuristic heuristic, PatternDatabase[] patternDatabases) {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles.clone();
+        this.positions = new int[tiles.length];
+        for (int cell = 0; cell < tiles.length; cell++) {
+            positions[this.tiles[cell]] = cell;
+        }
+        this.blankCell = positions[0];
+
+        boolean usePatterns = heuristic == PuzzleHeuristic.PATTERN_DATABASE || heuristic == PuzzleHeuristic.COMBINED;
+        if (!usePatterns) patternDatabases = null;
+        this.patternDatabases = patternDatabases;
+        this.groupOfTile = new int[tiles.length];
+        this.groupValues = new int[patternDatabases == null ? 0 : patternDatabases.length];
+        if (patternDatabases != null) {
+            for (int groupIndex = 0; groupIndex < patternDatabases.length; groupIndex++) {
+                for (int tile : patternDatabases[groupIndex].getGroupTiles()) {
+                    groupOfTile[tile] = groupIndex;
+                }
+                groupValues[groupIndex] = patternDatabases[groupIndex].lookup(positions);
+                patternSum += groupValues[groupIndex];
+            }
+        }
+
+        boolean useWalking = heuristic == PuzzleHeuristic.WALKING_DISTANCE || heuristic == PuzzleHeuristic.COMBINED;
+        WalkingDistanceTable rowTable = useWalking ? WalkingDistanceTable.forRows(width, height) : null;
+        WalkingDistanceTable columnTable = useWalking ? WalkingDistanceTable.forColumns(width, height) : null;
+        boolean walkingAvailable = rowTable != null && columnTable != null;
+        this.rowWalking = walkingAvailable ? rowTable : null;
+        this.columnWalking = walkingAvailable ? columnTable : null;
+        if (walkingAvailable) {
+            rowWalkingState = rowTable.stateOf(this.tiles, width, false);
+            columnWalkingState = columnTable.stateOf(this.tiles, width, true);
+        }
+
+        this.useConflicts = heuristic == PuzzleHeuristic.LINEAR_CONFLICT || heuristic == PuzzleHeuristic.COMBINED
+                || (heuristic == PuzzleHeuristic.WALKING_DISTANCE && !walkingAvailable)
+                || (heuristic == PuzzleHeuristic.PATTERN_DATABASE && patternDatabases == null);
+        this.rowConflicts = new int[height];
+        this.columnConflicts = new int[width];
+        this.lisTails = new int[Math.max(width, height)];
+        for (int cell = 0; cell < tiles.length; cell++) {
+            int tile = this.tiles[cell];
+            if (tile == 0) continue;
+            manhattanDistance += distanceHome(tile, cell);
+            hash ^= zobristKey(tile, cell);
+        }
+        if (useConflicts) {
+            for (int rowIndex = 0; rowIndex < height; rowIndex++) {
+                rowConflicts[rowIndex] = rowConflict(rowIndex);
+                conflictSum += rowConflicts[rowIndex];
+            }
+            for (int columnIndex = 0; columnIndex < width; columnIndex++) {
+                columnConflicts[columnIndex] = columnConflict(columnIndex);
+                conflictSum += columnConflicts[columnIndex];
+            }
+        }
+    }
+
+    /**
+     * Creates an independent copy of another search state.
+     */
+    public PuzzleSearchState(PuzzleSearchState other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.tiles = other.tiles.clone();
+        this.positions = other.positions.clone();
+        this.blankCell = other.blankCell;
+        this.hash = other.hash;
+        this.patternDatabases = other.patternDatabases;
+        this.groupOfTile = other.groupOfTile;
+        this.groupValues = other.groupValues.clone();
+        this.patternSum = other.patternSum;
+        this.rowWalking = other.rowWalking;
+        this.columnWalking = other.columnWalking;
+        this.rowWalkingState = other.rowWalkingState;
+        this.columnWalkingState = other.columnWalkingState;
+        this.manhattanDistance = other.manhattanDistance;
+        this.useConflicts = other.useConflicts;
+        this.rowConflicts = other.rowConflicts.clone();
+        this.columnConflicts = other.columnConflicts.clone();
+        this.conflictSum = other.conflictSum;
+        this.lisTails = new int[other.lisTails.length];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBlankCell() {
+        return blankCell;
+    }
+
+    public int getTile(int cell) {
+        return tiles[cell];
+    }
+
+    public int getCellCount() {
+        return tiles.length;
+    }
+
+    /**
+     * Returns an admissible estimate of the moves left: the largest of the estimates the
+     * state's {@link PuzzleHeuristic} uses, with linear conflicts only counted when they are used.
+     */
+    public int heuristic() {
+        int estimate = manhattanDistance + conflictSum;
+        if (rowWalking != null) {
+            estimate = Math.max(estimate, rowWalking.distance(rowWalkingState) + columnWalking.distance(columnWalkingState));
+        }
+        return patternDatabases != null ? Math.max(estimate, patternSum) : estimate;
+    }
+
+    public int getManhattanDistance() {
+        return manhattanDistance;
+    }
+
+    public boolean isSolved() {
+        return manhattanDistance == 0;
+    }
+
+    /**
+     * Returns a 64-bit Zobrist hash of the tile layout, maintained incrementally on every slide.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the cell next to the empty space in a direction.
+     * @param direction 0 for up, 1 for down, 2 for left, 3 for right.
+     * @return The neighbouring cell, or -1 if the empty space is on that edge.
+     */
+    public int neighbourOfBlank(int direction) {
+        int rowIndex = blankCell / width;
+        int columnIndex = blankCell % width;
+        switch (direction) {
+            case 0:
+                return rowIndex > 0 ? blankCell - width : -1;
+            case 1:
+                return rowIndex < height - 1 ? blankCell + width : -1;
+            case 2:
+                return columnIndex > 0 ? blankCell - 1 : -1;
+            default:
+                return columnIndex < width - 1 ? blankCell + 1 : -1;
+        }
+    }
+
+    /**
+     * Slides the tile at a cell next to the empty space into it.
+     * Moving the empty space back to its previous cell undoes the move.
+     * @param sourceCell A cell adjacent to the empty space.
+     * @return The value of the tile that moved.
+     */
+    public int slide(int sourceCell) {
+        int tile = tiles[sourceCell];
+        int targetCell = blankCell;
+        manhattanDistance += distanceHome(tile, targetCell) - distanceHome(tile, sourceCell);
+        hash ^= zobristKey(tile, sourceCell) ^ zobristKey(tile, targetCell);
+
+        tiles[targetCell] = tile;
+        tiles[sourceCell] = 0;
+        positions[tile] = targetCell;
+        positions[0] = sourceCell;
+        blankCell = sourceCell;
+
+        int sourceRow = sourceCell / width;
+        int targetRow = targetCell / width;
+        if (sourceRow != targetRow) {
+            if (useConflicts) {
+                updateRowConflict(sourceRow);
+                updateRowConflict(targetRow);
+            }
+            if (rowWalking != null) rowWalkingState = rowWalking.move(rowWalkingState, sourceRow > targetRow, (tile - 1) / width);
+        } else {
+            int sourceColumn = sourceCell % width;
+            int targetColumn = targetCell % width;
+            if (useConflicts) {
+                updateColumnConflict(sourceColumn);
+                updateColumnConflict(targetColumn);
+            }
+            if (columnWalking != null) {
+                columnWalkingState = columnWalking.move(columnWalkingState, sourceColumn > targetColumn, (tile - 1) % width);
+            }
+        }
+
+        if (patternDatabases != null) {
+            int groupIndex = groupOfTile[tile];
+            int value = patternDatabases[groupIndex].lookup(positions);
+            patternSum += value - groupValues[groupIndex];
+            groupValues[groupIndex] = value;
+        }
+        return tile;
+    }
+
+    /**
+     * Derives the Zobrist key of a tile on a cell by mixing the pair with the SplitMix64 finalizer,
+     * so no key table has to be stored even for very large boards.
+     */
+    private long zobristKey(int tile, int cell) {
+        long key = (long) tile * tiles.length + cell + 0x9E3779B97F4A7C15L;
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    private int distanceHome(int tile, int cell) {
+        int goalCell = tile - 1;
+        return Math.abs(goalCell / width - cell / width) + Math.abs(goalCell % width - cell % width);
+    }
+
+    private void updateRowConflict(int rowIndex) {
+        int conflict = rowConflict(rowIndex);
+        conflictSum += conflict - rowConflicts[rowIndex];
+        rowConflicts[rowIndex] = conflict;
+    }
+
+    private void updateColumnConflict(int columnIndex) {
+        int conflict = columnConflict(columnIndex);
+        conflictSum += conflict - columnConflicts[columnIndex];
+        columnConflicts[columnIndex] = conflict;
+    }
+
+    /**
+     * Counts the extra moves forced by tiles that sit in their goal row but in the wrong order.
+     * Tiles outside the longest correctly ordered subsequence must each leave the row and come back.
+     */
+    private int rowConflict(int rowIndex) {
+        int tilesInGoalRow = 0;
+        int orderedLength = 0;
+        for (int columnIndex = 0; columnIndex < width; columnIndex++) {
+            int tile = tiles[rowIndex * width + columnIndex];
+            if (tile == 0 || (tile - 1) / width != rowIndex) continue;
+            tilesInGoalRow++;
+            orderedLength = extendOrderedRun((tile - 1) % width, orderedLength);
+        }
+        return 2 * (tilesInGoalRow - orderedLength);
+    }
+
+    private int columnConflict(int columnIndex) {
+        int tilesInGoalColumn = 0;
+        int orderedLength = 0;
+        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
+            int tile = tiles[rowIndex * width + columnIndex];
+            if (tile == 0 || (tile - 1) % width != columnIndex) continue;
+            tilesInGoalColumn++;
+            orderedLength = extendOrderedRun((tile - 1) / width, orderedLength);
+        }
+        return 2 * (tilesInGoalColumn - orderedLength);
+    }
+
+    /**
+     * One step of a patience-sort longest increasing subsequence over {@link #lisTails}.
+     * @return The new length of the longest increasing subsequence.
+     */
+    private int extendOrderedRun(int value, int length) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lisTails[middle] < value) low = middle + 1;
+            else high = middle;
+        }
+        lisTails[low] = value;
+        return low == length ? length + 1 : length;
+    }
+}
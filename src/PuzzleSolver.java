@@ -0,0 +1,145 @@
+/**
+ * Finds optimal solutions for the sliding puzzle using iterative deepening A* (IDA*).
+ * The search runs on a {@link PuzzleSearchState}, guided by default by the best of Manhattan
+ * distance with linear conflicts, walking distance on small boards and, on boards from 4x4 up,
+ * additive {@link PatternDatabase}s; any single {@link PuzzleHeuristic} can be chosen instead.
+ * Solutions are returned as the tile values to pass to {@link PuzzleBoard#slideTile(int)}.
+ */
+public class PuzzleSolver {
+    /**
+     * Passed as a time budget to let the search run until it finishes.
+     */
+    public static final long NO_TIME_LIMIT = 0;
+
+    /**
+     * Boards with more cells than this are too large to solve optimally.
+     */
+    public static final int MAX_OPTIMAL_CELLS = 64;
+
+    private static final int FOUND = -1;
+    private static final int TIMED_OUT = -2;
+    private static final int TIME_CHECK_INTERVAL = 4096;
+
+    private final long timeBudgetMillis;
+    private final PuzzleHeuristic heuristic;
+    private long deadlineNanos;
+    private long nodesExpanded;
+    private int[] path;
+
+    /**
+     * A time-limited solver never waits for pattern databases to be built; it uses them
+     * once {@link PatternDatabase#prepareInBackground(int, int)} has finished.
+     * @param timeBudgetMillis How long a single solve may take, or {@link #NO_TIME_LIMIT}.
+     */
+    public PuzzleSolver(long timeBudgetMillis) {
+        this(timeBudgetMillis, PuzzleHeuristic.COMBINED);
+    }
+
+    /**
+     * @param timeBudgetMillis How long a single solve may take, or {@link #NO_TIME_LIMIT}.
+     * @param heuristic The estimate that guides the search.
+     */
+    public PuzzleSolver(long timeBudgetMillis, PuzzleHeuristic heuristic) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Computes a shortest sequence of slides that solves the board.
+     * @return The tiles to slide in order (empty if already solved), or null if the time budget ran out.
+     * @throws IllegalArgumentException if the board is too large to solve optimally or not solvable.
+     */
+    public int[] solve(PuzzleBoard board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        if (width * height > MAX_OPTIMAL_CELLS) {
+            throw new IllegalArgumentException("Boards larger than " + MAX_OPTIMAL_CELLS + " cells cannot be solved optimally.");
+        }
+        int[] tiles = board.getTiles();
+        if (!PuzzleBoard.isSolvable(tiles, width, height)) {
+            throw new IllegalArgumentException("Puzzle is not solvable.");
+        }
+
+        long startNanos = System.nanoTime();
+        deadlineNanos = timeBudgetMillis == NO_TIME_LIMIT ? Long.MAX_VALUE : startNanos + timeBudgetMillis * 1_000_000L;
+        nodesExpanded = 0;
+
+        boolean usePatterns = heuristic == PuzzleHeuristic.PATTERN_DATABASE || heuristic == PuzzleHeuristic.COMBINED;
+        PatternDatabase[] patternDatabases = !usePatterns ? null
+                : timeBudgetMillis == NO_TIME_LIMIT ? PatternDatabase.forBoard(width, height)
+                : PatternDatabase.getIfReady(width, height);
+        PuzzleSearchState state = new PuzzleSearchState(tiles, width, height, heuristic, patternDatabases);
+        int threshold = state.heuristic();
+        path = new int[Math.max(16, threshold * 2)];
+        while (true) {
+            if (path.length <= threshold) {
+                path = new int[threshold * 2];
+            }
+            int result = search(state, 0, threshold, -1);
+            if (result == FOUND) {
+                int[] solution = new int[threshold];
+                System.arraycopy(path, 0, solution, 0, threshold);
+                return solution;
+            }
+            if (result == TIMED_OUT) return null;
+            threshold = result;
+        }
+    }
+
+    /**
+     * Depth-first search bounded by the current threshold.
+     * @return FOUND, TIMED_OUT, or the smallest f-value that exceeded the threshold.
+     */
+    private int search(PuzzleSearchState state, int depth, int threshold, int previousBlankCell) {
+        int estimate = depth + state.heuristic();
+        if (estimate > threshold) return estimate;
+        if (state.isSolved()) return FOUND;
+        if (++nodesExpanded % TIME_CHECK_INTERVAL == 0 && System.nanoTime() > deadlineNanos) return TIMED_OUT;
+
+        int nextThreshold = Integer.MAX_VALUE;
+        int blankCell = state.getBlankCell();
+        for (int direction = 0; direction < 4; direction++) {
+            int sourceCell = state.neighbourOfBlank(direction);
+            if (sourceCell < 0 || sourceCell == previousBlankCell) continue;
+
+            path[depth] = state.slide(sourceCell);
+            int result = search(state, depth + 1, threshold, blankCell);
+            state.slide(blankCell);
+
+            if (result == FOUND || result == TIMED_OUT) return result;
+            if (result < nextThreshold) nextThreshold = result;
+        }
+        return nextThreshold;
+    }
+
+    /**
+     * Picks a single promising move without searching, for boards too large to solve
+     * or when the time budget runs out: the slide that leaves the lowest heuristic estimate.
+     * @return The tile to slide.
+     */
+    public static int suggestMove(PuzzleBoard board) {
+        PuzzleSearchState state = new PuzzleSearchState(board.getTiles(), board.getWidth(), board.getHeight(),
+                PuzzleHeuristic.LINEAR_CONFLICT, null);
+        int blankCell = state.getBlankCell();
+        int bestTile = -1;
+        int bestEstimate = Integer.MAX_VALUE;
+        for (int direction = 0; direction < 4; direction++) {
+            int sourceCell = state.neighbourOfBlank(direction);
+            if (sourceCell < 0) continue;
+            int tile = state.slide(sourceCell);
+            if (state.heuristic() < bestEstimate) {
+                bestEstimate = state.heuristic();
+                bestTile = tile;
+            }
+            state.slide(blankCell);
+        }
+        return bestTile;
+    }
+
+    /**
+     * Returns how many nodes the last call to {@link #solve(PuzzleBoard)} expanded.
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+}
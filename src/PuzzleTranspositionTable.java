@@ -0,0 +1,53 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free table shared by the threads of a {@link ParallelPuzzleSolver}.
+ * It remembers the smallest number of moves at which each position has been reached
+ * during the current search iteration, so a thread arriving at a position another
+ * thread already reached at least as cheaply can skip it.
+ * Each slot is a single long holding part of the position's hash, the iteration
+ * and the move count, updated with compare-and-set.
+ */
+public class PuzzleTranspositionTable {
+    private static final int DEPTH_BITS = 12;
+    private static final int ITERATION_BITS = 12;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+    private static final long ITERATION_MASK = (1L << ITERATION_BITS) - 1;
+    private static final long KEY_MASK = ~((1L << (DEPTH_BITS + ITERATION_BITS)) - 1);
+
+    private final AtomicLongArray slots;
+    private final int indexMask;
+
+    /**
+     * @param sizeBits The table holds 2^sizeBits slots of eight bytes each.
+     */
+    public PuzzleTranspositionTable(int sizeBits) {
+        this.slots = new AtomicLongArray(1 << sizeBits);
+        this.indexMask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * Records that a position was reached, unless it was already reached as cheaply in this iteration.
+     * @param hash The position's Zobrist hash.
+     * @param depth The number of moves taken to reach it.
+     * @param iteration The current search iteration, which invalidates entries from earlier ones.
+     * @return true if the position should be skipped, false if the caller should search it.
+     */
+    public boolean visit(long hash, int depth, int iteration) {
+        int index = (int) (hash ^ (hash >>> 32)) & indexMask;
+        long key = hash & KEY_MASK;
+        long iterationBits = (iteration & ITERATION_MASK) << DEPTH_BITS;
+        long replacement = key | iterationBits | Math.min(depth, DEPTH_MASK);
+        while (true) {
+            long slot = slots.get(index);
+            boolean samePosition = (slot & KEY_MASK) == key
+                    && (slot & (ITERATION_MASK << DEPTH_BITS)) == iterationBits;
+            if (samePosition && (slot & DEPTH_MASK) <= depth) return true;
+            if (slots.compareAndSet(index, slot, replacement)) return false;
+        }
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Plays large numbers of games without any console input or output.
+ * Games are split evenly across a fixed pool of worker threads, each with its own
+ * random number generator, and the per-thread results are merged into a single
+ * {@link SimulationStatistics}. The board classes are driven directly through their
+ * move methods, so no board is ever rendered.
+ */
+public class SimulationRunner {
+    private final int threadCount;
+    private final long seed;
+
+    /**
+     * @param threadCount How many worker threads to play games on.
+     * @param seed The seed from which every worker's random number generator is derived.
+     */
+    public SimulationRunner(int threadCount, long seed) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        this.threadCount = threadCount;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays Dots and Boxes games between two policies.
+     * @param firstPolicy Creates the policy for the player who moves first in each game.
+     * @param secondPolicy Creates the policy for the other player.
+     */
+    public SimulationStatistics runDotsAndBoxes(int width, int height, long gameCount,
+                                                Supplier<DotsAndBoxesPolicy> firstPolicy,
+                                                Supplier<DotsAndBoxesPolicy> secondPolicy) {
+        return runInParallel(gameCount, (games, random) -> {
+            SimulationStatistics statistics = new SimulationStatistics();
+            Player firstPlayer = PlayerRegistry.getDefault().intern("First");
+            Player secondPlayer = PlayerRegistry.getDefault().intern("Second");
+            for (long game = 0; game < games; game++) {
+                DotsAndBoxesBoard board = new DotsAndBoxesBoard(width, height, firstPlayer, secondPlayer);
+                DotsAndBoxesPolicy firstMover = firstPolicy.get();
+                DotsAndBoxesPolicy secondMover = secondPolicy.get();
+                boolean firstToMove = true;
+                int moves = 0;
+                while (!board.isGameOver()) {
+                    Player currentPlayer = firstToMove ? firstPlayer : secondPlayer;
+                    int lineIndex = (firstToMove ? firstMover : secondMover).chooseLine(board, random);
+                    if (board.drawLine(lineIndex, currentPlayer) == 0) firstToMove = !firstToMove;
+                    moves++;
+                }
+                statistics.recordGame(Integer.compare(board.getScore(firstPlayer), board.getScore(secondPlayer)), moves);
+            }
+            return statistics;
+        });
+    }
+
+    /**
+     * Plays sliding puzzle games with a policy, stopping each game once it is solved or reaches a move limit.
+     */
+    public SimulationStatistics runPuzzle(int width, int height, long gameCount, int maxMovesPerGame,
+                                          Supplier<PuzzlePolicy> policy) {
+        return runInParallel(gameCount, (games, random) -> {
+            SimulationStatistics statistics = new SimulationStatistics();
+            for (long game = 0; game < games; game++) {
+                PuzzleBoard board = new PuzzleBoard(width, height);
+                PuzzlePolicy player = policy.get();
+                int moves = 0;
+                while (!board.isSolved() && moves < maxMovesPerGame) {
+                    if (!board.slideTile(player.chooseTile(board, random))) {
+                        throw new IllegalStateException("Policy chose a tile that cannot slide.");
+                    }
+                    moves++;
+                }
+                statistics.recordGame(board.isSolved() ? 1 : 0, moves);
+            }
+            return statistics;
+        });
+    }
+
+    /**
+     * Plays a share of the games on one worker thread.
+     */
+    private interface Worker {
+        SimulationStatistics play(long games, Random random);
+    }
+
+    private SimulationStatistics runInParallel(long gameCount, Worker worker) {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        long startNanos = System.nanoTime();
+        try {
+            List<Future<SimulationStatistics>> results = new ArrayList<>();
+            for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+                long games = gameCount / threadCount + (threadIndex < gameCount % threadCount ? 1 : 0);
+                Random random = new Random(seed + threadIndex * 0x9E3779B97F4A7C15L);
+                results.add(executor.submit(() -> worker.play(games, random)));
+            }
+
+            SimulationStatistics statistics = new SimulationStatistics();
+            for (Future<SimulationStatistics> result : results) {
+                statistics.merge(result.get());
+            }
+            statistics.setElapsedNanos(System.nanoTime() - startNanos);
+            return statistics;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation was interrupted.", exception);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Simulation failed: " + exception.getCause().getMessage(), exception.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a simulation from the command line, for example
+     * {@code java SimulationRunner dots 4 4 1000000 random greedy}
+     * or {@code java SimulationRunner puzzle 3 3 10000 solver}.
+     */
+    public static void main(String[] args) {
+        boolean dots = args.length > 0 && args[0].equalsIgnoreCase("dots");
+        if (args.length < (dots ? 6 : 5)) {
+            System.out.println("Usage: SimulationRunner dots <width> <height> <games> <policy> <policy> [threads]");
+            System.out.println("       SimulationRunner puzzle <width> <height> <games> <policy> [threads]");
+            System.out.println("Policies: random, greedy, computer, mcts (dots) or solver (puzzle)");
+            return;
+        }
+        int width = Integer.parseInt(args[1]);
+        int height = Integer.parseInt(args[2]);
+        long gameCount = Long.parseLong(args[3]);
+        int threadArgument = dots ? 6 : 5;
+        int threadCount = args.length > threadArgument
+                ? Integer.parseInt(args[threadArgument]) : Runtime.getRuntime().availableProcessors();
+
+        SimulationRunner runner = new SimulationRunner(threadCount, System.nanoTime());
+        SimulationStatistics statistics;
+        if (dots) {
+            statistics = runner.runDotsAndBoxes(width, height, gameCount,
+                    dotsPolicyNamed(args[4]), dotsPolicyNamed(args[5]));
+        } else {
+            statistics = runner.runPuzzle(width, height, gameCount, width * height * 100, puzzlePolicyNamed(args[4]));
+        }
+        System.out.println(statistics);
+    }
+
+    static Supplier<DotsAndBoxesPolicy> dotsPolicyNamed(String name) {
+        switch (name.toLowerCase()) {
+            case "random":
+                return DotsAndBoxesPolicy::random;
+            case "greedy":
+                return DotsAndBoxesPolicy::greedy;
+            case "computer":
+                // The search's transposition table is large, so each worker thread keeps one
+                ThreadLocal<DotsAndBoxesPolicy> computerPerThread = ThreadLocal.withInitial(() -> DotsAndBoxesPolicy.computer(100));
+                return computerPerThread::get;
+            case "mcts":
+                // Likewise the search's node pool
+                ThreadLocal<DotsAndBoxesPolicy> mctsPerThread = ThreadLocal.withInitial(() -> DotsAndBoxesPolicy.mcts(100));
+                return mctsPerThread::get;
+            default:
+                throw new IllegalArgumentException("Unknown Dots and Boxes policy: " + name);
+        }
+    }
+
+    static Supplier<PuzzlePolicy> puzzlePolicyNamed(String name) {
+        switch (name.toLowerCase()) {
+            case "random":
+                return PuzzlePolicy::random;
+            case "greedy":
+                return PuzzlePolicy::greedy;
+            case "solver":
+                return () -> PuzzlePolicy.solver(1000);
+            default:
+                throw new IllegalArgumentException("Unknown puzzle policy: " + name);
+        }
+    }
+}
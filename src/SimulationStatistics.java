@@ -0,0 +1,78 @@
+/**
+ * Aggregate results of a batch of headless games.
+ * For Dots and Boxes the outcomes are wins for the first or second player and ties;
+ * for the sliding puzzle a "first player win" is a solved puzzle and a "tie" is a game
+ * stopped at the move limit. Partial results from worker threads are combined with {@link #merge}.
+ */
+public class SimulationStatistics {
+    private long gameCount;
+    private long firstPlayerWins;
+    private long secondPlayerWins;
+    private long ties;
+    private long totalMoves;
+    private long elapsedNanos;
+
+    /**
+     * Records the outcome of one game.
+     * @param outcome Positive if the first player won, negative if the second player won, zero for a tie.
+     * @param moves The number of moves played.
+     */
+    public void recordGame(int outcome, int moves) {
+        gameCount++;
+        totalMoves += moves;
+        if (outcome > 0) firstPlayerWins++;
+        else if (outcome < 0) secondPlayerWins++;
+        else ties++;
+    }
+
+    public void merge(SimulationStatistics other) {
+        gameCount += other.gameCount;
+        firstPlayerWins += other.firstPlayerWins;
+        secondPlayerWins += other.secondPlayerWins;
+        ties += other.ties;
+        totalMoves += other.totalMoves;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    public long getTotalMoves() {
+        return totalMoves;
+    }
+
+    public double getFirstPlayerWinRate() {
+        return gameCount == 0 ? 0 : (double) firstPlayerWins / gameCount;
+    }
+
+    public double getSecondPlayerWinRate() {
+        return gameCount == 0 ? 0 : (double) secondPlayerWins / gameCount;
+    }
+
+    public double getTieRate() {
+        return gameCount == 0 ? 0 : (double) ties / gameCount;
+    }
+
+    public double getAverageGameLength() {
+        return gameCount == 0 ? 0 : (double) totalMoves / gameCount;
+    }
+
+    public double getMovesPerSecond() {
+        return elapsedNanos == 0 ? 0 : totalMoves * 1e9 / elapsedNanos;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : gameCount * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games, first %.1f%%, second %.1f%%, ties %.1f%%, %.1f moves/game, %.0f games/s, %.0f moves/s",
+                gameCount, getFirstPlayerWinRate() * 100, getSecondPlayerWinRate() * 100, getTieRate() * 100,
+                getAverageGameLength(), getGamesPerSecond(), getMovesPerSecond());
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Keeps one Zobrist hash of a position per board symmetry, so that the hash of the position's
+ * canonical form is always at hand. A position is described as a set of elements, such as drawn
+ * lines or tile placements; toggling an element updates every symmetry's hash with the key of the
+ * element's image under that symmetry, which costs one key per symmetry and never rescans the board.
+ * The canonical hash is the smallest of these hashes, so every rotation and reflection of a
+ * position shares it, and caches keyed by it hold each position once instead of up to eight times.
+ */
+public class SymmetryHash {
+
+    /**
+     * Maps an element of a position to its image under a symmetry.
+     */
+    @FunctionalInterface
+    public interface ElementMapping {
+        long map(BoardSymmetry symmetry, long element);
+    }
+
+    private final BoardSymmetry[] symmetries;
+    private final ElementMapping mapping;
+    private final long[] hashes;
+
+    /**
+     * @param symmetries The symmetries positions are considered equal under; the first should be {@link BoardSymmetry#IDENTITY}.
+     * @param mapping How elements move under each symmetry.
+     */
+    public SymmetryHash(BoardSymmetry[] symmetries, ElementMapping mapping) {
+        this.symmetries = symmetries.clone();
+        this.mapping = mapping;
+        this.hashes = new long[symmetries.length];
+    }
+
+    /**
+     * Adds an element to the position, or removes it if it is already there.
+     */
+    public void toggle(long element) {
+        for (int index = 0; index < symmetries.length; index++) {
+            hashes[index] ^= keyOf(mapping.map(symmetries[index], element));
+        }
+    }
+
+    /**
+     * Returns the hash of the position as seen through one of the symmetries.
+     */
+    public long hash(BoardSymmetry symmetry) {
+        for (int index = 0; index < symmetries.length; index++) {
+            if (symmetries[index] == symmetry) return hashes[index];
+        }
+        throw new IllegalArgumentException("Symmetry " + symmetry + " is not tracked.");
+    }
+
+    /**
+     * Returns the same value for a position and all of its rotations and reflections.
+     */
+    public long canonicalHash() {
+        long canonical = hashes[0];
+        for (int index = 1; index < hashes.length; index++) {
+            if (Long.compareUnsigned(hashes[index], canonical) < 0) canonical = hashes[index];
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns a symmetry that takes the position to its canonical form, for mapping moves stored
+     * against the canonical position back onto this one.
+     */
+    public BoardSymmetry canonicalSymmetry() {
+        int best = 0;
+        for (int index = 1; index < hashes.length; index++) {
+            if (Long.compareUnsigned(hashes[index], hashes[best]) < 0) best = index;
+        }
+        return symmetries[best];
+    }
+
+    /**
+     * Derives an element's key with the SplitMix64 finalizer, so no key table is stored.
+     */
+    private static long keyOf(long element) {
+        long key = element * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+}
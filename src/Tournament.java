@@ -0,0 +1,437 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs a competition between a field of entrants, playing every pairing as a headless
+ * {@link TournamentMatch} on a fixed pool of worker threads. Round-robin events stream all their
+ * matches into the pool at once, while Swiss events pair each round by the standings after the
+ * last one. The scheduler never has more than a few matches per thread queued, so even events of
+ * millions of matches run in constant memory. Results go straight into atomic counters and
+ * {@link EloRatings}, and the standings can be followed while the event runs.
+ */
+public class Tournament {
+
+    /**
+     * How entrants are paired.
+     */
+    public enum Format {
+        /** Every entrant meets every other once per cycle, moving first in about half of their matches. */
+        ROUND_ROBIN,
+        /** Entrants with similar scores meet, avoiding rematches; an odd entrant out gets a bye worth a win. */
+        SWISS
+    }
+
+    /**
+     * One entrant's place in the standings at some point during an event.
+     */
+    public static final class Standing {
+        private final int entrant;
+        private final String name;
+        private final int wins;
+        private final int losses;
+        private final int ties;
+        private final int byes;
+        private final double rating;
+
+        Standing(int entrant, String name, int wins, int losses, int ties, int byes, double rating) {
+            this.entrant = entrant;
+            this.name = name;
+            this.wins = wins;
+            this.losses = losses;
+            this.ties = ties;
+            this.byes = byes;
+            this.rating = rating;
+        }
+
+        public int getEntrant() {
+            return entrant;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the entrant's score: a point for each win and bye, half a point for each tie.
+         */
+        public double getPoints() {
+            return wins + byes + ties / 2.0;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getTies() {
+            return ties;
+        }
+
+        public int getMatchesPlayed() {
+            return wins + losses + ties;
+        }
+
+        public double getRating() {
+            return rating;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %7.1f points %7d won %7d lost %7d tied %7.0f Elo",
+                    name, getPoints(), wins, losses, ties, rating);
+        }
+    }
+
+    /**
+     * Follows the standings of a running event.
+     */
+    public interface StandingsListener {
+
+        /**
+         * Receives the standings, best first. It is only ever called from the thread running the event.
+         * @param matchesPlayed How many matches had finished when the standings were taken.
+         */
+        void standingsUpdated(List<Standing> standings, long matchesPlayed);
+    }
+
+    private static final Comparator<Standing> BEST_FIRST = Comparator.comparingDouble(Standing::getPoints).reversed()
+            .thenComparing(Comparator.comparingDouble(Standing::getRating).reversed())
+            .thenComparingInt(Standing::getEntrant);
+
+    /** Matches queued per worker thread; enough to keep every worker busy while the scheduler catches up. */
+    private static final int QUEUED_MATCHES_PER_THREAD = 4;
+
+    private final List<String> entrantNames;
+    private final TournamentMatch match;
+    private final Format format;
+    private final int rounds;
+    private final int threadCount;
+    private final long seed;
+    private final EloRatings ratings;
+    private final AtomicIntegerArray wins;
+    private final AtomicIntegerArray losses;
+    private final AtomicIntegerArray ties;
+    private final int[] byes;
+    private final AtomicLong matchesPlayed = new AtomicLong();
+
+    /**
+     * @param entrantNames The entrants' names; entrants are numbered by their place in this list.
+     * @param match Plays a match between two entrants.
+     * @param rounds For a round robin, how many times every pairing meets; for a Swiss event, the number of rounds.
+     * @param threadCount How many worker threads to play matches on.
+     * @param seed The seed from which every worker's random number generator is derived.
+     */
+    public Tournament(List<String> entrantNames, TournamentMatch match, Format format, int rounds, int threadCount, long seed) {
+        if (entrantNames.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs at least 2 entrants.");
+        }
+        if (rounds < 1) {
+            throw new IllegalArgumentException("A tournament needs at least 1 round.");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1.");
+        }
+        int entrantCount = entrantNames.size();
+        this.entrantNames = new ArrayList<>(entrantNames);
+        this.match = match;
+        this.format = format;
+        this.rounds = rounds;
+        this.threadCount = threadCount;
+        this.seed = seed;
+        this.ratings = new EloRatings(entrantCount);
+        this.wins = new AtomicIntegerArray(entrantCount);
+        this.losses = new AtomicIntegerArray(entrantCount);
+        this.ties = new AtomicIntegerArray(entrantCount);
+        this.byes = new int[entrantCount];
+    }
+
+    /**
+     * Returns how many matches the whole event plays.
+     */
+    public long getMatchCount() {
+        long entrantCount = entrantNames.size();
+        if (format == Format.ROUND_ROBIN) return rounds * (entrantCount * (entrantCount - 1) / 2);
+        return rounds * (entrantCount / 2);
+    }
+
+    public long getMatchesPlayed() {
+        return matchesPlayed.get();
+    }
+
+    public EloRatings getRatings() {
+        return ratings;
+    }
+
+    /**
+     * Plays the whole event.
+     * @return The final standings, best first.
+     */
+    public List<Standing> run() {
+        return run(null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Plays the whole event, reporting the standings as it goes.
+     * @param listener Receives the standings after about every {@code reportEveryMatches} matches, or null.
+     * @return The final standings, best first.
+     */
+    public List<Standing> run(StandingsListener listener, long reportEveryMatches) {
+        if (reportEveryMatches < 1) {
+            throw new IllegalArgumentException("Standings must be reported at least every match.");
+        }
+        Scheduler scheduler = new Scheduler(listener, reportEveryMatches);
+        try {
+            if (format == Format.ROUND_ROBIN) {
+                scheduleRoundRobin(scheduler);
+            } else {
+                scheduleSwiss(scheduler);
+            }
+            scheduler.awaitQueuedMatches();
+        } finally {
+            scheduler.executor.shutdownNow();
+        }
+        List<Standing> standings = getStandings();
+        if (listener != null && scheduler.lastReportedMatches != matchesPlayed.get()) {
+            listener.standingsUpdated(standings, matchesPlayed.get());
+        }
+        return standings;
+    }
+
+    /**
+     * Returns the standings as they are now, best first. While the event runs they can be a match or so behind.
+     */
+    public List<Standing> getStandings() {
+        List<Standing> standings = new ArrayList<>(entrantNames.size());
+        for (int entrant = 0; entrant < entrantNames.size(); entrant++) {
+            standings.add(new Standing(entrant, entrantNames.get(entrant), wins.get(entrant), losses.get(entrant),
+                    ties.get(entrant), byes[entrant], ratings.getRating(entrant)));
+        }
+        standings.sort(BEST_FIRST);
+        return standings;
+    }
+
+    /**
+     * Pairs entrants with the circle method: one entrant stays put while the others rotate past it,
+     * which meets every pairing once in entrantCount - 1 rounds. An odd field gets a phantom entrant
+     * whose opponent sits the round out. The first mover alternates between cycles, and within a
+     * cycle for the entrant that stays put, so a double round robin plays every pairing both ways.
+     */
+    private void scheduleRoundRobin(Scheduler scheduler) {
+        int entrantCount = entrantNames.size();
+        int seatCount = entrantCount + (entrantCount % 2);
+        int[] seats = new int[seatCount];
+        for (int seat = 0; seat < seatCount; seat++) seats[seat] = seat;
+        for (int cycle = 0; cycle < rounds; cycle++) {
+            for (int round = 0; round < seatCount - 1; round++) {
+                for (int pair = 0; pair < seatCount / 2; pair++) {
+                    int first = seats[pair];
+                    int second = seats[seatCount - 1 - pair];
+                    if (first >= entrantCount || second >= entrantCount) continue;
+                    boolean swap = pair == 0 ? (cycle + round) % 2 == 1 : cycle % 2 == 1;
+                    scheduler.submit(swap ? second : first, swap ? first : second);
+                }
+                // Rotate every seat but the first one place
+                int last = seats[seatCount - 1];
+                System.arraycopy(seats, 1, seats, 2, seatCount - 2);
+                seats[1] = last;
+            }
+        }
+    }
+
+    /**
+     * Pairs each round from the standings after the last: the best entrant still unpaired meets the
+     * next best they have not met yet, or simply the next best once they have met everyone, and
+     * moves first if they have moved first less often. With an odd field the lowest entrant who has
+     * not had a bye sits the round out and scores a point.
+     */
+    private void scheduleSwiss(Scheduler scheduler) {
+        int entrantCount = entrantNames.size();
+        Set<Long> pairingsPlayed = new HashSet<>();
+        int[] firstMoves = new int[entrantCount];
+        boolean[] paired = new boolean[entrantCount];
+        for (int round = 0; round < rounds; round++) {
+            scheduler.awaitQueuedMatches();
+            List<Standing> standings = getStandings();
+            Arrays.fill(paired, false);
+            if (entrantCount % 2 == 1) {
+                int byeEntrant = standings.get(entrantCount - 1).getEntrant();
+                for (int place = entrantCount - 1; place >= 0; place--) {
+                    int entrant = standings.get(place).getEntrant();
+                    if (byes[entrant] < byes[byeEntrant]) byeEntrant = entrant;
+                }
+                byes[byeEntrant]++;
+                paired[byeEntrant] = true;
+            }
+            for (int place = 0; place < entrantCount; place++) {
+                int entrant = standings.get(place).getEntrant();
+                if (paired[entrant]) continue;
+                int opponent = -1;
+                for (int otherPlace = place + 1; otherPlace < entrantCount; otherPlace++) {
+                    int other = standings.get(otherPlace).getEntrant();
+                    if (paired[other]) continue;
+                    if (opponent < 0) opponent = other;
+                    if (!pairingsPlayed.contains(pairingKey(entrant, other))) {
+                        opponent = other;
+                        break;
+                    }
+                }
+                paired[entrant] = true;
+                paired[opponent] = true;
+                pairingsPlayed.add(pairingKey(entrant, opponent));
+                boolean entrantFirst = firstMoves[entrant] <= firstMoves[opponent];
+                firstMoves[entrantFirst ? entrant : opponent]++;
+                scheduler.submit(entrantFirst ? entrant : opponent, entrantFirst ? opponent : entrant);
+            }
+        }
+    }
+
+    private static long pairingKey(int entrant, int other) {
+        return (long) Math.min(entrant, other) << 32 | Math.max(entrant, other);
+    }
+
+    private void recordResult(int first, int second, int outcome) {
+        ratings.recordResult(first, second, outcome);
+        if (outcome > 0) {
+            wins.incrementAndGet(first);
+            losses.incrementAndGet(second);
+        } else if (outcome < 0) {
+            wins.incrementAndGet(second);
+            losses.incrementAndGet(first);
+        } else {
+            ties.incrementAndGet(first);
+            ties.incrementAndGet(second);
+        }
+        matchesPlayed.incrementAndGet();
+    }
+
+    /**
+     * Hands matches to the worker threads, holding the scheduling thread back while the queue is full
+     * and reporting the standings whenever enough matches have finished.
+     */
+    private final class Scheduler {
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final int queueCapacity = threadCount * QUEUED_MATCHES_PER_THREAD;
+        final Semaphore queueSlots = new Semaphore(queueCapacity);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicInteger nextWorker = new AtomicInteger();
+        final ThreadLocal<Random> workerRandom = ThreadLocal.withInitial(
+                () -> new Random(seed + nextWorker.getAndIncrement() * 0x9E3779B97F4A7C15L));
+        final StandingsListener listener;
+        final long reportEveryMatches;
+        long nextReport;
+        long lastReportedMatches = -1;
+
+        Scheduler(StandingsListener listener, long reportEveryMatches) {
+            this.listener = listener;
+            this.reportEveryMatches = reportEveryMatches;
+            this.nextReport = reportEveryMatches;
+        }
+
+        void submit(int first, int second) {
+            waitForSlots(1);
+            executor.execute(() -> {
+                try {
+                    if (failure.get() == null) recordResult(first, second, match.play(first, second, workerRandom.get()));
+                } catch (Throwable throwable) {
+                    failure.compareAndSet(null, throwable);
+                } finally {
+                    queueSlots.release();
+                }
+            });
+        }
+
+        /**
+         * Waits until every queued match has finished.
+         */
+        void awaitQueuedMatches() {
+            waitForSlots(queueCapacity);
+            queueSlots.release(queueCapacity);
+        }
+
+        private void waitForSlots(int slots) {
+            try {
+                while (!queueSlots.tryAcquire(slots, 50, TimeUnit.MILLISECONDS)) {
+                    reportIfDue();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Tournament was interrupted.", exception);
+            }
+            reportIfDue();
+            Throwable matchFailure = failure.get();
+            if (matchFailure != null) {
+                throw new IllegalStateException("Tournament failed: " + matchFailure.getMessage(), matchFailure);
+            }
+        }
+
+        private void reportIfDue() {
+            long played = matchesPlayed.get();
+            if (listener == null || played < nextReport) return;
+            nextReport = (played / reportEveryMatches + 1) * reportEveryMatches;
+            lastReportedMatches = played;
+            listener.standingsUpdated(getStandings(), played);
+        }
+    }
+
+    /**
+     * Runs a tournament from the command line, for example
+     * {@code java Tournament dots swiss 9 4 4 random greedy greedy computer}
+     * or {@code java Tournament puzzle round-robin 10 3 3 random greedy solver}.
+     * Each policy named enters once; the standings are printed as the event goes.
+     */
+    public static void main(String[] args) {
+        if (args.length < 7) {
+            System.out.println("Usage: Tournament dots|puzzle round-robin|swiss <rounds> <width> <height> <policy> <policy>...");
+            System.out.println("Policies: random, greedy, computer, mcts (dots) or solver (puzzle)");
+            return;
+        }
+        boolean dots = args[0].equalsIgnoreCase("dots");
+        Format format = args[1].equalsIgnoreCase("swiss") ? Format.SWISS : Format.ROUND_ROBIN;
+        int rounds = Integer.parseInt(args[2]);
+        int width = Integer.parseInt(args[3]);
+        int height = Integer.parseInt(args[4]);
+
+        List<String> names = new ArrayList<>();
+        List<Supplier<DotsAndBoxesPolicy>> dotsPolicies = new ArrayList<>();
+        List<Supplier<PuzzlePolicy>> puzzlePolicies = new ArrayList<>();
+        for (int argument = 5; argument < args.length; argument++) {
+            names.add(args[argument].toLowerCase() + " " + (argument - 4));
+            if (dots) dotsPolicies.add(SimulationRunner.dotsPolicyNamed(args[argument]));
+            else puzzlePolicies.add(SimulationRunner.puzzlePolicyNamed(args[argument]));
+        }
+        TournamentMatch match = dots
+                ? TournamentMatch.dotsAndBoxes(width, height, dotsPolicies)
+                : TournamentMatch.puzzleRace(width, height, width * height * 100, 1000, puzzlePolicies);
+
+        Tournament tournament = new Tournament(names, match, format, rounds,
+                Runtime.getRuntime().availableProcessors(), System.nanoTime());
+        long matchCount = tournament.getMatchCount();
+        long startNanos = System.nanoTime();
+        tournament.run((standings, matchesPlayed) -> {
+            System.out.println("\nStandings after " + matchesPlayed + " of " + matchCount + " matches:");
+            for (Standing standing : standings.subList(0, Math.min(standings.size(), 20))) {
+                System.out.println(standing);
+            }
+        }, Math.max(1, matchCount / 10));
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%n%d matches in %.2f s (%.0f matches/min)%n",
+                matchCount, elapsedSeconds, matchCount / elapsedSeconds * 60);
+    }
+}
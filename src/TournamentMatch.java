@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Plays one match of a {@link Tournament} between two of its entrants, numbered from 0.
+ * Matches run headless on the tournament's worker threads, so an implementation must be safe
+ * to call from several threads at once; the ones here create fresh boards and policies per match.
+ */
+public interface TournamentMatch {
+
+    /**
+     * Plays a match.
+     * @param random The random number generator of the worker thread playing the match.
+     * @return Positive if the first entrant won, negative if the second entrant won, zero for a tie.
+     */
+    int play(int firstEntrant, int secondEntrant, Random random);
+
+    /**
+     * A game of Dots and Boxes in which the first entrant moves first.
+     * @param policies Creates each entrant's policy, indexed by entrant.
+     */
+    static TournamentMatch dotsAndBoxes(int width, int height, List<Supplier<DotsAndBoxesPolicy>> policies) {
+        checkDimensions(width, height);
+        List<Supplier<DotsAndBoxesPolicy>> entrantPolicies = new ArrayList<>(policies);
+        Player firstPlayer = PlayerRegistry.getDefault().intern("First");
+        Player secondPlayer = PlayerRegistry.getDefault().intern("Second");
+        return (firstEntrant, secondEntrant, random) -> {
+            DotsAndBoxesBoard board = new DotsAndBoxesBoard(width, height, firstPlayer, secondPlayer);
+            DotsAndBoxesPolicy firstMover = entrantPolicies.get(firstEntrant).get();
+            DotsAndBoxesPolicy secondMover = entrantPolicies.get(secondEntrant).get();
+            boolean firstToMove = true;
+            while (!board.isGameOver()) {
+                Player currentPlayer = firstToMove ? firstPlayer : secondPlayer;
+                int lineIndex = (firstToMove ? firstMover : secondMover).chooseLine(board, random);
+                if (board.drawLine(lineIndex, currentPlayer) == 0) firstToMove = !firstToMove;
+            }
+            return Integer.compare(board.getScore(0), board.getScore(1));
+        };
+    }
+
+    /**
+     * A race in which both entrants solve the same freshly shuffled sliding puzzle, each on their own board.
+     * An entrant that solves the puzzle beats one that does not; between two that do, fewer moves
+     * win, and with as many moves the faster solve wins.
+     * @param maxMoves How many slides each entrant may make.
+     * @param timeLimitMillis How long each entrant may take to solve the puzzle.
+     * @param policies Creates each entrant's policy, indexed by entrant.
+     */
+    static TournamentMatch puzzleRace(int width, int height, int maxMoves, long timeLimitMillis,
+                                      List<Supplier<PuzzlePolicy>> policies) {
+        checkDimensions(width, height);
+        if (maxMoves < 1 || timeLimitMillis < 1) {
+            throw new IllegalArgumentException("A race needs a move limit and a time limit of at least 1.");
+        }
+        List<Supplier<PuzzlePolicy>> entrantPolicies = new ArrayList<>(policies);
+        long timeLimitNanos = timeLimitMillis * 1_000_000;
+        return (firstEntrant, secondEntrant, random) -> {
+            int[] layout = new PuzzleBoard(width, height).getTiles();
+            long[] firstRun = new long[2];
+            long[] secondRun = new long[2];
+            boolean firstSolved = race(new PuzzleBoard(width, height, layout), entrantPolicies.get(firstEntrant).get(),
+                    random, maxMoves, timeLimitNanos, firstRun);
+            boolean secondSolved = race(new PuzzleBoard(width, height, layout), entrantPolicies.get(secondEntrant).get(),
+                    random, maxMoves, timeLimitNanos, secondRun);
+            if (firstSolved != secondSolved) return firstSolved ? 1 : -1;
+            if (!firstSolved) return 0;
+            if (firstRun[0] != secondRun[0]) return Long.compare(secondRun[0], firstRun[0]);
+            return Long.compare(secondRun[1], firstRun[1]);
+        };
+    }
+
+    /**
+     * Lets one policy slide tiles until the puzzle is solved or it runs out of moves or time.
+     * @param run Receives the moves made and the nanoseconds taken.
+     * @return Whether the puzzle was solved.
+     */
+    static boolean race(PuzzleBoard board, PuzzlePolicy policy, Random random, int maxMoves, long timeLimitNanos,
+                        long[] run) {
+        long startNanos = System.nanoTime();
+        long elapsedNanos = 0;
+        int moves = 0;
+        while (!board.isSolved() && moves < maxMoves && elapsedNanos < timeLimitNanos) {
+            if (!board.slideTile(policy.chooseTile(board, random))) {
+                throw new IllegalStateException("Policy chose a tile that cannot slide.");
+            }
+            moves++;
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+        run[0] = moves;
+        run[1] = System.nanoTime() - startNanos;
+        return board.isSolved();
+    }
+
+    static void checkDimensions(int width, int height) {
+        if (width < Board.MIN_DIMENSION || width > Board.MAX_DIMENSION
+                || height < Board.MIN_DIMENSION || height > Board.MAX_DIMENSION) {
+            throw new IllegalArgumentException("Both width and height must be between "
+                    + Board.MIN_DIMENSION + " and " + Board.MAX_DIMENSION + ".");
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The walking distance table for one direction of a sliding puzzle. Tiles are grouped by the line
+ * (row or column) they belong in, and a state only records how many tiles of each group stand in
+ * each line, plus the line of the empty space. The table holds, for every such state, how many
+ * moves along this direction are needed to sort every tile into its line, counting tiles as
+ * obstacles to each other, which makes the row and column tables add up to an admissible estimate
+ * at least as large as Manhattan distance. Moves are table lookups too, so a search can keep both
+ * states current on every slide.
+ */
+public class WalkingDistanceTable {
+    /**
+     * Tables with more states than this are not built, which limits walking distance to boards of up to about 16 cells.
+     */
+    public static final int MAX_STATES = 100_000;
+
+    private static final Map<String, WalkingDistanceTable> CACHE = new ConcurrentHashMap<>();
+    private static final WalkingDistanceTable UNSUPPORTED = new WalkingDistanceTable(0, 0, new long[0], new byte[0], new int[0]);
+
+    private final int lineCount;
+    private final int cellsPerLine;
+    /** The encoded tile counts of every state, sorted so a state can be found by binary search. */
+    private final long[] stateKeys;
+    private final byte[] distances;
+    /** The state reached by each move, indexed by state, direction of the empty space and the moving tile's group. */
+    private final int[] transitions;
+
+    private WalkingDistanceTable(int lineCount, int cellsPerLine, long[] stateKeys, byte[] distances, int[] transitions) {
+        this.lineCount = lineCount;
+        this.cellsPerLine = cellsPerLine;
+        this.stateKeys = stateKeys;
+        this.distances = distances;
+        this.transitions = transitions;
+    }
+
+    /**
+     * Returns the table for the rows of a board, building and caching it on first use.
+     * @return The table, or null if it would have more than {@link #MAX_STATES} states.
+     */
+    public static WalkingDistanceTable forRows(int width, int height) {
+        return forLines(height, width);
+    }
+
+    /**
+     * Returns the table for the columns of a board, building and caching it on first use.
+     * @return The table, or null if it would have more than {@link #MAX_STATES} states.
+     */
+    public static WalkingDistanceTable forColumns(int width, int height) {
+        return forLines(width, height);
+    }
+
+    private static WalkingDistanceTable forLines(int lineCount, int cellsPerLine) {
+        WalkingDistanceTable table = CACHE.computeIfAbsent(lineCount + "x" + cellsPerLine,
+                key -> build(lineCount, cellsPerLine));
+        return table == UNSUPPORTED ? null : table;
+    }
+
+    public int getStateCount() {
+        return distances.length;
+    }
+
+    /**
+     * Finds the state of a board's tiles in this table.
+     * @param tiles The tile in every cell, with 0 for the empty space.
+     * @param columns Whether this is the board's column table rather than its row table.
+     */
+    public int stateOf(int[] tiles, int width, boolean columns) {
+        int[] state = new int[lineCount * lineCount + 1];
+        for (int cell = 0; cell < tiles.length; cell++) {
+            int tile = tiles[cell];
+            int line = columns ? cell % width : cell / width;
+            if (tile == 0) {
+                state[lineCount * lineCount] = line;
+                continue;
+            }
+            int goalLine = columns ? (tile - 1) % width : (tile - 1) / width;
+            state[line * lineCount + goalLine]++;
+        }
+        return Arrays.binarySearch(stateKeys, encode(state, 0));
+    }
+
+    /**
+     * Returns the number of moves along this direction a state needs at least.
+     */
+    public int distance(int state) {
+        return distances[state];
+    }
+
+    /**
+     * Follows a move along this direction: a tile slides from the next line into the empty space's line.
+     * @param blankMovesForward Whether the empty space moves to the next line up (down the rows, or right along the columns).
+     * @param goalLine The line the moving tile belongs in.
+     */
+    public int move(int state, boolean blankMovesForward, int goalLine) {
+        return transitions[(state * 2 + (blankMovesForward ? 1 : 0)) * lineCount + goalLine];
+    }
+
+    /**
+     * Packs a state, stored as the tile counts of each line by group followed by the empty space's line, into a key.
+     */
+    private long encode(int[] state, int offset) {
+        int countSize = lineCount * lineCount;
+        long key = state[offset + countSize];
+        for (int index = offset; index < offset + countSize; index++) {
+            key = key * (cellsPerLine + 1) + state[index];
+        }
+        return key;
+    }
+
+    /**
+     * Enumerates every state with a breadth-first search outward from the solved one, in which each
+     * line holds its own tiles and the empty space is in the last line.
+     */
+    private static WalkingDistanceTable build(int lineCount, int cellsPerLine) {
+        // The key must fit in a long: the blank line, then one digit per line and group
+        double keyBits = (lineCount * lineCount) * (Math.log(cellsPerLine + 1) / Math.log(2)) + Math.log(lineCount) / Math.log(2);
+        if (lineCount < 2 || cellsPerLine < 2 || keyBits > 62) return UNSUPPORTED;
+        WalkingDistanceTable encoder = new WalkingDistanceTable(lineCount, cellsPerLine, null, null, null);
+
+        // States are stored flat: the tile counts of each line by group, then the empty space's line
+        int stateSize = lineCount * lineCount + 1;
+        int[] states = new int[stateSize * 1024];
+        byte[] stateDistances = new byte[1024];
+        int[] moves = new int[2 * lineCount * 1024];
+        for (int line = 0; line < lineCount; line++) {
+            states[line * lineCount + line] = line == lineCount - 1 ? cellsPerLine - 1 : cellsPerLine;
+        }
+        states[stateSize - 1] = lineCount - 1;
+        Map<Long, Integer> statesByKey = new HashMap<>();
+        statesByKey.put(encoder.encode(states, 0), 0);
+        int stateCount = 1;
+
+        int[] nextCounts = new int[stateSize];
+        for (int state = 0; state < stateCount; state++) {
+            int blankLine = states[state * stateSize + stateSize - 1];
+            for (int forward = 0; forward < 2; forward++) {
+                int sourceLine = forward == 1 ? blankLine + 1 : blankLine - 1;
+                for (int goalLine = 0; goalLine < lineCount; goalLine++) {
+                    int moveIndex = (state * 2 + forward) * lineCount + goalLine;
+                    moves[moveIndex] = -1;
+                    if (sourceLine < 0 || sourceLine >= lineCount) continue;
+                    if (states[state * stateSize + sourceLine * lineCount + goalLine] == 0) continue;
+                    System.arraycopy(states, state * stateSize, nextCounts, 0, stateSize);
+                    nextCounts[sourceLine * lineCount + goalLine]--;
+                    nextCounts[blankLine * lineCount + goalLine]++;
+                    nextCounts[stateSize - 1] = sourceLine;
+                    long key = encoder.encode(nextCounts, 0);
+                    Integer next = statesByKey.get(key);
+                    if (next == null) {
+                        if (stateCount == MAX_STATES) return UNSUPPORTED;
+                        if (stateCount == stateDistances.length) {
+                            states = Arrays.copyOf(states, states.length * 2);
+                            stateDistances = Arrays.copyOf(stateDistances, stateDistances.length * 2);
+                            moves = Arrays.copyOf(moves, moves.length * 2);
+                        }
+                        next = stateCount++;
+                        statesByKey.put(key, next);
+                        System.arraycopy(nextCounts, 0, states, next * stateSize, stateSize);
+                        stateDistances[next] = (byte) (stateDistances[state] + 1);
+                    }
+                    moves[moveIndex] = next;
+                }
+            }
+        }
+
+        // Number the states in key order, so stateOf can find them without keeping the map
+        long[] keys = new long[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            keys[state] = encoder.encode(states, state * stateSize);
+        }
+        long[] sortedKeys = keys.clone();
+        Arrays.sort(sortedKeys);
+        int[] renumbered = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            renumbered[state] = Arrays.binarySearch(sortedKeys, keys[state]);
+        }
+        byte[] distances = new byte[stateCount];
+        int[] transitions = new int[stateCount * 2 * lineCount];
+        for (int state = 0; state < stateCount; state++) {
+            int sortedState = renumbered[state];
+            distances[sortedState] = stateDistances[state];
+            for (int move = 0; move < 2 * lineCount; move++) {
+                int next = moves[state * 2 * lineCount + move];
+                transitions[sortedState * 2 * lineCount + move] = next < 0 ? -1 : renumbered[next];
+            }
+        }
+        return new WalkingDistanceTable(lineCount, cellsPerLine, sortedKeys, distances, transitions);
+    }
+}